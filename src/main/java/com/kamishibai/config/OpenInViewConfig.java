@@ -0,0 +1,35 @@
+package com.kamishibai.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Registers open-in-view in place of Spring Boot's, for every request except the board event streams.
+ * Hibernate holds a session's connection until the session closes, and an open-in-view session lasts
+ * as long as the request, which for an event stream is until the client goes away or
+ * {@code app.events.timeout-ms} passes. A few open streams would otherwise take the whole pool. The
+ * streams check access in a transaction of their own and touch no entities afterwards.
+ */
+@Configuration
+public class OpenInViewConfig {
+    static final String EVENT_STREAMS = "/api/boards/*/events";
+
+    // Defining the interceptor makes Spring Boot skip registering its own
+    @Bean
+    public OpenEntityManagerInViewInterceptor openEntityManagerInViewInterceptor() {
+        return new OpenEntityManagerInViewInterceptor();
+    }
+
+    @Bean
+    public WebMvcConfigurer openEntityManagerInViewConfigurer(OpenEntityManagerInViewInterceptor interceptor) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addWebRequestInterceptor(interceptor).excludePathPatterns(EVENT_STREAMS);
+            }
+        };
+    }
+}
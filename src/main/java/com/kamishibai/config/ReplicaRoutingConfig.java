@@ -0,0 +1,100 @@
+package com.kamishibai.config;
+
+import com.kamishibai.datasource.ReplicaLagMonitor;
+import com.kamishibai.datasource.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+
+/**
+ * Read/write split, enabled by setting {@code app.datasource.replica.url}: read-only transactions run on a
+ * replica pool of their own, so dashboard reads do not compete with writes for primary connections, and
+ * fall back to the primary while the replica is down or lags by more than
+ * {@code app.datasource.replica.max-lag-ms}. The primary pool is still configured by
+ * {@code spring.datasource.*}; the measured lag is published as the {@code replica.lag} gauge.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.datasource.replica", name = "url")
+public class ReplicaRoutingConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    public HikariDataSource replicaDataSource(
+            @Value("${app.datasource.replica.url}") String url,
+            @Value("${app.datasource.replica.username:}") String username,
+            @Value("${app.datasource.replica.password:}") String password,
+            @Value("${app.datasource.replica.maximum-pool-size:10}") int maximumPoolSize,
+            @Value("${app.datasource.replica.connection-timeout-ms:2000}") long connectionTimeoutMillis) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("replica");
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        dataSource.setMaximumPoolSize(maximumPoolSize);
+        // Fail over to the primary quickly rather than queue behind a dead replica
+        dataSource.setConnectionTimeout(connectionTimeoutMillis);
+        dataSource.setReadOnly(true);
+        // Let the application start, and fall back to the primary, while the replica is down
+        dataSource.setInitializationFailTimeout(-1);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                               @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                               @Value("${app.datasource.replica.max-lag-ms:5000}") long maxLagMillis,
+                                               Clock clock, MeterRegistry meterRegistry) {
+        JdbcTemplate replica = new JdbcTemplate(replicaDataSource);
+        replica.setQueryTimeout(2);
+        ReplicaLagMonitor monitor = new ReplicaLagMonitor(new JdbcTemplate(primaryDataSource), replica,
+                maxLagMillis, clock);
+        Gauge.builder("replica.lag", monitor, ReplicaLagMonitor::getLagMillis)
+                .baseUnit("milliseconds")
+                .description("How far the read replica trails the primary; -1 until it first answers")
+                .register(meterRegistry);
+        return monitor;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                 ReplicaLagMonitor replicaLagMonitor) {
+        return new LazyConnectionDataSourceProxy(
+                new ReplicaRoutingDataSource(primaryDataSource, replicaDataSource, replicaLagMonitor));
+    }
+
+    /**
+     * Hibernate normally keeps a session's connection until the session closes, which with open-in-view
+     * is the end of the request, so a request whose first transaction was read-only would write to the
+     * replica. Releasing it after each transaction lets every transaction be routed on its own.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionsAfterTransaction() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+}
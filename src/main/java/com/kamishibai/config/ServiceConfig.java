@@ -1,7 +1,9 @@
 package com.kamishibai.config;
 
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @Configuration
+@EnableScheduling
 public class ServiceConfig {
 }
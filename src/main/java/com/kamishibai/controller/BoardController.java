@@ -1,22 +1,32 @@
 package com.kamishibai.controller;
 
 import com.kamishibai.dto.BoardRequest;
+import com.kamishibai.dto.BoardSummary;
+import com.kamishibai.dto.BoardSummaryPage;
 import com.kamishibai.model.Account;
 import com.kamishibai.model.Board;
 import com.kamishibai.security.CustomUserDetails;
 import com.kamishibai.service.AccountService;
+import com.kamishibai.service.BoardAccessService;
+import com.kamishibai.service.BoardEventHub;
 import com.kamishibai.service.BoardService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -24,25 +34,58 @@ import java.util.Optional;
 @RequestMapping("/api/boards")
 public class BoardController {
     private static final Logger logger = LoggerFactory.getLogger(BoardController.class);
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
 
     private final BoardService boardService;
     private final AccountService accountService;
+    private final BoardEventHub boardEventHub;
+    private final BoardAccessService boardAccessService;
 
-    public BoardController(BoardService boardService, AccountService accountService) {
+    public BoardController(BoardService boardService, AccountService accountService, BoardEventHub boardEventHub,
+                           BoardAccessService boardAccessService) {
         this.boardService = boardService;
         this.accountService = accountService;
+        this.boardEventHub = boardEventHub;
+        this.boardAccessService = boardAccessService;
     }
 
+    /**
+     * Lists the boards the user can access as flat summaries, one page at a time. {@code sort} is one of
+     * {@link BoardSummary#SORT_PROPERTIES}, optionally followed by {@code ,asc} or {@code ,desc}. Cards
+     * are only served by the per-board endpoints.
+     */
     @GetMapping
-    public ResponseEntity<List<Board>> getBoards(@AuthenticationPrincipal CustomUserDetails userDetails) {
+    public ResponseEntity<BoardSummaryPage> getBoards(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size,
+            @RequestParam(defaultValue = "id") String sort,
+            @AuthenticationPrincipal CustomUserDetails userDetails) {
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
         logger.info("Getting boards for user ID: {}", userDetails.getId());
-        Account account = accountService.getAccount(userDetails.getId());
-        logger.info("Found account: {}", account);
-        List<Board> boards = boardService.getBoardsForUser(account);
-        logger.info("Found {} boards", boards.size());
+        PageRequest pageRequest;
+        try {
+            pageRequest = PageRequest.of(page, size, parseSort(sort));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejected boards listing: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+        BoardSummaryPage boards = boardService.getBoardSummaries(userDetails.getId(), pageRequest);
+        logger.info("Found {} of {} boards", boards.getBoards().size(), boards.getTotalCount());
         return ResponseEntity.ok(boards);
     }
 
+    private static Sort parseSort(String sort) {
+        String[] parts = sort.split(",", -1);
+        if (parts.length > 2 || !BoardSummary.SORT_PROPERTIES.contains(parts[0])) {
+            throw new IllegalArgumentException("Invalid sort: " + sort);
+        }
+        Sort.Direction direction = parts.length == 2 ? Sort.Direction.fromString(parts[1]) : Sort.Direction.ASC;
+        return Sort.by(direction, parts[0]);
+    }
+
     @PostMapping
     public ResponseEntity<?> createBoard(@Valid @RequestBody BoardRequest request,
                                        BindingResult bindingResult,
@@ -56,31 +99,64 @@ public class BoardController {
         }
 
         logger.info("Creating board for user ID: {}", userDetails.getId());
-        Account account = accountService.getAccount(userDetails.getId());
-        logger.info("Found account: {}", account);
-        
+        // The response embeds the owner, so this is one of the few places that needs the cached account
+        Account owner = accountService.getAccount(userDetails.getId());
+
         Board board = new Board();
         board.setName(request.getName());
         board.setDescription(request.getDescription());
         
-        Board createdBoard = boardService.createBoard(board, account);
+        Board createdBoard = boardService.createBoard(board, owner);
         logger.info("Created board: {}", createdBoard);
         return ResponseEntity.ok(createdBoard);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> getBoard(@PathVariable Long id, @AuthenticationPrincipal CustomUserDetails userDetails) {
+    public ResponseEntity<?> getBoard(@PathVariable Long id, @AuthenticationPrincipal CustomUserDetails userDetails,
+                                      WebRequest webRequest) {
         logger.info("Getting board with ID: {}", id);
-        Account account = accountService.getAccount(userDetails.getId());
-        Optional<Board> board = boardService.getBoardById(id, account);
-        return board.map(ResponseEntity::ok)
+        Long changeSeq = boardService.getAccessibleChangeSeq(id, userDetails.getId());
+        if (changeSeq == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (webRequest.checkNotModified(BoardETags.board(id, changeSeq))) {
+            return null; // 304 already written, nothing loaded
+        }
+        Optional<Board> board = boardService.getBoardById(id, userDetails.getId());
+        return board.<ResponseEntity<?>>map(found -> ResponseEntity.ok().cacheControl(BoardETags.REVALIDATE).body(found))
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * Streams card changes on the board as Server-Sent Events. Browsers reconnect on their own and send
+     * the last id they saw, from which the missed events are replayed.
+     */
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamBoardEvents(
+            @PathVariable Long id,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            @AuthenticationPrincipal CustomUserDetails userDetails) {
+        if (!boardAccessService.canAccess(id, userDetails.getId())) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            return ResponseEntity.ok(boardEventHub.subscribe(id, lastEventId));
+        } catch (IllegalStateException e) {
+            logger.warn("Rejected event stream for board {}: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    /**
+     * Renames the board or changes its description. With {@code If-Match} set to the {@code ETag} of the
+     * previous PUT (or {@code "board-<id>-v<version>"}), the update fails with {@code 409} and the current
+     * board if anyone changed it since.
+     */
     @PutMapping("/{id}")
     public ResponseEntity<?> updateBoard(@PathVariable Long id,
                                        @Valid @RequestBody BoardRequest request,
                                        BindingResult bindingResult,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
                                        @AuthenticationPrincipal CustomUserDetails userDetails) {
         if (bindingResult.hasErrors()) {
             Map<String, String> errors = new HashMap<>();
@@ -92,10 +168,19 @@ public class BoardController {
 
         logger.info("Updating board with ID: {}", id);
         try {
-            Account account = accountService.getAccount(userDetails.getId());
-            Board updatedBoard = boardService.updateBoard(id, request, account);
+            Board updatedBoard = boardService.updateBoard(id, request, userDetails.getId(),
+                    VersionTags.expectedVersion(ifMatch, "board", id));
             logger.info("Updated board: {}", updatedBoard);
-            return ResponseEntity.ok(updatedBoard);
+            return ResponseEntity.ok().eTag(VersionTags.board(id, updatedBoard.getVersion())).body(updatedBoard);
+        } catch (OptimisticLockingFailureException e) {
+            // The failed update was rolled back, which also cleared the session, so this reads the committed board
+            Optional<Board> current = boardService.getBoardById(id, userDetails.getId());
+            if (current.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .eTag(VersionTags.board(id, current.get().getVersion()))
+                    .body(Map.of("message", "Board was changed by someone else", "board", current.get()));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("message", e.getMessage()));
         }
@@ -105,8 +190,7 @@ public class BoardController {
     public ResponseEntity<?> deleteBoard(@PathVariable Long id, @AuthenticationPrincipal CustomUserDetails userDetails) {
         logger.info("Deleting board with ID: {}", id);
         try {
-            Account account = accountService.getAccount(userDetails.getId());
-            boardService.deleteBoard(id, account);
+            boardService.deleteBoard(id, userDetails.getId());
             logger.info("Deleted board with ID: {}", id);
             return ResponseEntity.ok().build();
         } catch (IllegalArgumentException e) {
@@ -120,12 +204,11 @@ public class BoardController {
                                       @AuthenticationPrincipal CustomUserDetails userDetails) {
         logger.info("Sharing board with ID: {} with user: {}", id, email);
         try {
-            Account owner = accountService.getAccount(userDetails.getId());
             Optional<Account> sharedWithAccount = accountService.getAccountByEmail(email);
             if (sharedWithAccount.isEmpty()) {
                 return ResponseEntity.badRequest().body(Map.of("message", "User not found"));
             }
-            Board sharedBoard = boardService.shareBoard(id, owner, sharedWithAccount.get());
+            Board sharedBoard = boardService.shareBoard(id, userDetails.getId(), sharedWithAccount.get());
             logger.info("Shared board: {}", sharedBoard);
             return ResponseEntity.ok(sharedBoard);
         } catch (IllegalArgumentException e) {
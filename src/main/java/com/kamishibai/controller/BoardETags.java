@@ -0,0 +1,52 @@
+package com.kamishibai.controller;
+
+import org.springframework.http.CacheControl;
+
+/**
+ * Strong validators for the board read endpoints. Every representation of a board is derived from
+ * rows whose writes bump {@code boards.change_seq}, so the board id and sequence identify its bytes,
+ * and a poll can be answered with {@code 304 Not Modified} after the single lookup that also checks
+ * access ({@link com.kamishibai.repository.BoardRepository#findAccessibleChangeSeq}).
+ * <p>
+ * The sequence must be read before the representation is loaded: a change landing in between then
+ * yields a body newer than its tag, which only costs the client one extra full response.
+ */
+final class BoardETags {
+    /**
+     * Lets browsers keep the response but revalidate it on every use. Setting it also stops Spring
+     * Security from adding its default {@code no-store}, which would keep clients from ever sending
+     * {@code If-None-Match}.
+     */
+    static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
+    private BoardETags() {
+    }
+
+    static String board(Long boardId, long changeSeq) {
+        return tag("board", boardId, changeSeq);
+    }
+
+    static String cards(Long boardId, long changeSeq) {
+        return tag("cards", boardId, changeSeq);
+    }
+
+    /**
+     * The tag of a representation sent gzip-encoded. Its bytes differ from the identity one's, so a strong
+     * tag must differ too, or a cache could answer a range or conditional request with the wrong bytes.
+     */
+    static String gzipped(String tag) {
+        return tag + "-gzip";
+    }
+
+    /**
+     * The board page also renders the viewer's name and CSRF token, so its tag is tied to the session.
+     * Only a hash of the session id goes into the header.
+     */
+    static String page(Long boardId, long changeSeq, String sessionId) {
+        return tag("page", boardId, changeSeq) + "-" + Integer.toHexString(sessionId.hashCode());
+    }
+
+    private static String tag(String kind, Long boardId, long changeSeq) {
+        return kind + "-" + boardId + "-" + changeSeq;
+    }
+}
@@ -1,64 +1,62 @@
 package com.kamishibai.controller;
 
 import com.kamishibai.dto.BoardRequest;
+import com.kamishibai.dto.BoardView;
 import com.kamishibai.model.Account;
 import com.kamishibai.model.Board;
 import com.kamishibai.model.Card;
-import com.kamishibai.model.CardState;
 import com.kamishibai.security.CustomUserDetails;
 import com.kamishibai.service.AccountService;
 import com.kamishibai.service.BoardService;
-import com.kamishibai.service.CardService;
+import com.kamishibai.service.BoardViewAssembler;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
-
-import java.util.List;
-import java.util.stream.Collectors;
+import org.springframework.web.context.request.WebRequest;
 
 @Controller
 @RequestMapping("/boards")
 public class BoardViewController {
     private final BoardService boardService;
     private final AccountService accountService;
-    private final CardService cardService;
+    private final BoardViewAssembler boardViewAssembler;
 
-    public BoardViewController(BoardService boardService, AccountService accountService, CardService cardService) {
+    public BoardViewController(BoardService boardService, AccountService accountService,
+                               BoardViewAssembler boardViewAssembler) {
         this.boardService = boardService;
         this.accountService = accountService;
-        this.cardService = cardService;
+        this.boardViewAssembler = boardViewAssembler;
     }
 
     @GetMapping
     public String listBoards(Model model, @AuthenticationPrincipal CustomUserDetails userDetails) {
-        Account account = accountService.getAccount(userDetails.getId());
-        model.addAttribute("boards", boardService.getBoardsForUser(account));
+        model.addAttribute("boards", boardService.getBoardsForUser(userDetails.getId()));
         return "boards/list";
     }
 
     @GetMapping("/{id}")
-    public String viewBoard(@PathVariable Long id, Model model, @AuthenticationPrincipal CustomUserDetails userDetails) {
-        Account account = accountService.getAccount(userDetails.getId());
-        Board board = boardService.getBoardById(id, account)
+    public String viewBoard(@PathVariable Long id, Model model, @AuthenticationPrincipal CustomUserDetails userDetails,
+                            WebRequest webRequest, HttpServletResponse response) {
+        Long changeSeq = boardService.getAccessibleChangeSeq(id, userDetails.getId());
+        if (changeSeq == null) {
+            throw new IllegalArgumentException("Board not found");
+        }
+        if (webRequest.checkNotModified(BoardETags.page(id, changeSeq, webRequest.getSessionId()))) {
+            return null; // 304 already written, nothing loaded or rendered
+        }
+        response.setHeader(HttpHeaders.CACHE_CONTROL, BoardETags.REVALIDATE.getHeaderValue());
+
+        // Board, owner and cards in two queries; the account itself is not needed to render
+        BoardView view = boardViewAssembler.assemble(id, userDetails.getId())
                 .orElseThrow(() -> new IllegalArgumentException("Board not found"));
 
-        // Get all cards for this board
-        List<Card> cards = cardService.getCardsByBoardId(id);
-        
-        // Split cards into red and green lists
-        List<Card> redCards = cards.stream()
-                .filter(card -> card.getState() == CardState.RED)
-                .collect(Collectors.toList());
-        
-        List<Card> greenCards = cards.stream()
-                .filter(card -> card.getState() == CardState.GREEN)
-                .collect(Collectors.toList());
+        model.addAttribute("board", view.getBoard());
+        model.addAttribute("redCards", view.getRedCards());
+        model.addAttribute("greenCards", view.getGreenCards());
 
-        model.addAttribute("board", board);
-        model.addAttribute("redCards", redCards);
-        model.addAttribute("greenCards", greenCards);
-        
         return "boards/view";
     }
 
@@ -70,22 +68,22 @@ public class BoardViewController {
 
     @PostMapping("/create")
     public String createBoard(@ModelAttribute BoardRequest boardRequest, @AuthenticationPrincipal CustomUserDetails userDetails) {
-        Account account = accountService.getAccount(userDetails.getId());
+        // Only the owner's id is written, so a reference saves reading the account
+        Account owner = accountService.getAccountReference(userDetails.getId());
         Board board = new Board();
         board.setName(boardRequest.getName());
         board.setDescription(boardRequest.getDescription());
-        boardService.createBoard(board, account);
+        boardService.createBoard(board, owner);
         return "redirect:/boards";
     }
 
     @GetMapping("/{id}/edit")
     public String editBoardForm(@PathVariable Long id, Model model, @AuthenticationPrincipal CustomUserDetails userDetails) {
-        Account account = accountService.getAccount(userDetails.getId());
-        Board board = boardService.getBoardById(id, account)
+        Board board = boardService.getBoardById(id, userDetails.getId())
                 .orElseThrow(() -> new IllegalArgumentException("Board not found"));
 
         // Check if user is the owner
-        if (!board.getOwner().equals(account)) {
+        if (!board.getOwner().getId().equals(userDetails.getId())) {
             return "error/403";
         }
 
@@ -95,8 +93,7 @@ public class BoardViewController {
 
     @PostMapping("/{id}/update")
     public String updateBoard(@PathVariable Long id, @ModelAttribute BoardRequest boardRequest, @AuthenticationPrincipal CustomUserDetails userDetails) {
-        Account account = accountService.getAccount(userDetails.getId());
-        boardService.updateBoard(id, boardRequest, account);
+        boardService.updateBoard(id, boardRequest, userDetails.getId(), null);
         return "redirect:/boards";
     }
 
@@ -0,0 +1,62 @@
+package com.kamishibai.controller;
+
+import com.kamishibai.dto.CardBatchRequest;
+import com.kamishibai.dto.CardBatchResponse;
+import com.kamishibai.security.CustomUserDetails;
+import com.kamishibai.service.CardService;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.validation.BindingResult;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Applies many card operations on one board in a single request, for supervisors walking a whole
+ * board or a kiosk resetting a row. Lives apart from {@link CardController} because the
+ * {@code cards:batch} segment cannot be expressed under that controller's {@code /cards} prefix.
+ */
+@RestController
+@RequestMapping("/api/boards/{boardId}")
+public class CardBatchController {
+    private static final Logger logger = LoggerFactory.getLogger(CardBatchController.class);
+
+    private final CardService cardService;
+
+    public CardBatchController(CardService cardService) {
+        this.cardService = cardService;
+    }
+
+    @PostMapping("/cards:batch")
+    public ResponseEntity<?> applyBatch(
+            @PathVariable Long boardId,
+            @Valid @RequestBody CardBatchRequest request,
+            BindingResult bindingResult,
+            @AuthenticationPrincipal CustomUserDetails userDetails) {
+        if (bindingResult.hasErrors()) {
+            Map<String, String> errors = new HashMap<>();
+            bindingResult.getFieldErrors().forEach(error ->
+                errors.put(error.getField(), error.getDefaultMessage())
+            );
+            return ResponseEntity.badRequest().body(Map.of("message", "Validation failed", "errors", errors));
+        }
+
+        logger.info("Applying {} card operations to board {}", request.getOperations().size(), boardId);
+        try {
+            CardBatchResponse response = cardService.applyBatch(boardId, userDetails.getId(),
+                    request.getOperations());
+            return ResponseEntity.ok(response);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("message", e.getMessage()));
+        } catch (PessimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("message", "Cards are being modified concurrently, please retry"));
+        }
+    }
+}
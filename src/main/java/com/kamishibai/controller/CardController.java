@@ -1,54 +1,75 @@
 package com.kamishibai.controller;
 
+import com.kamishibai.dto.CardAuditPage;
+import com.kamishibai.dto.CardChangesResponse;
 import com.kamishibai.dto.CardRequest;
 import com.kamishibai.dto.CardResponse;
 import com.kamishibai.dto.CardListResponse;
+import com.kamishibai.dto.CardMoveRequest;
 import com.kamishibai.model.*;
 import com.kamishibai.repository.BoardRepository;
 import com.kamishibai.repository.CardRepository;
 import com.kamishibai.security.CustomUserDetails;
+import com.kamishibai.service.BoardAccessService;
+import com.kamishibai.service.CardListCache;
 import com.kamishibai.service.CardService;
+import com.kamishibai.service.CardStatsService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/boards/{boardId}/cards")
 public class CardController {
     private static final Logger logger = LoggerFactory.getLogger(CardController.class);
+    private static final int DEFAULT_AUDIT_PAGE_SIZE = 50;
+    private static final int MAX_AUDIT_PAGE_SIZE = 200;
+    private static final int MAX_STATS_DAYS = 366;
+    static final String CHANGE_SEQ_HEADER = "X-Change-Seq";
+    private static final String GZIP = "gzip";
     
     private final CardService cardService;
+    private final CardStatsService cardStatsService;
     private final CardRepository cardRepository;
     private final BoardRepository boardRepository;
+    private final BoardAccessService boardAccessService;
 
-    public CardController(CardService cardService, CardRepository cardRepository, BoardRepository boardRepository) {
+    public CardController(CardService cardService, CardStatsService cardStatsService,
+                          CardRepository cardRepository, BoardRepository boardRepository,
+                          BoardAccessService boardAccessService) {
         this.cardService = cardService;
+        this.cardStatsService = cardStatsService;
         this.cardRepository = cardRepository;
         this.boardRepository = boardRepository;
+        this.boardAccessService = boardAccessService;
     }
 
-    private boolean hasAccess(Board board, Account account) {
-        return board.getOwner().equals(account) || board.getSharedWith().contains(account);
-    }
-
-    private Board getBoardAndCheckAccess(Long boardId, Account account) {
-        Board board = boardRepository.findById(boardId)
-                .orElseThrow(() -> new IllegalArgumentException("Board not found"));
-
-        if (!hasAccess(board, account)) {
-            throw new IllegalStateException("Access denied");
-        }
-
-        return board;
+    /**
+     * Checks access and returns a reference to the board for associating new cards with; the cached
+     * access check has already established that the board exists, so it is not loaded.
+     */
+    private Board getBoardAndCheckAccess(Long boardId, Long accountId) {
+        boardAccessService.checkAccess(boardId, accountId);
+        return boardRepository.getReferenceById(boardId);
     }
 
     @PostMapping("/{cardId}/toggle")
@@ -57,32 +78,119 @@ public class CardController {
             @PathVariable Long cardId,
             @AuthenticationPrincipal CustomUserDetails userDetails) {
         try {
-            Board board = getBoardAndCheckAccess(boardId, userDetails.getAccount());
-            Card card = cardRepository.findById(cardId)
-                    .orElseThrow(() -> new IllegalArgumentException("Card not found"));
-
-            if (!card.getBoard().getId().equals(boardId)) {
-                throw new IllegalStateException("Card does not belong to this board");
-            }
-
-            CardResponse response = cardService.toggleCardState(card);
+            // The access check is part of the conditional update, so neither the board nor the card is loaded
+            CardResponse response = cardService.toggleCardState(boardId, cardId, userDetails.getId());
             return ResponseEntity.ok(response);
         } catch (IllegalStateException e) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (ConcurrencyFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Card was modified concurrently, please retry");
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to toggle card state");
         }
     }
 
+    /**
+     * Drops a card just after another one, or at the top of the board, rewriting only the moved card's rank.
+     */
+    @PostMapping("/{cardId}/move")
+    public ResponseEntity<?> moveCard(
+            @PathVariable Long boardId,
+            @PathVariable Long cardId,
+            @RequestBody CardMoveRequest request,
+            @AuthenticationPrincipal CustomUserDetails userDetails) {
+        if (cardId.equals(request.getAfterCardId())) {
+            return ResponseEntity.badRequest().body("A card cannot be moved after itself");
+        }
+        try {
+            Card card = cardService.moveCard(boardId, cardId, request.getAfterCardId(), userDetails.getId());
+            return ResponseEntity.ok(new CardListResponse(card));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (ConcurrencyFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Board was modified concurrently, please retry");
+        }
+    }
+
+    /**
+     * Lists the board's cards. Answers {@code If-None-Match} with {@code 304 Not Modified} after the one
+     * lookup that checks access; cards flipped by a due reset show up once the reset job has written them.
+     * Clients opening the same board at once share one load of the list (see {@link CardService#getCardList}),
+     * and the list is written as the JSON cached with it, gzipped if the client accepts that.
+     */
     @GetMapping
-    public ResponseEntity<List<CardListResponse>> getCards(@PathVariable Long boardId, @AuthenticationPrincipal CustomUserDetails userDetails) {
+    public ResponseEntity<?> getCards(@PathVariable Long boardId,
+                                      @AuthenticationPrincipal CustomUserDetails userDetails,
+                                      WebRequest webRequest, HttpServletResponse response) {
+        Long changeSeq = boardRepository.findAccessibleChangeSeq(boardId, userDetails.getId());
+        if (changeSeq == null) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        // Either encoding of this sequence is current, and the 304 repeats the tag the client sent
+        String tag = BoardETags.cards(boardId, changeSeq);
+        String ifNoneMatch = webRequest.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && ifNoneMatch.contains("\"" + BoardETags.gzipped(tag) + "\"")) {
+            tag = BoardETags.gzipped(tag);
+        }
+        if (webRequest.checkNotModified(tag)) {
+            return null; // 304 already written, nothing loaded
+        }
+        CardListCache.CardList list;
         try {
-            Board board = getBoardAndCheckAccess(boardId, userDetails.getAccount());
-            List<Card> cards = cardService.getCardsByBoardId(boardId);
-            List<CardListResponse> response = cards.stream()
-                .map(CardListResponse::new)
-                .toList();
-            return ResponseEntity.ok(response);
+            list = cardService.getCardList(boardId, changeSeq);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
+        boolean gzip = list.gzippedJson() != null && acceptsGzip(webRequest.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        // Tags what was loaded, which may be a later sequence (or, from a lagging replica, an earlier one),
+        // and in the encoding sent; replaces the tag checkNotModified wrote
+        String loadedTag = BoardETags.cards(boardId, list.changeSeq());
+        response.setHeader(HttpHeaders.ETAG, "\"" + (gzip ? BoardETags.gzipped(loadedTag) : loadedTag) + "\"");
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok()
+            .cacheControl(BoardETags.REVALIDATE)
+            .contentType(MediaType.APPLICATION_JSON)
+            .varyBy(HttpHeaders.ACCEPT_ENCODING)
+            .header(CHANGE_SEQ_HEADER, Long.toString(list.changeSeq()));
+        if (gzip) {
+            ok.header(HttpHeaders.CONTENT_ENCODING, GZIP);
+        }
+        return ok.body(gzip ? list.gzippedJson() : list.json());
+    }
+
+    /**
+     * Returns true if an {@code Accept-Encoding} header lists gzip without ruling it out with {@code q=0}.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            if (parts[0].trim().equalsIgnoreCase(GZIP)) {
+                return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0{0,3})?");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the cards that changed after change sequence {@code since}, as reported by a previous call
+     * or by the {@value #CHANGE_SEQ_HEADER} header of the card list.
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<CardChangesResponse> getCardChanges(
+            @PathVariable Long boardId,
+            @RequestParam long since,
+            @AuthenticationPrincipal CustomUserDetails userDetails) {
+        if (since < 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(cardService.getCardChanges(boardId, userDetails.getId(), since));
         } catch (IllegalStateException e) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
@@ -97,7 +205,7 @@ public class CardController {
         try {
             logger.info("Creating card for board {} with request: {}", boardId, request);
             
-            Board board = getBoardAndCheckAccess(boardId, userDetails.getAccount());
+            Board board = getBoardAndCheckAccess(boardId, userDetails.getId());
             
             Card card = new Card();
             card.setTitle(request.getTitle());
@@ -132,38 +240,44 @@ public class CardController {
         }
     }
 
+    /**
+     * Updates the card. Sending the {@code ETag} of the previous PUT (or the card's {@code version} as
+     * {@code "card-<id>-v<version>"}) in {@code If-Match} makes the update fail with {@code 409} and the
+     * current card if anyone changed it since; without it, only a change racing this very update is refused.
+     */
     @PutMapping("/{cardId}")
     public ResponseEntity<Map<String, Object>> updateCard(
             @PathVariable Long boardId,
             @PathVariable Long cardId,
             @Valid @RequestBody CardRequest request,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @AuthenticationPrincipal CustomUserDetails userDetails) {
 
         try {
-            Board board = getBoardAndCheckAccess(boardId, userDetails.getAccount());
-            Card existingCard = cardRepository.findById(cardId)
-                    .orElseThrow(() -> new IllegalArgumentException("Card not found"));
+            boardAccessService.checkAccess(boardId, userDetails.getId());
+            Card changes = new Card();
+            changes.setTitle(request.getTitle());
+            changes.setDetails(request.getDetails());
+            changes.setState(request.getState());
+            changes.setResetTime(request.getResetTime());
+            changes.setPosition(request.getPosition());
 
-            if (!existingCard.getBoard().getId().equals(boardId)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
-            }
+            Card updatedCard = cardService.updateCard(boardId, cardId, changes,
+                    VersionTags.expectedVersion(ifMatch, "card", cardId));
 
-            existingCard.setTitle(request.getTitle());
-            existingCard.setDetails(request.getDetails());
-            existingCard.setState(request.getState());
-            existingCard.setResetTime(request.getResetTime());
-            existingCard.setPosition(request.getPosition());
-
-            Card updatedCard = cardService.updateCard(cardId, existingCard);
-            
             Map<String, Object> response = new HashMap<>();
             response.put("id", updatedCard.getId());
+            response.put("version", updatedCard.getVersion());
             response.put("message", "Card updated successfully");
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().eTag(VersionTags.card(cardId, updatedCard.getVersion())).body(response);
+        } catch (OptimisticLockingFailureException e) {
+            return cardConflict(cardId);
         } catch (IllegalStateException e) {
             Map<String, Object> response = new HashMap<>();
             response.put("message", e.getMessage());
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", e.getMessage()));
         } catch (Exception e) {
             Map<String, Object> response = new HashMap<>();
             response.put("message", "Failed to update card: " + e.getMessage());
@@ -171,15 +285,42 @@ public class CardController {
         }
     }
 
+    private ResponseEntity<Map<String, Object>> cardConflict(Long cardId) {
+        // The failed update was rolled back, which also cleared the session, so this reads the committed card
+        Optional<Card> current = cardRepository.findById(cardId);
+        if (current.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", "Card not found"));
+        }
+        Card card = current.get();
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", "Card was changed by someone else");
+        response.put("card", new CardListResponse(card));
+        return ResponseEntity.status(HttpStatus.CONFLICT).eTag(VersionTags.card(cardId, card.getVersion()))
+                .body(response);
+    }
+
     @GetMapping("/{cardId}/audit")
-    public ResponseEntity<List<CardAudit>> getCardAuditLog(
+    public ResponseEntity<CardAuditPage> getCardAuditLog(
             @PathVariable Long boardId,
             @PathVariable Long cardId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + DEFAULT_AUDIT_PAGE_SIZE) int limit,
             @AuthenticationPrincipal CustomUserDetails userDetails) {
+        if (limit < 1 || limit > MAX_AUDIT_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (cursor != null) {
+            try {
+                CardAuditPage.cursorTimestamp(cursor);
+                CardAuditPage.cursorId(cursor);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
         try {
             logger.info("Getting audit log for card {} in board {}", cardId, boardId);
             
-            Board board = getBoardAndCheckAccess(boardId, userDetails.getAccount());
+            boardAccessService.checkAccess(boardId, userDetails.getId());
             Card card = cardRepository.findById(cardId)
                     .orElseThrow(() -> new IllegalArgumentException("Card not found"));
 
@@ -187,9 +328,9 @@ public class CardController {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
             }
 
-            List<CardAudit> auditLog = cardService.getCardAuditLog(card);
+            CardAuditPage auditPage = cardService.getCardAuditPage(card, cursor, limit);
             logger.info("Successfully retrieved audit log for card {} in board {}", cardId, boardId);
-            return ResponseEntity.ok(auditLog);
+            return ResponseEntity.ok(auditPage);
         } catch (IllegalStateException e) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         } catch (Exception e) {
@@ -197,4 +338,32 @@ public class CardController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
+
+    @GetMapping("/{cardId}/stats")
+    public ResponseEntity<List<CardDailyStats>> getCardDailyStats(
+            @PathVariable Long boardId,
+            @PathVariable Long cardId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @AuthenticationPrincipal CustomUserDetails userDetails) {
+        if (to.isBefore(from) || ChronoUnit.DAYS.between(from, to) >= MAX_STATS_DAYS) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            boardAccessService.checkAccess(boardId, userDetails.getId());
+            Card card = cardRepository.findById(cardId)
+                    .orElseThrow(() -> new IllegalArgumentException("Card not found"));
+
+            if (!card.getBoard().getId().equals(boardId)) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+            }
+
+            return ResponseEntity.ok(cardStatsService.getDailyStats(cardId, from, to));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        } catch (Exception e) {
+            logger.error("Error getting stats for card {} in board {}: {}", cardId, boardId, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
 }
@@ -1,15 +1,17 @@
 package com.kamishibai.controller;
 
 import com.kamishibai.dto.CardRequest;
-import com.kamishibai.model.Account;
+import com.kamishibai.dto.CardResponse;
 import com.kamishibai.model.Board;
 import com.kamishibai.model.Card;
 import com.kamishibai.model.CardState;
 import com.kamishibai.repository.BoardRepository;
 import com.kamishibai.repository.CardRepository;
 import com.kamishibai.security.CustomUserDetails;
+import com.kamishibai.service.BoardAccessService;
 import com.kamishibai.service.CardService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -30,34 +32,31 @@ public class CardViewController {
     private final CardService cardService;
     private final CardRepository cardRepository;
     private final BoardRepository boardRepository;
+    private final BoardAccessService boardAccessService;
 
     @Autowired
-    public CardViewController(CardService cardService, CardRepository cardRepository, BoardRepository boardRepository) {
+    public CardViewController(CardService cardService, CardRepository cardRepository, BoardRepository boardRepository,
+                              BoardAccessService boardAccessService) {
         this.cardService = cardService;
         this.cardRepository = cardRepository;
         this.boardRepository = boardRepository;
+        this.boardAccessService = boardAccessService;
     }
 
-    private boolean hasAccess(Board board, Account account) {
-        return board.getOwner().equals(account) || board.getSharedWith().contains(account);
-    }
-
-    private Board getBoardAndCheckAccess(Long boardId, Account account) {
-        Board board = boardRepository.findById(boardId)
-                .orElseThrow(() -> new IllegalArgumentException("Board not found"));
-
-        if (!hasAccess(board, account)) {
-            throw new IllegalStateException("Access denied");
-        }
-
-        return board;
+    /**
+     * Checks access and returns a reference to the board; the cached access check has already established
+     * that it exists, so it is only loaded if a page renders it.
+     */
+    private Board getBoardAndCheckAccess(Long boardId, Long accountId) {
+        boardAccessService.checkAccess(boardId, accountId);
+        return boardRepository.getReferenceById(boardId);
     }
 
     @GetMapping
     public String listCards(@PathVariable Long boardId, Model model, @AuthenticationPrincipal CustomUserDetails userDetails) {
         System.out.println("DEBUG: Received request to list cards for board " + boardId);
         try {
-            Board board = getBoardAndCheckAccess(boardId, userDetails.getAccount());
+            Board board = getBoardAndCheckAccess(boardId, userDetails.getId());
             System.out.println("DEBUG: Found board: " + board.getId());
             model.addAttribute("cards", cardService.getCardsByBoardId(boardId));
             model.addAttribute("boardId", boardId);
@@ -75,7 +74,7 @@ public class CardViewController {
     @GetMapping("/new")
     public String createCardForm(@PathVariable Long boardId, Model model, @AuthenticationPrincipal CustomUserDetails userDetails) {
         try {
-            Board board = getBoardAndCheckAccess(boardId, userDetails.getAccount());
+            Board board = getBoardAndCheckAccess(boardId, userDetails.getId());
             model.addAttribute("boardId", boardId);
             model.addAttribute("card", new Card()); // Add empty card for form binding
             model.addAttribute("board", board);
@@ -95,7 +94,7 @@ public class CardViewController {
             @AuthenticationPrincipal CustomUserDetails userDetails) {
         
         try {
-            Board board = getBoardAndCheckAccess(boardId, userDetails.getAccount());
+            Board board = getBoardAndCheckAccess(boardId, userDetails.getId());
             
             if (bindingResult.hasErrors()) {
                 model.addAttribute("boardId", boardId);
@@ -146,7 +145,7 @@ public class CardViewController {
                 return ResponseEntity.badRequest().body(errors);
             }
 
-            Board board = getBoardAndCheckAccess(boardId, userDetails.getAccount());
+            Board board = getBoardAndCheckAccess(boardId, userDetails.getId());
             
             Card card = new Card();
             card.setTitle(request.getTitle());
@@ -176,7 +175,7 @@ public class CardViewController {
     @GetMapping("/{cardId}/edit")
     public String editCardForm(@PathVariable Long boardId, @PathVariable Long cardId, Model model, @AuthenticationPrincipal CustomUserDetails userDetails) {
         try {
-            Board board = getBoardAndCheckAccess(boardId, userDetails.getAccount());
+            Board board = getBoardAndCheckAccess(boardId, userDetails.getId());
             Card card = cardRepository.findById(cardId)
                     .orElseThrow(() -> new IllegalArgumentException("Card not found"));
             
@@ -204,13 +203,7 @@ public class CardViewController {
             @AuthenticationPrincipal CustomUserDetails userDetails) {
         
         try {
-            Board board = getBoardAndCheckAccess(boardId, userDetails.getAccount());
-            Card existingCard = cardRepository.findById(cardId)
-                    .orElseThrow(() -> new IllegalArgumentException("Card not found"));
-            
-            if (!existingCard.getBoard().getId().equals(boardId)) {
-                return "error/403";
-            }
+            Board board = getBoardAndCheckAccess(boardId, userDetails.getId());
             
             if (bindingResult.hasErrors()) {
                 model.addAttribute("boardId", boardId);
@@ -218,13 +211,9 @@ public class CardViewController {
                 return "cards/form";
             }
             
-            // Update card fields
-            existingCard.setTitle(updatedCard.getTitle());
-            existingCard.setDetails(updatedCard.getDetails());
-            existingCard.setState(updatedCard.getState());
-            existingCard.setResetTime(updatedCard.getResetTime());
-            
-            cardService.updateCard(cardId, existingCard);
+            // The service loads the card once and applies the bound fields; its position is left as is
+            updatedCard.setPosition(null);
+            cardService.updateCard(boardId, cardId, updatedCard, null);
             redirectAttributes.addFlashAttribute("message", "Card updated successfully!");
             
             return "redirect:/boards/" + boardId;
@@ -246,25 +235,19 @@ public class CardViewController {
             @AuthenticationPrincipal CustomUserDetails userDetails) {
         
         try {
-            Board board = getBoardAndCheckAccess(boardId, userDetails.getAccount());
-            Card card = cardRepository.findById(cardId)
-                    .orElseThrow(() -> new IllegalArgumentException("Card not found"));
-            
-            if (!card.getBoard().getId().equals(boardId)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
-            }
-            
-            CardState newState = (card.getState() == CardState.RED) ? CardState.GREEN : CardState.RED;
-            card.setState(newState);
-            cardService.updateCard(cardId, card);
+            CardResponse toggled = cardService.toggleCardState(boardId, cardId, userDetails.getId());
             
             Map<String, Object> response = new HashMap<>();
-            response.put("state", newState);
+            response.put("state", toggled.getState());
             response.put("cardId", cardId);
             
             return ResponseEntity.ok(response);
         } catch (IllegalStateException e) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (ConcurrencyFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
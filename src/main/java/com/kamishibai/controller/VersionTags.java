@@ -0,0 +1,46 @@
+package com.kamishibai.controller;
+
+/**
+ * Validators for the PUT endpoints, built from an entity's optimistic-lock version. A PUT answers with
+ * the tag of the version it wrote, and a client that sends it back in {@code If-Match} has its next edit
+ * rejected with {@code 409 Conflict} if anyone changed the entity in between. Unlike {@link BoardETags},
+ * which tag whole representations, these only change when the entity itself does.
+ */
+final class VersionTags {
+    static final String ANY = "*";
+
+    private VersionTags() {
+    }
+
+    static String card(Long cardId, long version) {
+        return tag("card", cardId, version);
+    }
+
+    static String board(Long boardId, long version) {
+        return tag("board", boardId, version);
+    }
+
+    /**
+     * Returns the version an {@code If-Match} header holds for the entity, or null if there is no header or
+     * it is {@code *}. A tag of anything else, including a weak tag, yields -1, which no version matches.
+     */
+    static Long expectedVersion(String ifMatch, String kind, Long id) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals(ANY)) {
+            return null;
+        }
+        String prefix = "\"" + kind + "-" + id + "-v";
+        String value = ifMatch.trim();
+        if (!value.startsWith(prefix) || !value.endsWith("\"")) {
+            return -1L;
+        }
+        try {
+            return Long.parseLong(value.substring(prefix.length(), value.length() - 1));
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    private static String tag(String kind, Long id, long version) {
+        return "\"" + kind + "-" + id + "-v" + version + "\"";
+    }
+}
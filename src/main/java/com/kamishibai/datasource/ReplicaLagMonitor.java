@@ -0,0 +1,90 @@
+package com.kamishibai.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Clock;
+
+/**
+ * Decides whether the replica may serve reads. Every check reads the heartbeat the replica has replicated
+ * so far, then writes the current time to the primary's {@code replica_heartbeat} row (see V13), so the
+ * measured lag is how far the replica trails the primary, plus at most one check interval. The replica is
+ * usable while it answers and the lag stays within {@code app.datasource.replica.max-lag-ms}; it starts out
+ * unusable until the first check passes.
+ */
+public class ReplicaLagMonitor {
+    static final String READ_HEARTBEAT_SQL = "SELECT beat_at FROM replica_heartbeat WHERE id = 1";
+    static final String WRITE_HEARTBEAT_SQL = "UPDATE replica_heartbeat SET beat_at = ? WHERE id = 1";
+
+    private final Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final long maxLagMillis;
+    private final Clock clock;
+    private volatile boolean usable;
+    private volatile long lagMillis = -1;
+
+    public ReplicaLagMonitor(JdbcTemplate primary, JdbcTemplate replica, long maxLagMillis, Clock clock) {
+        this.primary = primary;
+        this.replica = replica;
+        this.maxLagMillis = maxLagMillis;
+        this.clock = clock;
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica.check-interval-ms:1000}")
+    public void check() {
+        long now = clock.millis();
+        Long replicated = null;
+        try {
+            replicated = replica.queryForObject(READ_HEARTBEAT_SQL, Long.class);
+        } catch (DataAccessException e) {
+            markDown(e);
+        }
+        try {
+            primary.update(WRITE_HEARTBEAT_SQL, now);
+        } catch (DataAccessException e) {
+            logger.warn("Could not write replica heartbeat: {}", e.getMessage());
+        }
+        if (replicated == null) {
+            return;
+        }
+        lagMillis = Math.max(0, now - replicated);
+        if (lagMillis > maxLagMillis) {
+            setUsable(false, "lagging " + lagMillis + " ms");
+        } else {
+            setUsable(true, "lag " + lagMillis + " ms");
+        }
+    }
+
+    public boolean isReplicaUsable() {
+        return usable;
+    }
+
+    /**
+     * The lag measured by the last successful check, or -1 if the replica has not answered yet.
+     */
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    /**
+     * Stops routing reads to the replica until the next check finds it healthy.
+     */
+    public void markDown(Exception cause) {
+        setUsable(false, "unavailable: " + cause.getMessage());
+    }
+
+    private void setUsable(boolean nowUsable, String reason) {
+        if (usable != nowUsable) {
+            if (nowUsable) {
+                logger.info("Routing read-only transactions to the replica ({})", reason);
+            } else {
+                logger.warn("Routing read-only transactions to the primary, replica {}", reason);
+            }
+        }
+        usable = nowUsable;
+    }
+}
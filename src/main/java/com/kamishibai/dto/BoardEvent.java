@@ -0,0 +1,61 @@
+package com.kamishibai.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.kamishibai.model.CardState;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * A change to a card on a board, as pushed to the board's event stream. {@code type} is one of
+ * {@link #CARD_CREATED}, {@link #CARD_UPDATED}, {@link #CARD_TOGGLED} or {@link #CARD_RESET}.
+ */
+public class BoardEvent {
+    public static final String CARD_CREATED = "card-created";
+    public static final String CARD_UPDATED = "card-updated";
+    public static final String CARD_TOGGLED = "card-toggled";
+    public static final String CARD_RESET = "card-reset";
+
+    private String type;
+    private Long boardId;
+    private Long cardId;
+    private CardState state;
+    private LocalTime resetTime;
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private LocalDateTime changedAt;
+
+    public BoardEvent(String type, Long boardId, Long cardId, CardState state, LocalTime resetTime,
+                      LocalDateTime changedAt) {
+        this.type = type;
+        this.boardId = boardId;
+        this.cardId = cardId;
+        this.state = state;
+        this.resetTime = resetTime;
+        this.changedAt = changedAt;
+    }
+
+    // Getters
+    public String getType() {
+        return type;
+    }
+
+    public Long getBoardId() {
+        return boardId;
+    }
+
+    public Long getCardId() {
+        return cardId;
+    }
+
+    public CardState getState() {
+        return state;
+    }
+
+    public LocalTime getResetTime() {
+        return resetTime;
+    }
+
+    public LocalDateTime getChangedAt() {
+        return changedAt;
+    }
+}
@@ -0,0 +1,88 @@
+package com.kamishibai.dto;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * Read-only row for board listings: the board's own columns, its owner's name, how many accounts it
+ * is shared with and card counts, without loading the owner, sharing or card associations.
+ * {@code lastChangedAt} is the most recent card state change, or null for a board without cards.
+ */
+public class BoardSummary {
+    /**
+     * The properties a listing can be sorted by.
+     */
+    public static final Set<String> SORT_PROPERTIES = Set.of("id", "name", "ownerName", "createdAt",
+            "lastChangedAt", "sharedCount", "cardCount", "greenCardCount", "redCardCount");
+
+    private Long id;
+    private String name;
+    private String description;
+    private Long ownerId;
+    private String ownerName;
+    private LocalDateTime createdAt;
+    private LocalDateTime lastChangedAt;
+    private long sharedCount;
+    private long cardCount;
+    private long greenCardCount;
+
+    public BoardSummary(Long id, String name, String description, Long ownerId, String ownerName,
+                        LocalDateTime createdAt, LocalDateTime lastChangedAt, long sharedCount,
+                        long cardCount, long greenCardCount) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.ownerId = ownerId;
+        this.ownerName = ownerName;
+        this.createdAt = createdAt;
+        this.lastChangedAt = lastChangedAt;
+        this.sharedCount = sharedCount;
+        this.cardCount = cardCount;
+        this.greenCardCount = greenCardCount;
+    }
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public Long getOwnerId() {
+        return ownerId;
+    }
+
+    public String getOwnerName() {
+        return ownerName;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getLastChangedAt() {
+        return lastChangedAt;
+    }
+
+    public long getSharedCount() {
+        return sharedCount;
+    }
+
+    public long getCardCount() {
+        return cardCount;
+    }
+
+    public long getGreenCardCount() {
+        return greenCardCount;
+    }
+
+    public long getRedCardCount() {
+        return cardCount - greenCardCount;
+    }
+}
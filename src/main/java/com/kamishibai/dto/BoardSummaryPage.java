@@ -0,0 +1,38 @@
+package com.kamishibai.dto;
+
+import java.util.List;
+
+/**
+ * One page of the boards an account can access. {@code page} is zero-based and {@code totalCount}
+ * counts the boards on all pages.
+ */
+public class BoardSummaryPage {
+    private List<BoardSummary> boards;
+    private int page;
+    private int size;
+    private long totalCount;
+
+    public BoardSummaryPage(List<BoardSummary> boards, int page, int size, long totalCount) {
+        this.boards = boards;
+        this.page = page;
+        this.size = size;
+        this.totalCount = totalCount;
+    }
+
+    // Getters
+    public List<BoardSummary> getBoards() {
+        return boards;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+}
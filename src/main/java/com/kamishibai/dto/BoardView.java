@@ -0,0 +1,35 @@
+package com.kamishibai.dto;
+
+import com.kamishibai.model.Board;
+import com.kamishibai.model.Card;
+
+import java.util.List;
+
+/**
+ * Everything the board page renders: the board with its owner loaded, and its cards in
+ * position order, split by effective state.
+ */
+public class BoardView {
+    private Board board;
+    private List<Card> redCards;
+    private List<Card> greenCards;
+
+    public BoardView(Board board, List<Card> redCards, List<Card> greenCards) {
+        this.board = board;
+        this.redCards = redCards;
+        this.greenCards = greenCards;
+    }
+
+    // Getters
+    public Board getBoard() {
+        return board;
+    }
+
+    public List<Card> getRedCards() {
+        return redCards;
+    }
+
+    public List<Card> getGreenCards() {
+        return greenCards;
+    }
+}
@@ -0,0 +1,38 @@
+package com.kamishibai.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.kamishibai.model.CardState;
+
+import java.time.LocalDateTime;
+
+public class CardAuditEntry {
+    private Long id;
+    private CardState previousState;
+    private CardState newState;
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private LocalDateTime timestamp;
+
+    public CardAuditEntry(Long id, CardState previousState, CardState newState, LocalDateTime timestamp) {
+        this.id = id;
+        this.previousState = previousState;
+        this.newState = newState;
+        this.timestamp = timestamp;
+    }
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public CardState getPreviousState() {
+        return previousState;
+    }
+
+    public CardState getNewState() {
+        return newState;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+}
@@ -0,0 +1,61 @@
+package com.kamishibai.dto;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * One page of a card's audit history, newest first. {@code nextCursor} is null on the last page;
+ * otherwise it is passed back as {@code cursor} to fetch the entries that follow.
+ */
+public class CardAuditPage {
+    private static final char SEPARATOR = '_';
+
+    private List<CardAuditEntry> entries;
+    private String nextCursor;
+
+    public CardAuditPage(List<CardAuditEntry> entries, String nextCursor) {
+        this.entries = entries;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Encodes the {@code (timestamp, id)} position just after {@code entry}.
+     */
+    public static String cursorAfter(CardAuditEntry entry) {
+        return entry.getTimestamp().toString() + SEPARATOR + entry.getId();
+    }
+
+    public static LocalDateTime cursorTimestamp(String cursor) {
+        try {
+            return LocalDateTime.parse(cursor.substring(0, separatorIndex(cursor)));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid audit cursor");
+        }
+    }
+
+    public static Long cursorId(String cursor) {
+        try {
+            return Long.valueOf(cursor.substring(separatorIndex(cursor) + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid audit cursor");
+        }
+    }
+
+    private static int separatorIndex(String cursor) {
+        int index = cursor.lastIndexOf(SEPARATOR);
+        if (index <= 0) {
+            throw new IllegalArgumentException("Invalid audit cursor");
+        }
+        return index;
+    }
+
+    // Getters
+    public List<CardAuditEntry> getEntries() {
+        return entries;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
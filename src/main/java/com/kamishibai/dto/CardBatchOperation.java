@@ -0,0 +1,90 @@
+package com.kamishibai.dto;
+
+import com.kamishibai.model.CardState;
+
+import java.time.LocalTime;
+
+/**
+ * One operation of a card batch. {@code op} is one of {@link #TOGGLE}, {@link #SET_STATE} (uses
+ * {@code state}), {@link #MOVE} (uses {@code position}) or {@link #EDIT} (applies whichever of
+ * {@code title}, {@code details} and {@code resetTime} are given).
+ */
+public class CardBatchOperation {
+    public static final String TOGGLE = "toggle";
+    public static final String SET_STATE = "set-state";
+    public static final String MOVE = "move";
+    public static final String EDIT = "edit";
+
+    private String op;
+    private Long cardId;
+    private CardState state;
+    private Integer position;
+    private String title;
+    private String details;
+    private LocalTime resetTime;
+
+    public CardBatchOperation() {
+    }
+
+    public CardBatchOperation(String op, Long cardId) {
+        this.op = op;
+        this.cardId = cardId;
+    }
+
+    // Getters and Setters
+    public String getOp() {
+        return op;
+    }
+
+    public void setOp(String op) {
+        this.op = op;
+    }
+
+    public Long getCardId() {
+        return cardId;
+    }
+
+    public void setCardId(Long cardId) {
+        this.cardId = cardId;
+    }
+
+    public CardState getState() {
+        return state;
+    }
+
+    public void setState(CardState state) {
+        this.state = state;
+    }
+
+    public Integer getPosition() {
+        return position;
+    }
+
+    public void setPosition(Integer position) {
+        this.position = position;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getDetails() {
+        return details;
+    }
+
+    public void setDetails(String details) {
+        this.details = details;
+    }
+
+    public LocalTime getResetTime() {
+        return resetTime;
+    }
+
+    public void setResetTime(LocalTime resetTime) {
+        this.resetTime = resetTime;
+    }
+}
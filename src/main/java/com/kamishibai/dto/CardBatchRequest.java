@@ -0,0 +1,23 @@
+package com.kamishibai.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public class CardBatchRequest {
+    public static final int MAX_OPERATIONS = 500;
+
+    @NotEmpty(message = "At least one operation is required")
+    @Size(max = MAX_OPERATIONS, message = "A batch cannot hold more than " + MAX_OPERATIONS + " operations")
+    private List<CardBatchOperation> operations;
+
+    // Getters and Setters
+    public List<CardBatchOperation> getOperations() {
+        return operations;
+    }
+
+    public void setOperations(List<CardBatchOperation> operations) {
+        this.operations = operations;
+    }
+}
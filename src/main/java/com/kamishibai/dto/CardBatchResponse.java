@@ -0,0 +1,25 @@
+package com.kamishibai.dto;
+
+import java.util.List;
+
+/**
+ * The per-operation results of a card batch, and the board's change sequence after it.
+ */
+public class CardBatchResponse {
+    private long changeSeq;
+    private List<CardBatchResult> results;
+
+    public CardBatchResponse(long changeSeq, List<CardBatchResult> results) {
+        this.changeSeq = changeSeq;
+        this.results = results;
+    }
+
+    // Getters
+    public long getChangeSeq() {
+        return changeSeq;
+    }
+
+    public List<CardBatchResult> getResults() {
+        return results;
+    }
+}
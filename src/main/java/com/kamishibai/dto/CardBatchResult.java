@@ -0,0 +1,64 @@
+package com.kamishibai.dto;
+
+import com.kamishibai.model.CardState;
+
+/**
+ * The outcome of one batch operation, at the same {@code index} as in the request. {@code status} is
+ * {@link #OK}, {@link #NOT_FOUND} when the card is not on the board, or {@link #INVALID} when the
+ * operation is malformed, with the reason in {@code message}. On success {@code state} and
+ * {@code position} are the card's values after the operation.
+ */
+public class CardBatchResult {
+    public static final String OK = "ok";
+    public static final String NOT_FOUND = "not-found";
+    public static final String INVALID = "invalid";
+
+    private int index;
+    private Long cardId;
+    private String status;
+    private CardState state;
+    private Integer position;
+    private String message;
+
+    public CardBatchResult(int index, Long cardId, String status, CardState state, Integer position, String message) {
+        this.index = index;
+        this.cardId = cardId;
+        this.status = status;
+        this.state = state;
+        this.position = position;
+        this.message = message;
+    }
+
+    public static CardBatchResult ok(int index, Long cardId, CardState state, Integer position) {
+        return new CardBatchResult(index, cardId, OK, state, position, null);
+    }
+
+    public static CardBatchResult failed(int index, Long cardId, String status, String message) {
+        return new CardBatchResult(index, cardId, status, null, null, message);
+    }
+
+    // Getters
+    public int getIndex() {
+        return index;
+    }
+
+    public Long getCardId() {
+        return cardId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public CardState getState() {
+        return state;
+    }
+
+    public Integer getPosition() {
+        return position;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
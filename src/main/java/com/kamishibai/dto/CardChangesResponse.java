@@ -0,0 +1,40 @@
+package com.kamishibai.dto;
+
+import java.util.List;
+
+/**
+ * The cards on a board that changed after a client's last known change sequence. {@code changeSeq}
+ * is the sequence to ask from next time. {@code full} is set when the requested sequence could not
+ * be answered as a delta (it is ahead of the board, for example after a restore) and {@code cards}
+ * holds the whole board instead.
+ */
+public class CardChangesResponse {
+    private Long boardId;
+    private long changeSeq;
+    private boolean full;
+    private List<CardListResponse> cards;
+
+    public CardChangesResponse(Long boardId, long changeSeq, boolean full, List<CardListResponse> cards) {
+        this.boardId = boardId;
+        this.changeSeq = changeSeq;
+        this.full = full;
+        this.cards = cards;
+    }
+
+    // Getters
+    public Long getBoardId() {
+        return boardId;
+    }
+
+    public long getChangeSeq() {
+        return changeSeq;
+    }
+
+    public boolean isFull() {
+        return full;
+    }
+
+    public List<CardListResponse> getCards() {
+        return cards;
+    }
+}
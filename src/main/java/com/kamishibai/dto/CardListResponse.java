@@ -12,6 +12,7 @@ public class CardListResponse {
     private CardState state;
     private LocalTime resetTime;
     private Integer position;
+    private long version;
 
     public CardListResponse(Card card) {
         this.id = card.getId();
@@ -20,6 +21,7 @@ public class CardListResponse {
         this.state = card.getState();
         this.resetTime = card.getResetTime();
         this.position = card.getPosition();
+        this.version = card.getVersion();
     }
 
     // Getters
@@ -46,4 +48,8 @@ public class CardListResponse {
     public Integer getPosition() {
         return position;
     }
+
+    public long getVersion() {
+        return version;
+    }
 }
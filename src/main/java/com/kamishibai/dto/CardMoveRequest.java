@@ -0,0 +1,17 @@
+package com.kamishibai.dto;
+
+/**
+ * Where to drop a dragged card: just after {@code afterCardId}, or at the top of the board when it is null.
+ */
+public class CardMoveRequest {
+    private Long afterCardId;
+
+    // Getters and Setters
+    public Long getAfterCardId() {
+        return afterCardId;
+    }
+
+    public void setAfterCardId(Long afterCardId) {
+        this.afterCardId = afterCardId;
+    }
+}
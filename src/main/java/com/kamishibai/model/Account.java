@@ -4,6 +4,8 @@ import com.fasterxml.jackson.annotation.JsonIdentityInfo;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+
 import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Set;
@@ -16,7 +18,9 @@ import java.util.Set;
 )
 public class Account {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "account_ids")
+    @TableGenerator(name = "account_ids", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "accounts", allocationSize = 50)
     private Long id;
 
     @Column(unique = true, nullable = false)
@@ -29,12 +33,22 @@ public class Account {
     @Column(name = "password_hash", nullable = false)
     private String passwordHash;
 
+    // Listed through /api/boards; serializing them here would load every board the account can see
+    @JsonIgnore
     @OneToMany(mappedBy = "owner", cascade = CascadeType.ALL, orphanRemoval = true)
     private Set<Board> ownedBoards = new HashSet<>();
 
+    @JsonIgnore
     @ManyToMany(mappedBy = "sharedWith")
     private Set<Board> sharedBoards = new HashSet<>();
 
+    // Bumped on every update; tells cached copies of the account which of two is newer
+    @JsonIgnore
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long version;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
@@ -117,6 +131,25 @@ public class Account {
         this.updatedAt = updatedAt;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns a copy of the account's columns, without its boards or password hash, that is safe to
+     * keep beyond the persistence context and share between threads.
+     */
+    public Account snapshot() {
+        Account copy = new Account();
+        copy.id = id;
+        copy.email = email;
+        copy.name = name;
+        copy.version = version;
+        copy.createdAt = createdAt;
+        copy.updatedAt = updatedAt;
+        return copy;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonIdentityInfo;
 import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -20,7 +21,9 @@ import java.util.Set;
 )
 public class Board {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "board_ids")
+    @TableGenerator(name = "board_ids", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "boards", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -37,7 +40,8 @@ public class Board {
     @JoinTable(
         name = "board_shared_users",
         joinColumns = @JoinColumn(name = "board_id"),
-        inverseJoinColumns = @JoinColumn(name = "account_id")
+        inverseJoinColumns = @JoinColumn(name = "account_id"),
+        indexes = @Index(name = "idx_board_shared_users_account", columnList = "account_id, board_id")
     )
     private Set<Account> sharedWith = new HashSet<>();
 
@@ -53,6 +57,17 @@ public class Board {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // Bumped once per card change on the board; only ever written by bulk updates, never by entity saves
+    @ColumnDefault("0")
+    @Column(name = "change_seq", nullable = false, insertable = false, updatable = false)
+    private long changeSeq;
+
+    // Optimistic lock for edits to the board itself (name, description, shares), not its cards
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long version;
+
     // Getters and Setters
     public Long getId() {
         return id;
@@ -110,6 +125,14 @@ public class Board {
         return updatedAt;
     }
 
+    public long getChangeSeq() {
+        return changeSeq;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
     @Override
     public String toString() {
         return "Board{" +
@@ -1,15 +1,24 @@
 package com.kamishibai.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.List;
 
 @Entity
-@Table(name = "cards")
+@Table(name = "cards", indexes = {
+    @Index(name = "idx_cards_board_change_seq", columnList = "board_id, change_seq"),
+    @Index(name = "idx_cards_board_position", columnList = "board_id, position")
+})
 public class Card {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Ids come in blocks of 50 from id_generators, so inserts can be batched (IDENTITY would run each
+    // insert on its own to read the key back)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "card_ids")
+    @TableGenerator(name = "card_ids", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "cards", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -18,6 +27,7 @@ public class Card {
     @Column(columnDefinition = "TEXT")
     private String details;
 
+    // Sparse rank within the board: gaps are left between cards so a move rewrites only the moved card
     @Column(nullable = false)
     private Integer position;
 
@@ -35,12 +45,26 @@ public class Card {
     @Column(name = "image_url")
     private String imageUrl;
 
+    @Column(name = "last_state_change", nullable = false)
+    private LocalDateTime lastStateChange;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // The board's change sequence as of this card's last change; stamped by bulk update only
+    @ColumnDefault("0")
+    @Column(name = "change_seq", nullable = false, insertable = false, updatable = false)
+    private long changeSeq;
+
+    // Optimistic lock for edits; the bulk toggle and reset updates bump it as well
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long version;
+
     @OneToMany(mappedBy = "card", cascade = CascadeType.ALL)
     private List<CardAudit> auditLog;
 
@@ -48,6 +72,9 @@ public class Card {
     protected void onCreate() {
         createdAt = LocalDateTime.now();
         updatedAt = LocalDateTime.now();
+        if (lastStateChange == null) {
+            lastStateChange = createdAt;
+        }
     }
 
     @PreUpdate
@@ -120,6 +147,14 @@ public class Card {
         this.imageUrl = imageUrl;
     }
 
+    public LocalDateTime getLastStateChange() {
+        return lastStateChange;
+    }
+
+    public void setLastStateChange(LocalDateTime lastStateChange) {
+        this.lastStateChange = lastStateChange;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -128,6 +163,14 @@ public class Card {
         return updatedAt;
     }
 
+    public long getChangeSeq() {
+        return changeSeq;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
     public List<CardAudit> getAuditLog() {
         return auditLog;
     }
@@ -4,14 +4,20 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "card_audit_log")
+@Table(name = "card_audit_log", indexes = {
+        @Index(name = "idx_card_audit_card_timestamp_id", columnList = "card_id, timestamp DESC, id DESC"),
+        @Index(name = "idx_card_audit_timestamp", columnList = "timestamp")
+})
 public class CardAudit {
     @Id
+    // Audit rows are only inserted through batched JDBC (AuditLogWriter) and INSERT ... SELECT, never
+    // persisted, so they keep the auto-increment key the partitioned MySQL table is built around
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "card_id", nullable = false)
+    // No constraint: the partitioned MySQL table cannot carry foreign keys (see db/vendor/mysql/V6)
+    @JoinColumn(name = "card_id", nullable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private Card card;
 
     @Enumerated(EnumType.STRING)
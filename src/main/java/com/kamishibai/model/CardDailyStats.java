@@ -0,0 +1,82 @@
+package com.kamishibai.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+
+/**
+ * Per-card figures for one calendar day, compacted from {@code card_audit_log} once the day is over.
+ */
+@Entity
+@Table(name = "card_daily_stats", indexes = @Index(name = "idx_card_daily_stats_date", columnList = "stat_date"))
+@IdClass(CardDailyStatsId.class)
+public class CardDailyStats {
+    @Id
+    @Column(name = "card_id")
+    private Long cardId;
+
+    @Id
+    @Column(name = "stat_date")
+    private LocalDate statDate;
+
+    @Column(name = "green_seconds", nullable = false)
+    private int greenSeconds;
+
+    @Column(name = "toggle_count", nullable = false)
+    private int toggleCount;
+
+    @Column(name = "red_at_reset", nullable = false)
+    private boolean redAtReset;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "end_state", nullable = false)
+    private CardState endState;
+
+    // Getters and Setters
+    public Long getCardId() {
+        return cardId;
+    }
+
+    public void setCardId(Long cardId) {
+        this.cardId = cardId;
+    }
+
+    public LocalDate getStatDate() {
+        return statDate;
+    }
+
+    public void setStatDate(LocalDate statDate) {
+        this.statDate = statDate;
+    }
+
+    public int getGreenSeconds() {
+        return greenSeconds;
+    }
+
+    public void setGreenSeconds(int greenSeconds) {
+        this.greenSeconds = greenSeconds;
+    }
+
+    public int getToggleCount() {
+        return toggleCount;
+    }
+
+    public void setToggleCount(int toggleCount) {
+        this.toggleCount = toggleCount;
+    }
+
+    public boolean isRedAtReset() {
+        return redAtReset;
+    }
+
+    public void setRedAtReset(boolean redAtReset) {
+        this.redAtReset = redAtReset;
+    }
+
+    public CardState getEndState() {
+        return endState;
+    }
+
+    public void setEndState(CardState endState) {
+        this.endState = endState;
+    }
+}
@@ -0,0 +1,32 @@
+package com.kamishibai.model;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+public class CardDailyStatsId implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private Long cardId;
+    private LocalDate statDate;
+
+    public CardDailyStatsId() {
+    }
+
+    public CardDailyStatsId(Long cardId, LocalDate statDate) {
+        this.cardId = cardId;
+        this.statDate = statDate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CardDailyStatsId other)) return false;
+        return Objects.equals(cardId, other.cardId) && Objects.equals(statDate, other.statDate);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(cardId, statDate);
+    }
+}
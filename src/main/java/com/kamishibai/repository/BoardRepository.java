@@ -1,16 +1,62 @@
 package com.kamishibai.repository;
 
-import com.kamishibai.model.Account;
 import com.kamishibai.model.Board;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface BoardRepository extends JpaRepository<Board, Long> {
-    @Query("SELECT b FROM Board b WHERE b.owner = :owner OR :user MEMBER OF b.sharedWith")
-    List<Board> findByOwnerOrSharedWith(@Param("owner") Account owner, @Param("user") Account user);
+public interface BoardRepository extends JpaRepository<Board, Long>, BoardRepositoryCustom {
+
+    /**
+     * Loads the board with its owner if the board is owned by or shared with the account. The share is an
+     * {@code EXISTS} probe, so the shared accounts are neither loaded nor counted.
+     */
+    @Query("SELECT b FROM Board b JOIN FETCH b.owner o WHERE b.id = :boardId AND (o.id = :accountId " +
+           "OR EXISTS (SELECT 1 FROM Board sb JOIN sb.sharedWith s WHERE sb.id = b.id AND s.id = :accountId))")
+    Optional<Board> findAccessibleById(@Param("boardId") Long boardId, @Param("accountId") Long accountId);
+
+    /**
+     * Bumps the board's change sequence. The row lock taken here is held until commit, so concurrent
+     * changes to one board are numbered in commit order.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Board b SET b.changeSeq = b.changeSeq + 1 WHERE b.id = :boardId")
+    int incrementChangeSeq(@Param("boardId") Long boardId);
+
+    /**
+     * Bumps the change sequence of every board owned by or shared with the account, for changes to the
+     * account that show up in those boards' representations.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE boards SET change_seq = change_seq + 1 WHERE owner_id = :accountId " +
+                   "OR id IN (SELECT s.board_id FROM board_shared_users s WHERE s.account_id = :accountId)",
+           nativeQuery = true)
+    int incrementChangeSeqForAccount(@Param("accountId") Long accountId);
+
+    @Query("SELECT b.changeSeq FROM Board b WHERE b.id = :boardId")
+    Long findChangeSeq(@Param("boardId") Long boardId);
+
+    /**
+     * Returns the board's change sequence if the board is owned by or shared with the account, or null
+     * otherwise. Checks access and reads the sequence in one primary-key lookup.
+     */
+    @Query(value = "SELECT b.change_seq FROM boards b WHERE b.id = :boardId AND (b.owner_id = :accountId " +
+                   "OR EXISTS (SELECT 1 FROM board_shared_users s WHERE s.board_id = b.id AND s.account_id = :accountId))",
+           nativeQuery = true)
+    Long findAccessibleChangeSeq(@Param("boardId") Long boardId, @Param("accountId") Long accountId);
+
+    /**
+     * Returns the board's owner id if the board is owned by or shared with the account, or null otherwise.
+     * The share is probed through the {@code board_shared_users} primary key, so the cost does not depend
+     * on how many accounts the board is shared with.
+     */
+    @Query(value = "SELECT b.owner_id FROM boards b WHERE b.id = :boardId AND (b.owner_id = :accountId " +
+                   "OR EXISTS (SELECT 1 FROM board_shared_users s WHERE s.board_id = b.id AND s.account_id = :accountId))",
+           nativeQuery = true)
+    Long findAccessibleOwnerId(@Param("boardId") Long boardId, @Param("accountId") Long accountId);
 }
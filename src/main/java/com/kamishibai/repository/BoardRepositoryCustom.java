@@ -0,0 +1,23 @@
+package com.kamishibai.repository;
+
+import com.kamishibai.dto.BoardSummary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+public interface BoardRepositoryCustom {
+    /**
+     * Returns every board the account owns or has been shared, ordered by id.
+     */
+    List<BoardSummary> findAccessibleBoardSummaries(Long accountId);
+
+    /**
+     * Returns one page of the boards the account owns or has been shared, with the page and its total
+     * read by a single query. Boards can be sorted by any of {@link BoardSummary#SORT_PROPERTIES}; ties
+     * are broken by id.
+     *
+     * @throws IllegalArgumentException if the page is sorted by any other property
+     */
+    Page<BoardSummary> findAccessibleBoardSummaries(Long accountId, Pageable pageable);
+}
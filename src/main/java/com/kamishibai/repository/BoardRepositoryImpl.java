@@ -0,0 +1,116 @@
+package com.kamishibai.repository;
+
+import com.kamishibai.dto.BoardSummary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spring Data fragment for {@link BoardRepository}. The owned and shared branches are separate
+ * {@code UNION} arms so each is answered from its own index ({@code boards.owner_id} and
+ * {@code board_shared_users(account_id, board_id)}) instead of an OR over a membership subquery.
+ */
+class BoardRepositoryImpl implements BoardRepositoryCustom {
+    private static final String ACCESSIBLE_BOARDS =
+            "FROM (SELECT id AS board_id FROM boards WHERE owner_id = ? " +
+            "      UNION " +
+            "      SELECT board_id FROM board_shared_users WHERE account_id = ?) accessible " +
+            "JOIN boards b ON b.id = accessible.board_id ";
+    private static final String ACCESSIBLE_BOARD_SUMMARIES_SQL =
+            "SELECT b.id, b.name, b.description, b.owner_id, a.name AS owner_name, b.created_at, " +
+            "(SELECT MAX(c.last_state_change) FROM cards c WHERE c.board_id = b.id) AS last_changed_at, " +
+            "(SELECT COUNT(*) FROM board_shared_users s WHERE s.board_id = b.id) AS shared_count, " +
+            "(SELECT COUNT(*) FROM cards c WHERE c.board_id = b.id) AS card_count, " +
+            "(SELECT COUNT(*) FROM cards c WHERE c.board_id = b.id AND c.state = 'GREEN') AS green_card_count " +
+            ACCESSIBLE_BOARDS +
+            "JOIN accounts a ON a.id = b.owner_id ";
+    // Wrapped so that the sort can use the computed columns, with the total computed before LIMIT
+    private static final String ACCESSIBLE_BOARD_SUMMARIES_PAGE_SQL =
+            "SELECT summary.*, COUNT(*) OVER () AS total_count FROM (" + ACCESSIBLE_BOARD_SUMMARIES_SQL + ") summary " +
+            "ORDER BY %s LIMIT ? OFFSET ?";
+
+    // Sort properties accepted from clients, mapped to the columns above; nothing else reaches the SQL
+    private static final Map<String, String> SORT_COLUMNS = Map.of(
+            "id", "id",
+            "name", "name",
+            "ownerName", "owner_name",
+            "createdAt", "created_at",
+            "lastChangedAt", "last_changed_at",
+            "sharedCount", "shared_count",
+            "cardCount", "card_count",
+            "greenCardCount", "green_card_count",
+            "redCardCount", "card_count - green_card_count");
+
+    private static final RowMapper<BoardSummary> SUMMARY_MAPPER = (rs, rowNum) -> new BoardSummary(
+            rs.getLong("id"),
+            rs.getString("name"),
+            rs.getString("description"),
+            rs.getLong("owner_id"),
+            rs.getString("owner_name"),
+            toLocalDateTime(rs.getTimestamp("created_at")),
+            toLocalDateTime(rs.getTimestamp("last_changed_at")),
+            rs.getLong("shared_count"),
+            rs.getLong("card_count"),
+            rs.getLong("green_card_count"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    BoardRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<BoardSummary> findAccessibleBoardSummaries(Long accountId) {
+        return jdbcTemplate.query(ACCESSIBLE_BOARD_SUMMARIES_SQL + "ORDER BY b.id",
+                SUMMARY_MAPPER, accountId, accountId);
+    }
+
+    @Override
+    public Page<BoardSummary> findAccessibleBoardSummaries(Long accountId, Pageable pageable) {
+        String sql = ACCESSIBLE_BOARD_SUMMARIES_PAGE_SQL.formatted(orderBy(pageable.getSort()));
+        List<BoardSummary> boards = new ArrayList<>();
+        long[] total = {0};
+        jdbcTemplate.query(sql, (ResultSet rs) -> {
+            total[0] = rs.getLong("total_count");
+            boards.add(SUMMARY_MAPPER.mapRow(rs, boards.size()));
+        }, accountId, accountId, pageable.getPageSize(), pageable.getOffset());
+
+        if (boards.isEmpty() && pageable.getOffset() > 0) {
+            // Past the last page there is no row to read the total from
+            total[0] = countAccessibleBoards(accountId);
+        }
+        return new PageImpl<>(boards, pageable, total[0]);
+    }
+
+    private long countAccessibleBoards(Long accountId) {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) " + ACCESSIBLE_BOARDS, Long.class,
+                accountId, accountId);
+        return count != null ? count : 0;
+    }
+
+    private static String orderBy(Sort sort) {
+        StringBuilder orderBy = new StringBuilder();
+        for (Sort.Order order : sort) {
+            String column = SORT_COLUMNS.get(order.getProperty());
+            if (column == null) {
+                throw new IllegalArgumentException("Boards cannot be sorted by " + order.getProperty());
+            }
+            orderBy.append(column).append(order.isAscending() ? " ASC" : " DESC").append(", ");
+        }
+        return orderBy.append("id").toString();
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
@@ -1,11 +1,18 @@
 package com.kamishibai.repository;
 
+import com.kamishibai.dto.CardAuditEntry;
 import com.kamishibai.model.Card;
 import com.kamishibai.model.CardAudit;
 import com.kamishibai.model.CardState;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,4 +21,42 @@ public interface CardAuditRepository extends JpaRepository<CardAudit, Long> {
     Optional<CardAudit> findTopByCardAndNewStateOrderByTimestampDesc(Card card, CardState newState);
     List<CardAudit> findByCardOrderByTimestampDesc(Card card);
     List<CardAudit> findByCardInOrderByTimestampDesc(List<Card> cards);
+
+    /**
+     * Returns {@code [cardId, newState, timestamp]} for every transition in {@code [from, to)}, grouped by card
+     * and in the order they happened.
+     */
+    @Query("SELECT a.card.id, a.newState, a.timestamp FROM CardAudit a " +
+           "WHERE a.timestamp >= :from AND a.timestamp < :to ORDER BY a.card.id, a.timestamp, a.id")
+    List<Object[]> findTransitionsBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("SELECT new com.kamishibai.dto.CardAuditEntry(a.id, a.previousState, a.newState, a.timestamp) " +
+           "FROM CardAudit a WHERE a.card.id = :cardId ORDER BY a.timestamp DESC, a.id DESC")
+    List<CardAuditEntry> findLatestEntries(@Param("cardId") Long cardId, Pageable pageable);
+
+    /**
+     * Returns the entries strictly older than the {@code (timestamp, id)} cursor, seeking on the
+     * {@code (card_id, timestamp, id)} index instead of skipping rows with an offset.
+     */
+    @Query("SELECT new com.kamishibai.dto.CardAuditEntry(a.id, a.previousState, a.newState, a.timestamp) " +
+           "FROM CardAudit a WHERE a.card.id = :cardId " +
+           "AND (a.timestamp < :timestamp OR (a.timestamp = :timestamp AND a.id < :id)) " +
+           "ORDER BY a.timestamp DESC, a.id DESC")
+    List<CardAuditEntry> findEntriesBefore(@Param("cardId") Long cardId,
+                                           @Param("timestamp") LocalDateTime timestamp,
+                                           @Param("id") Long id,
+                                           Pageable pageable);
+
+    /**
+     * Writes a GREEN to RED audit entry for every listed card that is still GREEN. Must run before
+     * {@link CardRepository#resetGreenCards} in the same transaction so it sees the same rows.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO card_audit_log (card_id, previous_state, new_state, timestamp) " +
+                   "SELECT c.id, 'GREEN', 'RED', :timestamp FROM cards c " +
+                   "WHERE c.state = 'GREEN' AND c.last_state_change < :resetAt AND c.id IN (:cardIds)",
+           nativeQuery = true)
+    int insertResetAudits(@Param("cardIds") Collection<Long> cardIds,
+                          @Param("resetAt") LocalDateTime resetAt,
+                          @Param("timestamp") LocalDateTime timestamp);
 }
@@ -0,0 +1,35 @@
+package com.kamishibai.repository;
+
+import com.kamishibai.model.CardDailyStats;
+import com.kamishibai.model.CardDailyStatsId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface CardDailyStatsRepository extends JpaRepository<CardDailyStats, CardDailyStatsId> {
+    List<CardDailyStats> findByCardIdAndStatDateBetweenOrderByStatDate(Long cardId, LocalDate from, LocalDate to);
+    List<CardDailyStats> findByStatDate(LocalDate statDate);
+
+    /**
+     * The high-water mark of the compaction job: every day up to and including this one has been compacted.
+     */
+    @Query("SELECT MAX(s.statDate) FROM CardDailyStats s")
+    LocalDate findLastCompactedDate();
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM CardDailyStats s WHERE s.statDate = :statDate")
+    int deleteByStatDate(@Param("statDate") LocalDate statDate);
+
+    /**
+     * Removes the stats of every card on the board; they reference the cards, which go with the board.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM CardDailyStats s WHERE s.cardId IN (SELECT c.id FROM Card c WHERE c.board.id = :boardId)")
+    int deleteByBoardId(@Param("boardId") Long boardId);
+}
@@ -3,16 +3,133 @@ package com.kamishibai.repository;
 import com.kamishibai.model.Board;
 import com.kamishibai.model.Card;
 import com.kamishibai.model.CardState;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CardRepository extends JpaRepository<Card, Long> {
     List<Card> findByBoardIdOrderByPosition(Long boardId);
+    List<Card> findByBoardIdOrderByPositionAscIdAsc(Long boardId);
+    long countByBoardIdAndPositionAndIdNot(Long boardId, Integer position, Long id);
+    List<Card> findByBoardIdAndChangeSeqGreaterThanOrderByPosition(Long boardId, long changeSeq);
     Optional<Card> findByIdAndBoard(Long id, Board board);
     List<Card> findByStateAndResetTimeLessThanEqual(CardState state, LocalTime resetTime);
+
+    /**
+     * For every card in {@code state} that has a reset time, returns {@code [cardId, resetTime, lastStateChange]}.
+     */
+    @Query("SELECT c.id, c.resetTime, c.lastStateChange FROM Card c WHERE c.state = :state AND c.resetTime IS NOT NULL")
+    List<Object[]> findResetSchedule(@Param("state") CardState state);
+
+    /**
+     * For every card created before {@code before}, returns {@code [cardId, resetTime, createdAt]} ordered by id.
+     */
+    @Query("SELECT c.id, c.resetTime, c.createdAt FROM Card c WHERE c.createdAt < :before ORDER BY c.id")
+    List<Object[]> findCreatedBefore(@Param("before") LocalDateTime before);
+
+    @Query("SELECT MIN(c.createdAt) FROM Card c")
+    LocalDateTime findEarliestCreatedAt();
+
+    /**
+     * Flips every listed card that went GREEN before {@code resetAt} and is still GREEN to RED in a single
+     * statement, and returns the number of rows changed.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Card c SET c.state = com.kamishibai.model.CardState.RED, c.lastStateChange = :now, c.updatedAt = :now, " +
+           "c.version = c.version + 1 " +
+           "WHERE c.state = com.kamishibai.model.CardState.GREEN AND c.lastStateChange < :resetAt AND c.id IN :cardIds")
+    int resetGreenCards(@Param("cardIds") Collection<Long> cardIds,
+                        @Param("resetAt") LocalDateTime resetAt,
+                        @Param("now") LocalDateTime now);
+
+    /**
+     * Of the listed cards, returns {@code [cardId, boardId]} for those {@link #resetGreenCards} would flip,
+     * in id order, and locks them until the transaction ends so the reset changes exactly these rows.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c.id, c.board.id FROM Card c WHERE c.state = com.kamishibai.model.CardState.GREEN " +
+           "AND c.lastStateChange < :resetAt AND c.id IN :cardIds ORDER BY c.id")
+    List<Object[]> findDueForReset(@Param("cardIds") Collection<Long> cardIds,
+                                   @Param("resetAt") LocalDateTime resetAt);
+
+    /**
+     * Returns {@code [state, resetTime, lastStateChange]} for the card if it belongs to the board, without
+     * loading the entity.
+     */
+    @Query("SELECT c.state, c.resetTime, c.lastStateChange FROM Card c WHERE c.id = :cardId AND c.board.id = :boardId")
+    List<Object[]> findToggleSnapshot(@Param("cardId") Long cardId, @Param("boardId") Long boardId);
+
+    /**
+     * Like {@link #findToggleSnapshot}, but as a locking read: it returns the latest committed row even
+     * where a plain read would repeat the transaction's snapshot (InnoDB's REPEATABLE READ), and holds the
+     * row until the transaction ends.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c.state, c.resetTime, c.lastStateChange FROM Card c WHERE c.id = :cardId AND c.board.id = :boardId")
+    List<Object[]> findToggleSnapshotForUpdate(@Param("cardId") Long cardId, @Param("boardId") Long boardId);
+
+    /**
+     * Moves the card to {@code newState} only if it still holds {@code expectedState} as of
+     * {@code expectedLastStateChange}, belongs to the board, and the board is owned by or shared with the
+     * account. Returns 1 on success and 0 if any of those conditions failed, so concurrent toggles cannot
+     * overwrite each other.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE cards SET state = :newState, last_state_change = :now, updated_at = :now, " +
+                   "version = version + 1 " +
+                   "WHERE id = :cardId AND board_id = :boardId AND state = :expectedState " +
+                   "AND last_state_change = :expectedLastStateChange " +
+                   "AND EXISTS (SELECT 1 FROM boards b WHERE b.id = :boardId AND (b.owner_id = :accountId " +
+                   "OR EXISTS (SELECT 1 FROM board_shared_users s WHERE s.board_id = b.id AND s.account_id = :accountId)))",
+           nativeQuery = true)
+    int compareAndSetState(@Param("cardId") Long cardId,
+                           @Param("boardId") Long boardId,
+                           @Param("accountId") Long accountId,
+                           @Param("expectedState") String expectedState,
+                           @Param("expectedLastStateChange") LocalDateTime expectedLastStateChange,
+                           @Param("newState") String newState,
+                           @Param("now") LocalDateTime now);
+
+    @Query("SELECT MAX(c.position) FROM Card c WHERE c.board.id = :boardId")
+    Integer findLastPosition(@Param("boardId") Long boardId);
+
+    /**
+     * Returns the lowest position on the board ignoring {@code excludedId}, or null if there is no other card.
+     */
+    @Query("SELECT MIN(c.position) FROM Card c WHERE c.board.id = :boardId AND c.id <> :excludedId")
+    Integer findFirstPosition(@Param("boardId") Long boardId, @Param("excludedId") Long excludedId);
+
+    /**
+     * Returns the lowest position above {@code position} on the board ignoring {@code excludedId}, or null if
+     * there is none. Answered from the {@code (board_id, position)} index.
+     */
+    @Query("SELECT MIN(c.position) FROM Card c WHERE c.board.id = :boardId AND c.position > :position AND c.id <> :excludedId")
+    Integer findPositionAfter(@Param("boardId") Long boardId, @Param("position") Integer position,
+                              @Param("excludedId") Long excludedId);
+
+    /**
+     * Loads the listed cards that belong to the board and locks their rows until commit, in id order so
+     * that two batches touching the same cards cannot deadlock.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Card c WHERE c.board.id = :boardId AND c.id IN :cardIds ORDER BY c.id")
+    List<Card> findForUpdate(@Param("boardId") Long boardId, @Param("cardIds") Collection<Long> cardIds);
+
+    /**
+     * Records {@code changeSeq}, a freshly bumped board change sequence, as the listed cards' latest change.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Card c SET c.changeSeq = :changeSeq WHERE c.id IN :cardIds")
+    int stampChangeSeq(@Param("cardIds") Collection<Long> cardIds, @Param("changeSeq") long changeSeq);
 }
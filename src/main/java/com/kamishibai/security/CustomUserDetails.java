@@ -1,41 +1,71 @@
 package com.kamishibai.security;
 
 import com.kamishibai.model.Account;
+import org.springframework.security.core.CredentialsContainer;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.core.userdetails.UserDetails;
 
-import java.util.Collection;
-import java.util.Collections;
+import java.util.List;
 
-public class CustomUserDetails implements UserDetails {
-    private final Account account;
+/**
+ * The signed-in account as kept in the session: its id, email, name and roles, copied at login. Request
+ * handlers work from {@link #getId()} instead of reloading the account; the few that need the full entity
+ * go through {@code AccountService#getAccount}, which is cached. The password hash is only held until
+ * authentication completes.
+ */
+public class CustomUserDetails implements UserDetails, CredentialsContainer {
+    private static final long serialVersionUID = 1L;
+    private static final List<String> USER_ROLES = List.of("ROLE_USER");
+
+    private final Long id;
+    private final String email;
+    private final String name;
+    private final List<String> roles;
+    private String passwordHash;
 
     public CustomUserDetails(Account account) {
-        this.account = account;
+        this.id = account.getId();
+        this.email = account.getEmail();
+        this.name = account.getName();
+        this.roles = USER_ROLES;
+        this.passwordHash = account.getPasswordHash();
     }
 
     public Long getId() {
-        return account.getId();
+        return id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getName() {
+        return name;
     }
 
-    public Account getAccount() {
-        return account;
+    public List<String> getRoles() {
+        return roles;
     }
 
     @Override
-    public Collection<? extends GrantedAuthority> getAuthorities() {
-        return Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER"));
+    public List<GrantedAuthority> getAuthorities() {
+        return AuthorityUtils.createAuthorityList(roles);
     }
 
     @Override
     public String getPassword() {
-        return account.getPasswordHash();
+        return passwordHash;
     }
 
     @Override
     public String getUsername() {
-        return account.getEmail();
+        return email;
+    }
+
+    @Override
+    public void eraseCredentials() {
+        passwordHash = null;
     }
 
     @Override
@@ -1,22 +1,56 @@
 package com.kamishibai.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.kamishibai.dto.AccountRequest;
 import com.kamishibai.model.Account;
 import com.kamishibai.repository.AccountRepository;
+import com.kamishibai.repository.BoardRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Clock;
+import java.time.Duration;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Accounts by id are served from a per-node cache of {@link Account#snapshot() snapshots}, bounded by
+ * {@code app.accounts.cache-size} and kept for {@code app.accounts.cache-ttl-ms}. A cached snapshot is
+ * only ever replaced by one with a higher version, so a read that raced an update cannot put the old
+ * account back. Most requests need no account at all: the session principal carries its id, email and
+ * name.
+ */
 @Service
 public class AccountService {
+    static final String CACHE_NAME = "accounts";
+
     private final AccountRepository accountRepository;
+    private final BoardRepository boardRepository;
     private final PasswordEncoder passwordEncoder;
+    private final Cache<Long, Account> cache;
 
-    public AccountService(AccountRepository accountRepository, PasswordEncoder passwordEncoder) {
+    public AccountService(AccountRepository accountRepository, BoardRepository boardRepository,
+                          PasswordEncoder passwordEncoder,
+                          @Value("${app.accounts.cache-size:10000}") int cacheSize,
+                          @Value("${app.accounts.cache-ttl-ms:60000}") long ttlMillis,
+                          Clock clock, MeterRegistry meterRegistry) {
         this.accountRepository = accountRepository;
+        this.boardRepository = boardRepository;
         this.passwordEncoder = passwordEncoder;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMillis))
+                .ticker(() -> TimeUnit.MILLISECONDS.toNanos(clock.millis()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
     }
 
     @Transactional
@@ -33,10 +67,25 @@ public class AccountService {
         return accountRepository.save(account);
     }
 
-    @Transactional(readOnly = true)
+    /**
+     * Returns the cached snapshot of the account, loading it on a miss. The snapshot is shared, so treat
+     * it as read-only. Not transactional, so a hit does not take a connection.
+     */
     public Account getAccount(Long id) {
-        return accountRepository.findById(id)
+        Account cached = cache.getIfPresent(id);
+        if (cached != null) {
+            return cached;
+        }
+        Account account = accountRepository.findById(id)
             .orElseThrow(() -> new IllegalArgumentException("Account not found"));
+        return remember(account.snapshot());
+    }
+
+    /**
+     * Returns a reference to the account for setting associations, without reading it.
+     */
+    public Account getAccountReference(Long id) {
+        return accountRepository.getReferenceById(id);
     }
 
     @Transactional(readOnly = true)
@@ -46,7 +95,8 @@ public class AccountService {
 
     @Transactional
     public Account updateAccount(Long id, AccountRequest request) {
-        Account account = getAccount(id);
+        Account account = accountRepository.findById(id)
+            .orElseThrow(() -> new IllegalArgumentException("Account not found"));
 
         // Check if new email is already taken by another account
         accountRepository.findByEmail(request.getEmail())
@@ -61,12 +111,43 @@ public class AccountService {
             account.setPasswordHash(passwordEncoder.encode(request.getPassword()));
         }
 
-        return accountRepository.save(account);
+        Account updatedAccount = accountRepository.save(account);
+        // Board responses embed the owner's and members' names and emails
+        boardRepository.incrementChangeSeqForAccount(id);
+        // The version is bumped when the transaction flushes, so the new snapshot is taken after commit
+        cache.invalidate(id);
+        afterCommit(() -> remember(updatedAccount.snapshot()));
+        return updatedAccount;
     }
 
     @Transactional
     public void deleteAccount(Long id) {
-        Account account = getAccount(id);
+        Account account = accountRepository.findById(id)
+            .orElseThrow(() -> new IllegalArgumentException("Account not found"));
         accountRepository.delete(account);
+        cache.invalidate(id);
+        afterCommit(() -> cache.invalidate(id));
+    }
+
+    long cacheSize() {
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+
+    private Account remember(Account snapshot) {
+        return cache.asMap().merge(snapshot.getId(), snapshot,
+            (cached, loaded) -> loaded.getVersion() >= cached.getVersion() ? loaded : cached);
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 }
@@ -0,0 +1,358 @@
+package com.kamishibai.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.kamishibai.dto.CardAuditEntry;
+import com.kamishibai.model.CardState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cold storage for audit rows that have aged out of {@code card_audit_log}. Each month is exported to
+ * one or more gzip-compressed NDJSON files named {@code card_audit_log-YYYY-MM[.N].ndjson.gz}; a
+ * second part is written if a month is exported again after an interrupted purge, and readers
+ * de-duplicate by audit id.
+ * <p>
+ * Within a file each card's rows form a gzip member of their own, in card id order, and a
+ * {@code .idx} file next to it lists where each card's member starts and how long it is, as
+ * fixed-width records sorted by card id. Reading a card's history therefore binary-searches the index
+ * and decompresses only that card's rows. Files exported before indexes existed have no {@code .idx}
+ * and are still read in full.
+ */
+@Component
+public class AuditArchive {
+    private static final Pattern FILE_NAME = Pattern.compile("card_audit_log-(\\d{4}-\\d{2})(\\.\\d+)?\\.ndjson\\.gz");
+    private static final String DATA_SUFFIX = ".ndjson.gz";
+    private static final String INDEX_SUFFIX = ".idx";
+    // Card id, offset and length of the card's gzip member
+    private static final int INDEX_RECORD_BYTES = Long.BYTES + Long.BYTES + Integer.BYTES;
+    private static final int EXPORT_CHUNK_SIZE = 5000;
+    private static final Comparator<CardAuditEntry> NEWEST_FIRST =
+            Comparator.comparing(CardAuditEntry::getTimestamp).thenComparing(CardAuditEntry::getId).reversed();
+
+    private final Logger logger = LoggerFactory.getLogger(AuditArchive.class);
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    // The archive's files by month, re-listed only when the directory changes
+    private volatile Listing listing;
+
+    public AuditArchive(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+                        @Value("${app.audit.archive-dir:audit-archive}") String directory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.directory = Paths.get(directory);
+    }
+
+    /**
+     * Writes every audit row timestamped in {@code month} to a new archive file and its index, reading
+     * the table in card and id order in bounded chunks. The file only becomes visible once both are
+     * complete.
+     *
+     * @return the number of rows exported
+     */
+    public int exportMonth(YearMonth month) {
+        LocalDateTime from = month.atDay(1).atStartOfDay();
+        LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+        try {
+            Files.createDirectories(directory);
+            Path target = nextFileFor(month);
+            Path temp = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+            Path indexTemp = Files.createTempFile(directory, indexFor(target).getFileName().toString(), ".tmp");
+            int exported = 0;
+            try (OutputStream data = new BufferedOutputStream(Files.newOutputStream(temp));
+                 DataOutputStream index = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexTemp)))) {
+                CardBlock block = null;
+                long offset = 0;
+                long lastCardId = 0;
+                long lastId = 0;
+                while (true) {
+                    List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                            "SELECT id, card_id, previous_state, new_state, timestamp FROM card_audit_log " +
+                            "WHERE timestamp >= ? AND timestamp < ? AND (card_id > ? OR (card_id = ? AND id > ?)) " +
+                            "ORDER BY card_id, id LIMIT ?",
+                            Timestamp.valueOf(from), Timestamp.valueOf(to), lastCardId, lastCardId, lastId,
+                            EXPORT_CHUNK_SIZE);
+                    for (Map<String, Object> row : rows) {
+                        long cardId = ((Number) row.get("card_id")).longValue();
+                        if (block == null || block.cardId != cardId) {
+                            if (block != null) {
+                                offset += block.writeTo(data, index, offset);
+                            }
+                            block = new CardBlock(cardId);
+                        }
+                        ObjectNode line = objectMapper.createObjectNode();
+                        line.put("id", ((Number) row.get("id")).longValue());
+                        line.put("cardId", cardId);
+                        line.put("previousState", (String) row.get("previous_state"));
+                        line.put("newState", (String) row.get("new_state"));
+                        line.put("timestamp", ((Timestamp) row.get("timestamp")).toLocalDateTime().toString());
+                        block.add(objectMapper.writeValueAsString(line));
+                        lastCardId = cardId;
+                        lastId = line.get("id").asLong();
+                    }
+                    exported += rows.size();
+                    if (rows.size() < EXPORT_CHUNK_SIZE) {
+                        break;
+                    }
+                }
+                if (block != null) {
+                    block.writeTo(data, index, offset);
+                }
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(temp);
+                Files.deleteIfExists(indexTemp);
+                throw e;
+            }
+            // The index goes first: a data file is only read once it is visible, and then finds its index
+            Files.move(indexTemp, indexFor(target), StandardCopyOption.ATOMIC_MOVE);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            listing = null;
+            logger.info("Archived {} audit rows for {} to {}", exported, month, target);
+            return exported;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to archive audit rows for " + month, e);
+        }
+    }
+
+    /**
+     * Returns true if the archive can hold entries of a card created at {@code createdAt} (null if
+     * unknown), that is if the card is older than the end of the newest archived month. Answered from
+     * the cached directory listing, without opening any file.
+     */
+    public boolean mayHoldEntries(LocalDateTime createdAt) {
+        TreeMap<YearMonth, List<Path>> files = filesByMonth();
+        if (files.isEmpty()) {
+            return false;
+        }
+        LocalDateTime archivedUntil = files.lastKey().plusMonths(1).atDay(1).atStartOfDay();
+        return createdAt == null || createdAt.isBefore(archivedUntil);
+    }
+
+    /**
+     * Returns up to {@code limit} archived entries for the card that sort after the {@code (timestamp, id)}
+     * cursor in newest-first order, or the newest archived entries when {@code timestamp} is null.
+     * Months are read newest first, months before {@code createdAt} are never opened, and reading stops
+     * once the page is full.
+     */
+    public List<CardAuditEntry> findEntriesBefore(Long cardId, LocalDateTime createdAt, LocalDateTime timestamp,
+                                                  Long id, int limit) {
+        List<CardAuditEntry> found = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        YearMonth firstMonth = createdAt != null ? YearMonth.from(createdAt) : null;
+        for (Map.Entry<YearMonth, List<Path>> month : filesByMonth().descendingMap().entrySet()) {
+            if (found.size() >= limit || (firstMonth != null && month.getKey().isBefore(firstMonth))) {
+                break;
+            }
+            if (timestamp != null && month.getKey().atDay(1).atStartOfDay().isAfter(timestamp)) {
+                continue;
+            }
+            List<CardAuditEntry> monthEntries = new ArrayList<>();
+            for (Path file : month.getValue()) {
+                readFile(file, cardId, timestamp, id, seen, monthEntries);
+            }
+            monthEntries.sort(NEWEST_FIRST);
+            found.addAll(monthEntries);
+        }
+        return found.size() > limit ? found.subList(0, limit) : found;
+    }
+
+    private void readFile(Path file, Long cardId, LocalDateTime timestamp, Long id, Set<Long> seen,
+                          List<CardAuditEntry> into) {
+        Path index = indexFor(file);
+        InputStream rows;
+        try {
+            if (Files.exists(index)) {
+                byte[] block = readBlock(file, index, cardId);
+                if (block == null) {
+                    return;
+                }
+                rows = new ByteArrayInputStream(block);
+            } else {
+                rows = Files.newInputStream(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read audit archive " + file, e);
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(rows), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                JsonNode node = objectMapper.readTree(line);
+                if (node.get("cardId").asLong() != cardId) {
+                    continue;
+                }
+                long entryId = node.get("id").asLong();
+                LocalDateTime entryTimestamp = LocalDateTime.parse(node.get("timestamp").asText());
+                boolean afterCursor = timestamp == null || entryTimestamp.isBefore(timestamp)
+                        || (entryTimestamp.isEqual(timestamp) && entryId < id);
+                if (afterCursor && seen.add(entryId)) {
+                    into.add(new CardAuditEntry(entryId, CardState.valueOf(node.get("previousState").asText()),
+                            CardState.valueOf(node.get("newState").asText()), entryTimestamp));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read audit archive " + file, e);
+        }
+    }
+
+    /**
+     * Returns the card's gzip member from an indexed archive file, or null if the card has no rows in it.
+     */
+    private static byte[] readBlock(Path file, Path index, long cardId) throws IOException {
+        try (FileChannel indexChannel = FileChannel.open(index, StandardOpenOption.READ)) {
+            ByteBuffer record = ByteBuffer.allocate(INDEX_RECORD_BYTES);
+            long low = 0;
+            long high = indexChannel.size() / INDEX_RECORD_BYTES - 1;
+            while (low <= high) {
+                long middle = (low + high) >>> 1;
+                record.clear();
+                readFully(indexChannel, record, middle * INDEX_RECORD_BYTES);
+                long recordCardId = record.getLong(0);
+                if (recordCardId < cardId) {
+                    low = middle + 1;
+                } else if (recordCardId > cardId) {
+                    high = middle - 1;
+                } else {
+                    ByteBuffer block = ByteBuffer.allocate(record.getInt(2 * Long.BYTES));
+                    try (FileChannel dataChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+                        readFully(dataChannel, block, record.getLong(Long.BYTES));
+                    }
+                    return block.array();
+                }
+            }
+            return null;
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Audit archive ends early");
+            }
+        }
+    }
+
+    private static Path indexFor(Path file) {
+        String name = file.getFileName().toString();
+        return file.resolveSibling(name.substring(0, name.length() - DATA_SUFFIX.length()) + INDEX_SUFFIX);
+    }
+
+    private Path nextFileFor(YearMonth month) {
+        Path file = directory.resolve("card_audit_log-" + month + ".ndjson.gz");
+        for (int part = 2; Files.exists(file); part++) {
+            file = directory.resolve("card_audit_log-" + month + "." + part + ".ndjson.gz");
+        }
+        return file;
+    }
+
+    private TreeMap<YearMonth, List<Path>> filesByMonth() {
+        FileTime modified;
+        try {
+            modified = Files.isDirectory(directory) ? Files.getLastModifiedTime(directory) : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read audit archive " + directory, e);
+        }
+        Listing current = listing;
+        if (current == null || !Objects.equals(current.modified(), modified)) {
+            current = new Listing(modified, listFiles());
+            listing = current;
+        }
+        return current.files();
+    }
+
+    private TreeMap<YearMonth, List<Path>> listFiles() {
+        TreeMap<YearMonth, List<Path>> files = new TreeMap<>();
+        if (!Files.isDirectory(directory)) {
+            return files;
+        }
+        try (Stream<Path> listing = Files.list(directory)) {
+            listing.forEach(file -> {
+                Matcher matcher = FILE_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    files.computeIfAbsent(YearMonth.parse(matcher.group(1)), key -> new ArrayList<>()).add(file);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list audit archive " + directory, e);
+        }
+        return files;
+    }
+
+    private record Listing(FileTime modified, TreeMap<YearMonth, List<Path>> files) {
+    }
+
+    /**
+     * One card's rows of the month being exported, compressed as a gzip member of their own.
+     */
+    private static class CardBlock {
+        private final long cardId;
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final BufferedWriter writer;
+
+        CardBlock(long cardId) throws IOException {
+            this.cardId = cardId;
+            this.writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(bytes), StandardCharsets.UTF_8));
+        }
+
+        void add(String line) throws IOException {
+            writer.write(line);
+            writer.newLine();
+        }
+
+        /**
+         * Appends the member to the data file and its record to the index, and returns the member's length.
+         */
+        int writeTo(OutputStream data, DataOutputStream index, long offset) throws IOException {
+            writer.close();
+            bytes.writeTo(data);
+            index.writeLong(cardId);
+            index.writeLong(offset);
+            index.writeInt(bytes.size());
+            return bytes.size();
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.kamishibai.service;
+
+import com.kamishibai.model.CardAudit;
+import com.kamishibai.model.CardState;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes card audit rows off the request thread. Entries are buffered in a bounded queue and a
+ * dedicated writer thread inserts them with JDBC batches, flushing once a batch is full or the
+ * flush interval has elapsed since its first entry.
+ * <p>
+ * Boards listed in {@code app.audit.synchronous-board-ids} bypass the queue and are written inside
+ * the caller's transaction. When the queue is full the entry is also written synchronously rather
+ * than dropped. Entries still queued at shutdown are flushed before the writer stops.
+ * <p>
+ * Each batch is inserted in a transaction of its own, so a batch that fails leaves no rows behind,
+ * whether or not the driver had already executed part of it. It is then written again row by row, so
+ * one bad row (say, for a card deleted meanwhile) does not lose the rest. A row that still fails goes back on the queue, up to
+ * {@value #MAX_ATTEMPTS} attempts in all, and the writer pauses for a flush interval before going on.
+ */
+@Component
+public class AuditLogWriter {
+    private static final String INSERT_SQL =
+            "INSERT INTO card_audit_log (card_id, previous_state, new_state, timestamp) VALUES (?, ?, ?, ?)";
+    static final int MAX_ATTEMPTS = 3;
+
+    private final Logger logger = LoggerFactory.getLogger(AuditLogWriter.class);
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate batchTransaction;
+    private final BlockingQueue<AuditEntry> queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final Set<Long> synchronousBoardIds;
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public AuditLogWriter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                          @Value("${app.audit.queue-capacity:10000}") int queueCapacity,
+                          @Value("${app.audit.batch-size:200}") int batchSize,
+                          @Value("${app.audit.flush-interval-ms:200}") long flushIntervalMillis,
+                          @Value("${app.audit.synchronous-board-ids:}") Set<Long> synchronousBoardIds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchTransaction = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.synchronousBoardIds = Set.copyOf(synchronousBoardIds);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writerThread = new Thread(this::run, "audit-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (writerThread != null) {
+            writerThread.interrupt();
+            try {
+                writerThread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Whatever the writer thread did not get to is flushed on the caller's thread
+        List<AuditEntry> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            flush(batch);
+        }
+        logger.info("Audit log writer stopped");
+    }
+
+    /**
+     * Returns true when audits for the given board must be written in the caller's transaction.
+     */
+    public boolean isSynchronous(Long boardId) {
+        return boardId != null && synchronousBoardIds.contains(boardId);
+    }
+
+    /**
+     * Inserts the audit row immediately, joining the caller's transaction if there is one.
+     */
+    public void writeNow(CardAudit audit) {
+        insert(AuditEntry.of(audit));
+    }
+
+    /**
+     * Queues the audit row for the writer thread, falling back to a synchronous insert if the queue is full.
+     */
+    public void enqueue(CardAudit audit) {
+        if (!queue.offer(AuditEntry.of(audit))) {
+            logger.warn("Audit queue full, writing audit for card {} synchronously", audit.getCard().getId());
+            writeNow(audit);
+        }
+    }
+
+    public int pending() {
+        return queue.size();
+    }
+
+    private void run() {
+        List<AuditEntry> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                AuditEntry first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    AuditEntry next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                if (!flush(batch)) {
+                    // Give a failing database a moment before retrying what was re-queued
+                    Thread.sleep(flushIntervalMillis);
+                }
+            } catch (InterruptedException e) {
+                // Interrupted by stop(); write the partial batch and leave the rest to the final drain
+                flush(batch);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Writes and clears the batch, re-queueing rows that could not be written.
+     *
+     * @return false if any row could not be written
+     */
+    private boolean flush(List<AuditEntry> batch) {
+        if (batch.isEmpty()) {
+            return true;
+        }
+        try {
+            batchTransaction.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(INSERT_SQL, List.copyOf(batch), batch.size(), (ps, entry) -> {
+                        ps.setLong(1, entry.cardId());
+                        ps.setString(2, entry.previousState().name());
+                        ps.setString(3, entry.newState().name());
+                        ps.setTimestamp(4, Timestamp.valueOf(entry.timestamp()));
+                    }));
+            logger.debug("Flushed {} audit entries", batch.size());
+            return true;
+        } catch (DataAccessException | TransactionException e) {
+            logger.warn("Failed to write {} audit entries as a batch, writing them one by one", batch.size(), e);
+            boolean written = true;
+            for (AuditEntry entry : batch) {
+                written &= insertOrRequeue(entry);
+            }
+            return written;
+        } finally {
+            batch.clear();
+        }
+    }
+
+    private boolean insertOrRequeue(AuditEntry entry) {
+        try {
+            insert(entry);
+            return true;
+        } catch (DataAccessException e) {
+            AuditEntry retry = entry.retried();
+            if (retry.attempts() < MAX_ATTEMPTS && queue.offer(retry)) {
+                logger.warn("Failed to write audit entry for card {}, will retry", entry.cardId(), e);
+            } else {
+                logger.error("Dropping audit entry for card {} after {} attempt(s)", entry.cardId(),
+                        retry.attempts(), e);
+            }
+            return false;
+        }
+    }
+
+    private void insert(AuditEntry entry) {
+        jdbcTemplate.update(INSERT_SQL, entry.cardId(), entry.previousState().name(), entry.newState().name(),
+                Timestamp.valueOf(entry.timestamp()));
+    }
+
+    private record AuditEntry(Long cardId, CardState previousState, CardState newState, LocalDateTime timestamp,
+                              int attempts) {
+        static AuditEntry of(CardAudit audit) {
+            return new AuditEntry(audit.getCard().getId(), audit.getPreviousState(), audit.getNewState(),
+                    audit.getTimestamp(), 0);
+        }
+
+        AuditEntry retried() {
+            return new AuditEntry(cardId, previousState, newState, timestamp, attempts + 1);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.kamishibai.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Keeps {@code card_audit_log} bounded. Every month older than {@code app.audit.retention-months} is
+ * exported to the {@link AuditArchive} and then removed from the table.
+ * <p>
+ * On MySQL the table is range-partitioned by month (see {@code db/vendor/mysql}), so a month that has a
+ * partition of its own is removed with {@code DROP PARTITION}, and partitions for upcoming months are
+ * split off the catch-all {@code pmax} partition ahead of time. Elsewhere, and for months that share
+ * a partition, rows are deleted in id-ordered batches.
+ */
+@Service
+public class AuditRetentionService {
+    private static final int DELETE_BATCH_SIZE = 1000;
+    private static final int MONTHS_AHEAD = 3;
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    private final Logger logger = LoggerFactory.getLogger(AuditRetentionService.class);
+    private final JdbcTemplate jdbcTemplate;
+    private final AuditArchive auditArchive;
+    private final Clock clock;
+    private final int retentionMonths;
+
+    public AuditRetentionService(JdbcTemplate jdbcTemplate, AuditArchive auditArchive, Clock clock,
+                                 @Value("${app.audit.retention-months:24}") int retentionMonths) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.auditArchive = auditArchive;
+        this.clock = clock;
+        this.retentionMonths = retentionMonths;
+    }
+
+    /**
+     * Archives and removes every expired month. Each month is exported before any of its rows are
+     * removed, so an interrupted run only ever leaves rows that are both archived and still hot.
+     *
+     * @return the number of months purged
+     */
+    @Scheduled(cron = "0 30 3 * * *") // Runs daily at 3:30 AM
+    public int applyRetention() {
+        if (retentionMonths <= 0) {
+            return 0;
+        }
+        boolean partitioned = isMySql();
+        YearMonth cutoff = YearMonth.now(clock).minusMonths(retentionMonths);
+        Set<String> partitions = partitioned ? partitionNames() : Set.of();
+
+        int purged = 0;
+        for (YearMonth month = oldestMonth(); month != null && month.isBefore(cutoff); month = month.plusMonths(1)) {
+            auditArchive.exportMonth(month);
+            String partition = month.format(PARTITION_NAME);
+            if (partitions.contains(partition)) {
+                jdbcTemplate.execute("ALTER TABLE card_audit_log DROP PARTITION " + partition);
+            } else {
+                deleteMonth(month);
+            }
+            purged++;
+        }
+        if (partitioned) {
+            addUpcomingPartitions();
+        }
+        if (purged > 0) {
+            logger.info("Archived and purged {} month(s) of audit history older than {}", purged, cutoff);
+        }
+        return purged;
+    }
+
+    private YearMonth oldestMonth() {
+        LocalDateTime oldest = jdbcTemplate.queryForObject(
+                "SELECT MIN(timestamp) FROM card_audit_log", LocalDateTime.class);
+        return oldest != null ? YearMonth.from(oldest) : null;
+    }
+
+    private void deleteMonth(YearMonth month) {
+        Timestamp from = Timestamp.valueOf(month.atDay(1).atStartOfDay());
+        Timestamp to = Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay());
+        int deleted;
+        do {
+            List<Long> ids = jdbcTemplate.queryForList(
+                    "SELECT id FROM card_audit_log WHERE timestamp >= ? AND timestamp < ? ORDER BY id LIMIT ?",
+                    Long.class, from, to, DELETE_BATCH_SIZE);
+            deleted = ids.isEmpty() ? 0 : jdbcTemplate.batchUpdate("DELETE FROM card_audit_log WHERE id = ?",
+                    ids.stream().map(id -> new Object[]{id}).toList()).length;
+        } while (deleted == DELETE_BATCH_SIZE);
+    }
+
+    private void addUpcomingPartitions() {
+        // New partitions are split off pmax, so they must continue from the last monthly partition
+        YearMonth next = partitionNames().stream()
+                .filter(name -> name.matches("p\\d{6}"))
+                .map(name -> YearMonth.parse(name, PARTITION_NAME))
+                .max(YearMonth::compareTo)
+                .map(last -> last.plusMonths(1))
+                .orElse(YearMonth.now(clock));
+        StringBuilder added = new StringBuilder();
+        YearMonth horizon = YearMonth.now(clock).plusMonths(MONTHS_AHEAD);
+        for (YearMonth month = next; !month.isAfter(horizon); month = month.plusMonths(1)) {
+            added.append("PARTITION ").append(month.format(PARTITION_NAME))
+                    .append(" VALUES LESS THAN ('").append(month.plusMonths(1).atDay(1)).append("'), ");
+        }
+        if (added.length() > 0) {
+            jdbcTemplate.execute("ALTER TABLE card_audit_log REORGANIZE PARTITION pmax INTO (" + added +
+                    "PARTITION pmax VALUES LESS THAN (MAXVALUE))");
+        }
+    }
+
+    private Set<String> partitionNames() {
+        return new TreeSet<>(jdbcTemplate.queryForList(
+                "SELECT PARTITION_NAME FROM information_schema.PARTITIONS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'card_audit_log' AND PARTITION_NAME IS NOT NULL",
+                String.class));
+    }
+
+    private boolean isMySql() {
+        String product = jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        return "MySQL".equalsIgnoreCase(product);
+    }
+}
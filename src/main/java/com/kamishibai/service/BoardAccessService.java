@@ -0,0 +1,114 @@
+package com.kamishibai.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.kamishibai.repository.BoardRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers whether an account may use a board: the owner and every account the board is shared with
+ * may read it and change its cards, only the owner may change the board itself. Each answer costs one
+ * indexed lookup and is then cached per node, bounded by {@code app.access.cache-size} and kept for
+ * {@code app.access.cache-ttl-ms}, so a share made on another node is seen within that time. Hits and
+ * misses are published as the {@code cache.gets} metric of the {@value #CACHE_NAME} cache.
+ * <p>
+ * A lookup made in a read-only transaction may run on the replica, which can trail a board that was just
+ * created or shared. A refusal found there is confirmed on the primary before it is returned or cached.
+ */
+@Service
+public class BoardAccessService {
+    public enum Access { NONE, SHARED, OWNER }
+
+    static final String CACHE_NAME = "boardAccess";
+
+    private final BoardRepository boardRepository;
+    private final TransactionTemplate primaryLookup;
+    private final Cache<Key, Access> cache;
+
+    public BoardAccessService(BoardRepository boardRepository, PlatformTransactionManager transactionManager,
+                              @Value("${app.access.cache-size:10000}") int cacheSize,
+                              @Value("${app.access.cache-ttl-ms:30000}") long ttlMillis,
+                              Clock clock, MeterRegistry meterRegistry) {
+        this.boardRepository = boardRepository;
+        // A writable transaction of its own is always routed to the primary
+        this.primaryLookup = new TransactionTemplate(transactionManager);
+        this.primaryLookup.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMillis))
+                .ticker(() -> TimeUnit.MILLISECONDS.toNanos(clock.millis()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Returns true if the account owns the board or it is shared with them. False for a board that
+     * does not exist.
+     */
+    public boolean canAccess(Long boardId, Long accountId) {
+        return getAccess(boardId, accountId) != Access.NONE;
+    }
+
+    public boolean isOwner(Long boardId, Long accountId) {
+        return getAccess(boardId, accountId) == Access.OWNER;
+    }
+
+    /**
+     * @throws IllegalStateException if the account cannot access the board
+     */
+    public void checkAccess(Long boardId, Long accountId) {
+        if (!canAccess(boardId, accountId)) {
+            throw new IllegalStateException("Access denied");
+        }
+    }
+
+    public Access getAccess(Long boardId, Long accountId) {
+        return cache.get(new Key(boardId, accountId), key -> {
+            Long ownerId = boardRepository.findAccessibleOwnerId(boardId, accountId);
+            if (ownerId == null && TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+                ownerId = primaryLookup.execute(status -> boardRepository.findAccessibleOwnerId(boardId, accountId));
+            }
+            return ownerId == null ? Access.NONE : ownerId.equals(accountId) ? Access.OWNER : Access.SHARED;
+        });
+    }
+
+    /**
+     * Forgets every cached answer for the board. Call it after changing who may access the board (sharing,
+     * deleting, changing the owner): the answers are dropped at once, so this node stops using them
+     * straight away, and again when the surrounding transaction commits, in case a concurrent check
+     * cached the old answer in between.
+     */
+    public void evictBoard(Long boardId) {
+        Runnable evict = () -> cache.asMap().keySet().removeIf(key -> key.boardId().equals(boardId));
+        evict.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict.run();
+                }
+            });
+        }
+    }
+
+    long cacheSize() {
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+
+    private record Key(Long boardId, Long accountId) {
+    }
+}
@@ -0,0 +1,272 @@
+package com.kamishibai.service;
+
+import com.kamishibai.dto.BoardEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * In-process publish/subscribe hub behind the board event streams. Each published event gets an id
+ * of the form {@code <epoch>-<sequence>}, where the epoch identifies this node's run, and the most
+ * recent {@code app.events.replay-size} events per board, none older than
+ * {@code app.events.replay-max-age-ms}, are kept so that a client reconnecting with
+ * {@code Last-Event-ID} receives what it missed. A client whose id is unknown (too old, or from
+ * another node or run) is sent a {@code resync} event and should reload the board instead.
+ * <p>
+ * Events are written to subscribers from a single dispatcher thread, so a slow display never holds
+ * up the request that made the change, and every subscriber sees a board's events in id order.
+ */
+@Component
+public class BoardEventHub {
+    static final String CARD_EVENT = "card";
+    static final String RESYNC_EVENT = "resync";
+
+    private final Logger logger = LoggerFactory.getLogger(BoardEventHub.class);
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong sequence = new AtomicLong();
+    // Latest event dropped with any board's whole buffer; a board's new buffer cannot place older ids
+    private final AtomicLong forgottenThrough = new AtomicLong();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final Map<Long, Set<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+    private final Map<Long, RecentEvents> recentEvents = new ConcurrentHashMap<>();
+    private final ExecutorService dispatcher;
+    private final int maxSubscribers;
+    private final long timeoutMillis;
+    private final int replaySize;
+    private final long replayMaxAgeMillis;
+
+    public BoardEventHub(@Value("${app.events.max-subscribers:1000}") int maxSubscribers,
+                         @Value("${app.events.timeout-ms:1800000}") long timeoutMillis,
+                         @Value("${app.events.replay-size:100}") int replaySize,
+                         @Value("${app.events.replay-max-age-ms:3600000}") long replayMaxAgeMillis) {
+        this.maxSubscribers = maxSubscribers;
+        this.timeoutMillis = timeoutMillis;
+        this.replaySize = replaySize;
+        this.replayMaxAgeMillis = replayMaxAgeMillis;
+        this.dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "board-events");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Opens a stream of the board's events. When {@code lastEventId} is given, the events published
+     * after it are replayed first.
+     *
+     * @throws IllegalStateException if this node already serves {@code app.events.max-subscribers} streams
+     */
+    public SseEmitter subscribe(Long boardId, String lastEventId) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new IllegalStateException("Subscriber limit reached");
+        }
+        SseEmitter emitter = createEmitter();
+        emitter.onCompletion(() -> unsubscribe(boardId, emitter));
+        emitter.onTimeout(() -> unsubscribe(boardId, emitter));
+        emitter.onError(error -> unsubscribe(boardId, emitter));
+
+        // Registering under the board's lock orders the replay before anything published afterwards
+        withRecentEvents(boardId, recent -> {
+            subscribers.computeIfAbsent(boardId, key -> ConcurrentHashMap.newKeySet()).add(emitter);
+            if (lastEventId != null) {
+                List<PublishedEvent> missed = eventsAfter(recent, lastEventId);
+                if (missed == null) {
+                    send(boardId, emitter, SseEmitter.event().name(RESYNC_EVENT).data(""));
+                } else {
+                    missed.forEach(event -> send(boardId, emitter, event.toSse()));
+                }
+            }
+        });
+        logger.debug("Subscribed to board {} events ({} streams open)", boardId, subscriberCount.get());
+        return emitter;
+    }
+
+    /**
+     * Returns true if anyone on this node is listening to any board, so callers can skip work that
+     * only serves events.
+     */
+    public boolean hasSubscribers() {
+        return subscriberCount.get() > 0;
+    }
+
+    public int subscriberCount() {
+        return subscriberCount.get();
+    }
+
+    public void publish(BoardEvent event) {
+        Long boardId = event.getBoardId();
+        withRecentEvents(boardId, recent -> {
+            PublishedEvent published = new PublishedEvent(sequence.incrementAndGet(), epoch, now(), event);
+            recent.events.addLast(published);
+            while (recent.events.size() > replaySize) {
+                recent.dropOldest();
+            }
+            Set<SseEmitter> listeners = subscribers.get(boardId);
+            if (listeners == null || listeners.isEmpty()) {
+                return;
+            }
+            // Snapshot the listeners now, so a subscriber that joins later is not sent an event it replayed
+            List<SseEmitter> targets = new ArrayList<>(listeners);
+            dispatcher.execute(() -> targets.forEach(emitter -> send(boardId, emitter, published.toSse())));
+        });
+    }
+
+    /**
+     * Sends a comment line to every open stream so proxies keep idle connections open and dead
+     * connections are noticed.
+     */
+    @Scheduled(fixedRateString = "${app.events.heartbeat-ms:15000}")
+    public void sendHeartbeats() {
+        if (!hasSubscribers()) {
+            return;
+        }
+        dispatcher.execute(() -> subscribers.forEach((boardId, emitters) ->
+                emitters.forEach(emitter -> send(boardId, emitter, SseEmitter.event().comment("heartbeat")))));
+    }
+
+    /**
+     * Drops buffered events older than {@code app.events.replay-max-age-ms}, and the buffers of boards
+     * left with neither events nor subscribers, so boards that went quiet hold no memory.
+     */
+    @Scheduled(fixedRateString = "${app.events.prune-interval-ms:60000}")
+    public void pruneRecentEvents() {
+        long oldestKept = now() - replayMaxAgeMillis;
+        recentEvents.forEach((boardId, recent) -> {
+            synchronized (recent) {
+                while (!recent.events.isEmpty() && recent.events.peekFirst().publishedAt() < oldestKept) {
+                    recent.dropOldest();
+                }
+                Set<SseEmitter> listeners = subscribers.get(boardId);
+                if (recent.events.isEmpty() && (listeners == null || listeners.isEmpty())) {
+                    // Raised before the removal, so the buffer that replaces this one starts from it
+                    forgottenThrough.accumulateAndGet(recent.droppedThrough, Math::max);
+                    recentEvents.remove(boardId, recent);
+                    recent.removed = true;
+                }
+            }
+        });
+    }
+
+    int bufferedBoardCount() {
+        return recentEvents.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdown();
+        try {
+            dispatcher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        subscribers.values().forEach(emitters -> emitters.forEach(SseEmitter::complete));
+    }
+
+    SseEmitter createEmitter() {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    long now() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Runs {@code action} holding the lock of the board's event buffer, creating the buffer if needed.
+     */
+    private void withRecentEvents(Long boardId, Consumer<RecentEvents> action) {
+        while (true) {
+            RecentEvents recent = recentEvents.computeIfAbsent(boardId, key -> new RecentEvents(forgottenThrough.get()));
+            synchronized (recent) {
+                // A buffer pruned since the lookup has been replaced, so look it up again
+                if (!recent.removed) {
+                    action.accept(recent);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the buffered events after {@code lastEventId}, or null if the id cannot be placed in
+     * this node's buffer.
+     */
+    private List<PublishedEvent> eventsAfter(RecentEvents recent, String lastEventId) {
+        int dash = lastEventId.lastIndexOf('-');
+        if (dash < 0 || !lastEventId.substring(0, dash).equals(epoch)) {
+            return null;
+        }
+        long lastSequence;
+        try {
+            lastSequence = Long.parseLong(lastEventId.substring(dash + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        // Sequences are shared by all boards, so only a dropped event of this board marks a gap
+        if (lastSequence > sequence.get() || lastSequence < recent.droppedThrough) {
+            return null;
+        }
+        return recent.events.stream().filter(event -> event.sequence() > lastSequence).toList();
+    }
+
+    private void send(Long boardId, SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            // The client went away; drop it and let it reconnect with its Last-Event-ID
+            unsubscribe(boardId, emitter);
+            emitter.completeWithError(e);
+        }
+    }
+
+    private void unsubscribe(Long boardId, SseEmitter emitter) {
+        Set<SseEmitter> emitters = subscribers.get(boardId);
+        if (emitters != null && emitters.remove(emitter)) {
+            subscriberCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * A board's buffered events, and the sequence of the latest one dropped from it. Guarded by its own lock.
+     */
+    private static class RecentEvents {
+        private final Deque<PublishedEvent> events = new ArrayDeque<>();
+        private long droppedThrough;
+        private boolean removed;
+
+        RecentEvents(long droppedThrough) {
+            this.droppedThrough = droppedThrough;
+        }
+
+        void dropOldest() {
+            droppedThrough = events.removeFirst().sequence();
+        }
+    }
+
+    private record PublishedEvent(long sequence, String epoch, long publishedAt, BoardEvent event) {
+        SseEmitter.SseEventBuilder toSse() {
+            return SseEmitter.event().id(epoch + "-" + sequence).name(CARD_EVENT)
+                    .data(event, MediaType.APPLICATION_JSON);
+        }
+    }
+}
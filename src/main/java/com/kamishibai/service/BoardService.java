@@ -1,12 +1,18 @@
 package com.kamishibai.service;
 
 import com.kamishibai.dto.BoardRequest;
+import com.kamishibai.dto.BoardSummary;
+import com.kamishibai.dto.BoardSummaryPage;
 import com.kamishibai.model.Account;
 import com.kamishibai.model.Board;
 import com.kamishibai.model.Card;
 import com.kamishibai.repository.BoardRepository;
+import com.kamishibai.repository.CardDailyStatsRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -19,9 +25,14 @@ public class BoardService {
     private static final Logger logger = LoggerFactory.getLogger(BoardService.class);
     
     private final BoardRepository boardRepository;
+    private final BoardAccessService boardAccessService;
+    private final CardDailyStatsRepository cardDailyStatsRepository;
 
-    public BoardService(BoardRepository boardRepository) {
+    public BoardService(BoardRepository boardRepository, BoardAccessService boardAccessService,
+                        CardDailyStatsRepository cardDailyStatsRepository) {
         this.boardRepository = boardRepository;
+        this.boardAccessService = boardAccessService;
+        this.cardDailyStatsRepository = cardDailyStatsRepository;
     }
 
     @Transactional
@@ -34,73 +45,111 @@ public class BoardService {
     }
 
     @Transactional(readOnly = true)
-    public List<Board> getBoardsForUser(Account account) {
-        logger.info("Getting boards for account ID: {}", account.getId());
-        List<Board> boards = boardRepository.findByOwnerOrSharedWith(account, account);
+    public List<BoardSummary> getBoardsForUser(Long accountId) {
+        logger.info("Getting boards for account ID: {}", accountId);
+        List<BoardSummary> boards = boardRepository.findAccessibleBoardSummaries(accountId);
         logger.info("Found {} boards", boards.size());
         return boards;
     }
 
+    /**
+     * Returns one page of the account's board summaries, sorted by {@link BoardSummary#SORT_PROPERTIES}.
+     */
     @Transactional(readOnly = true)
-    public Optional<Board> getBoardById(Long id, Account account) {
-        logger.info("Getting board with ID: {} for account ID: {}", id, account.getId());
-        Optional<Board> board = boardRepository.findById(id)
-            .filter(b -> hasAccess(b, account));
+    public BoardSummaryPage getBoardSummaries(Long accountId, Pageable pageable) {
+        logger.info("Getting boards page {} for account ID: {}", pageable.getPageNumber(), accountId);
+        Page<BoardSummary> page = boardRepository.findAccessibleBoardSummaries(accountId, pageable);
+        return new BoardSummaryPage(page.getContent(), page.getNumber(), page.getSize(), page.getTotalElements());
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<Board> getBoardById(Long id, Long accountId) {
+        logger.info("Getting board with ID: {} for account ID: {}", id, accountId);
+        // Checked first, so a board shared with thousands of accounts is never loaded with its shares
+        Optional<Board> board = boardAccessService.canAccess(id, accountId)
+            ? boardRepository.findById(id)
+            : Optional.empty();
         logger.info("Found board: {}", board.isPresent());
         return board;
     }
 
+    /**
+     * Returns the board's change sequence, or null if the board does not exist or is not accessible to
+     * the account.
+     */
+    @Transactional(readOnly = true)
+    public Long getAccessibleChangeSeq(Long id, Long accountId) {
+        return boardRepository.findAccessibleChangeSeq(id, accountId);
+    }
+
+    /**
+     * Renames the board or changes its description. When {@code expectedVersion} is given, the board must
+     * still be at that version; either way the write itself is version-checked.
+     *
+     * @throws ObjectOptimisticLockingFailureException if the board changed since {@code expectedVersion},
+     *         or concurrently with this update
+     */
     @Transactional
-    public Board updateBoard(Long id, BoardRequest request, Account account) {
-        logger.info("Updating board with ID: {} for account ID: {}", id, account.getId());
-        Board board = getBoardById(id, account)
+    public Board updateBoard(Long id, BoardRequest request, Long accountId, Long expectedVersion) {
+        logger.info("Updating board with ID: {} for account ID: {}", id, accountId);
+        Board board = getBoardById(id, accountId)
             .orElseThrow(() -> new IllegalArgumentException("Board not found"));
 
-        if (!board.getOwner().equals(account)) {
+        if (!board.getOwner().getId().equals(accountId)) {
             logger.warn("Account {} attempted to update board {} owned by {}", 
-                account.getId(), id, board.getOwner().getId());
+                accountId, id, board.getOwner().getId());
             throw new IllegalArgumentException("Only the owner can update the board");
         }
+        if (expectedVersion != null && board.getVersion() != expectedVersion) {
+            throw new ObjectOptimisticLockingFailureException(Board.class, id);
+        }
 
         board.setName(request.getName());
         board.setDescription(request.getDescription());
 
         Board updatedBoard = boardRepository.save(board);
+        boardRepository.incrementChangeSeq(id);
         logger.info("Updated board: {}", updatedBoard);
         return updatedBoard;
     }
 
     @Transactional
-    public void deleteBoard(Long id, Account account) {
-        logger.info("Deleting board with ID: {} for account ID: {}", id, account.getId());
-        Board board = getBoardById(id, account)
+    public void deleteBoard(Long id, Long accountId) {
+        logger.info("Deleting board with ID: {} for account ID: {}", id, accountId);
+        Board board = getBoardById(id, accountId)
             .orElseThrow(() -> new IllegalArgumentException("Board not found"));
 
-        if (!board.getOwner().equals(account)) {
+        if (!board.getOwner().getId().equals(accountId)) {
             logger.warn("Account {} attempted to delete board {} owned by {}", 
-                account.getId(), id, board.getOwner().getId());
+                accountId, id, board.getOwner().getId());
             throw new IllegalArgumentException("Only the owner can delete the board");
         }
 
+        // The stats rows reference the cards, which are deleted with the board
+        int stats = cardDailyStatsRepository.deleteByBoardId(id);
         boardRepository.delete(board);
+        boardAccessService.evictBoard(id);
+        logger.debug("Deleted {} daily stats rows of board {}", stats, id);
         logger.info("Deleted board with ID: {}", id);
     }
 
     @Transactional
-    public Board shareBoard(Long id, Account owner, Account shareWith) {
+    public Board shareBoard(Long id, Long ownerId, Account shareWith) {
         logger.info("Sharing board with ID: {} from owner ID: {} to account ID: {}", 
-            id, owner.getId(), shareWith.getId());
-        Board board = getBoardById(id, owner)
+            id, ownerId, shareWith.getId());
+        Board board = getBoardById(id, ownerId)
             .orElseThrow(() -> new IllegalArgumentException("Board not found"));
 
-        if (!board.getOwner().equals(owner)) {
+        if (!board.getOwner().getId().equals(ownerId)) {
             logger.warn("Account {} attempted to share board {} owned by {}", 
-                owner.getId(), id, board.getOwner().getId());
+                ownerId, id, board.getOwner().getId());
             throw new IllegalArgumentException("Only the owner can share the board");
         }
 
         board.getSharedWith().add(shareWith);
         Board sharedBoard = boardRepository.save(board);
+        boardRepository.incrementChangeSeq(id);
+        boardAccessService.evictBoard(id);
         logger.info("Shared board: {}", sharedBoard);
         return sharedBoard;
     }
@@ -110,8 +159,4 @@ public class BoardService {
         logger.info("Getting cards for board ID: {}", board.getId());
         return new ArrayList<>(board.getCards());
     }
-
-    private boolean hasAccess(Board board, Account account) {
-        return board.getOwner().equals(account) || board.getSharedWith().contains(account);
-    }
 }
@@ -0,0 +1,45 @@
+package com.kamishibai.service;
+
+import com.kamishibai.dto.BoardView;
+import com.kamishibai.model.Board;
+import com.kamishibai.model.Card;
+import com.kamishibai.model.CardState;
+import com.kamishibai.repository.BoardRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Builds the board page in two queries: one for the board with its owner, which also answers the
+ * access check, and one for its cards in position order.
+ */
+@Service
+public class BoardViewAssembler {
+    private final BoardRepository boardRepository;
+    private final CardService cardService;
+
+    public BoardViewAssembler(BoardRepository boardRepository, CardService cardService) {
+        this.boardRepository = boardRepository;
+        this.cardService = cardService;
+    }
+
+    /**
+     * Returns the board's view, or empty if the board does not exist or the account cannot access it.
+     */
+    @Transactional(readOnly = true)
+    public Optional<BoardView> assemble(Long boardId, Long accountId) {
+        Optional<Board> board = boardRepository.findAccessibleById(boardId, accountId);
+        if (board.isEmpty()) {
+            return Optional.empty();
+        }
+        List<Card> redCards = new ArrayList<>();
+        List<Card> greenCards = new ArrayList<>();
+        for (Card card : cardService.getCardsByBoardId(boardId)) {
+            (card.getState() == CardState.GREEN ? greenCards : redCards).add(card);
+        }
+        return Optional.of(new BoardView(board.get(), redCards, greenCards));
+    }
+}
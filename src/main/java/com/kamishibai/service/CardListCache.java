@@ -0,0 +1,161 @@
+package com.kamishibai.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.kamishibai.dto.CardListResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Per-node cache of the card list the API serves for a board, keyed by board id and change sequence, so
+ * an entry can never be served for a later state of the board. Concurrent misses for one key share a
+ * single load: the first caller runs it, in a read-only transaction of its own, and the others wait for
+ * its result instead of querying too. A failed load is not cached.
+ * <p>
+ * Lists are kept as the JSON the API responds with, serialized once per load by the application's
+ * {@link ObjectMapper}, and lists of at least {@code app.card-lists.gzip-min-bytes} also as gzip, so a
+ * hit is written out without serializing or compressing anything.
+ * <p>
+ * Entries are bounded by the bytes they hold ({@code app.card-lists.cache-max-bytes}), and every entry
+ * counts as at least its share of that budget, so no more than {@code app.card-lists.cache-size} boards
+ * are kept however small they are. {@link CardService} evicts a board once a change to its cards commits.
+ * Hits and misses are published as the {@code cache.gets} metric of the {@value #CACHE_NAME} cache.
+ */
+@Component
+public class CardListCache {
+    static final String CACHE_NAME = "cardLists";
+    // Rough overhead of an entry besides its byte arrays
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+    /**
+     * A board's cards as read in one transaction, and the change sequence read just before them: the
+     * cards reflect at least every change up to it.
+     */
+    public record Snapshot(long changeSeq, List<CardListResponse> cards) {
+    }
+
+    /**
+     * A board's card list as the API serves it: UTF-8 JSON, and the same compressed with gzip, or null if
+     * the list is too small to be worth compressing.
+     */
+    public record CardList(long changeSeq, byte[] json, byte[] gzippedJson) {
+    }
+
+    private final AsyncCache<Key, CardList> cache;
+    private final TransactionTemplate readOnly;
+    private final ObjectMapper objectMapper;
+    private final int gzipMinBytes;
+
+    public CardListCache(PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                         @Value("${app.card-lists.cache-size:1000}") int cacheSize,
+                         @Value("${app.card-lists.cache-max-bytes:33554432}") long maxBytes,
+                         @Value("${app.card-lists.gzip-min-bytes:1024}") int gzipMinBytes,
+                         MeterRegistry meterRegistry) {
+        int minWeight = (int) Math.min(Integer.MAX_VALUE, Math.max(1, maxBytes / cacheSize));
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .<Key, CardList>weigher((key, list) -> Math.max(minWeight, weigh(list)))
+                .recordStats()
+                .buildAsync();
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.gzipMinBytes = gzipMinBytes;
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Returns the board's card list at {@code changeSeq}, running {@code loader} if it is not cached and
+     * no other caller is loading it already. The loader may find the board at a different sequence (a
+     * change committed in between, or the read went to a lagging replica); its result is then filed under
+     * the sequence it reports, and callers should tag their response with {@link CardList#changeSeq()}.
+     */
+    public CardList get(Long boardId, long changeSeq, Supplier<Snapshot> loader) {
+        Key key = new Key(boardId, changeSeq);
+        CompletableFuture<CardList> load = new CompletableFuture<>();
+        CompletableFuture<CardList> result = cache.get(key, (k, executor) -> load);
+        if (result == load) {
+            try {
+                // Serialized after the transaction, so no connection is held meanwhile
+                CardList list = serialize(readOnly.execute(status -> loader.get()));
+                load.complete(list);
+                if (list.changeSeq() != changeSeq) {
+                    cache.synchronous().invalidate(key);
+                    cache.put(new Key(boardId, list.changeSeq()), load);
+                }
+            } catch (RuntimeException | Error e) {
+                // Fails the waiting callers too, and drops the entry so the next caller loads again
+                load.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Drops every cached list of the board.
+     */
+    public void evictBoard(Long boardId) {
+        cache.synchronous().asMap().keySet().removeIf(key -> key.boardId().equals(boardId));
+    }
+
+    CardList serialize(Snapshot snapshot) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(snapshot.cards());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize the card list", e);
+        }
+        byte[] gzipped = json.length >= gzipMinBytes ? gzip(json) : null;
+        if (gzipped != null && gzipped.length >= json.length) {
+            gzipped = null; // Not worth sending compressed
+        }
+        return new CardList(snapshot.changeSeq(), json, gzipped);
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    static int weigh(CardList list) {
+        long bytes = ENTRY_OVERHEAD_BYTES + list.json().length
+                + (list.gzippedJson() == null ? 0 : list.gzippedJson().length);
+        return (int) Math.min(Integer.MAX_VALUE, bytes);
+    }
+
+    long cacheSize() {
+        cache.synchronous().cleanUp();
+        return cache.synchronous().estimatedSize();
+    }
+
+    private record Key(Long boardId, long changeSeq) {
+    }
+}
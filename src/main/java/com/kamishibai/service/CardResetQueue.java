@@ -0,0 +1,88 @@
+package com.kamishibai.service;
+
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * In-memory schedule of GREEN cards ordered by the instant each card is next due to reset.
+ * <p>
+ * Entries are never removed from the heap eagerly; rescheduling or cancelling a card only updates
+ * the authoritative {@code scheduled} map, and superseded heap entries are skipped when they surface.
+ * Callers must still re-validate due cards against the database, since the queue may hold entries
+ * from transactions that were later rolled back.
+ */
+@Component
+public class CardResetQueue {
+    private final PriorityQueue<ScheduledReset> queue =
+            new PriorityQueue<>(Comparator.comparing(ScheduledReset::resetAt));
+    private final Map<Long, LocalDateTime> scheduled = new HashMap<>();
+
+    public synchronized void schedule(Long cardId, LocalDateTime resetAt) {
+        scheduled.put(cardId, resetAt);
+        queue.add(new ScheduledReset(cardId, resetAt));
+        compactIfNeeded();
+    }
+
+    /**
+     * Puts back cards taken by {@link #pollDue} whose reset did not commit. A card scheduled again in the
+     * meantime keeps its newer entry.
+     */
+    public synchronized void restore(SortedMap<LocalDateTime, List<Long>> due) {
+        due.forEach((resetAt, cardIds) -> cardIds.forEach(cardId -> {
+            if (scheduled.putIfAbsent(cardId, resetAt) == null) {
+                queue.add(new ScheduledReset(cardId, resetAt));
+            }
+        }));
+        compactIfNeeded();
+    }
+
+    public synchronized void cancel(Long cardId) {
+        scheduled.remove(cardId);
+        compactIfNeeded();
+    }
+
+    /**
+     * Removes and returns every card whose reset instant is at or before {@code now}, grouped by that instant.
+     */
+    public synchronized SortedMap<LocalDateTime, List<Long>> pollDue(LocalDateTime now) {
+        SortedMap<LocalDateTime, List<Long>> due = new TreeMap<>();
+        while (!queue.isEmpty() && !queue.peek().resetAt().isAfter(now)) {
+            ScheduledReset entry = queue.poll();
+            if (entry.resetAt().equals(scheduled.get(entry.cardId()))) {
+                scheduled.remove(entry.cardId());
+                due.computeIfAbsent(entry.resetAt(), key -> new ArrayList<>()).add(entry.cardId());
+            }
+        }
+        return due;
+    }
+
+    public synchronized int size() {
+        return scheduled.size();
+    }
+
+    public synchronized void clear() {
+        scheduled.clear();
+        queue.clear();
+    }
+
+    private void compactIfNeeded() {
+        // Rebuild the heap once superseded entries outnumber live ones, so cards that are toggled
+        // many times a day don't grow it without bound.
+        if (queue.size() > 64 && queue.size() > 2 * scheduled.size()) {
+            queue.clear();
+            scheduled.forEach((cardId, resetAt) -> queue.add(new ScheduledReset(cardId, resetAt)));
+        }
+    }
+
+    private record ScheduledReset(Long cardId, LocalDateTime resetAt) {
+    }
+}
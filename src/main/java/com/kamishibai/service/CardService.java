@@ -1,33 +1,89 @@
 package com.kamishibai.service;
 
+import com.kamishibai.dto.BoardEvent;
+import com.kamishibai.dto.CardAuditEntry;
+import com.kamishibai.dto.CardAuditPage;
+import com.kamishibai.dto.CardBatchOperation;
+import com.kamishibai.dto.CardBatchResponse;
+import com.kamishibai.dto.CardBatchResult;
+import com.kamishibai.dto.CardChangesResponse;
+import com.kamishibai.dto.CardListResponse;
 import com.kamishibai.dto.CardResponse;
 import com.kamishibai.model.Card;
 import com.kamishibai.model.CardAudit;
 import com.kamishibai.model.CardState;
+import com.kamishibai.repository.BoardRepository;
 import com.kamishibai.repository.CardAuditRepository;
 import com.kamishibai.repository.CardRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.Clock;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
 
 @Service
 public class CardService {
+    private static final int RESET_BATCH_SIZE = 500;
+    private static final int MAX_TOGGLE_ATTEMPTS = 3;
+    private static final int MAX_TITLE_LENGTH = 200;
+    private static final int MAX_DETAILS_LENGTH = 5000;
+    // Spacing between neighbouring cards after a rebalance; a board re-spaces itself once a gap drops below MIN_RANK_GAP
+    static final int RANK_GAP = 1024;
+    static final int MIN_RANK_GAP = 8;
+
     private final Logger logger = LoggerFactory.getLogger(CardService.class);
     private final CardRepository cardRepository;
     private final CardAuditRepository cardAuditRepository;
+    private final BoardRepository boardRepository;
+    private final CardResetQueue cardResetQueue;
+    private final RankRebalanceQueue rankRebalanceQueue;
+    private final AuditLogWriter auditLogWriter;
+    private final AuditArchive auditArchive;
+    private final BoardEventHub boardEventHub;
+    private final CardListCache cardListCache;
+    private final EntityManager entityManager;
     private final Clock clock;
 
-    public CardService(CardRepository cardRepository, CardAuditRepository cardAuditRepository, Clock clock) {
+    public CardService(CardRepository cardRepository, CardAuditRepository cardAuditRepository,
+                       BoardRepository boardRepository, CardResetQueue cardResetQueue, RankRebalanceQueue rankRebalanceQueue,
+                       AuditLogWriter auditLogWriter, AuditArchive auditArchive, BoardEventHub boardEventHub,
+                       CardListCache cardListCache, EntityManager entityManager, Clock clock) {
         this.cardRepository = cardRepository;
         this.cardAuditRepository = cardAuditRepository;
+        this.boardRepository = boardRepository;
+        this.cardResetQueue = cardResetQueue;
+        this.rankRebalanceQueue = rankRebalanceQueue;
+        this.auditLogWriter = auditLogWriter;
+        this.auditArchive = auditArchive;
+        this.boardEventHub = boardEventHub;
+        this.cardListCache = cardListCache;
+        this.entityManager = entityManager;
         this.clock = clock;
     }
 
@@ -35,17 +91,119 @@ public class CardService {
         return LocalDateTime.now(clock);
     }
 
+    /**
+     * Runs {@code action} once the surrounding transaction commits, or immediately when there is none,
+     * so in-memory state never reflects a change that was rolled back.
+     */
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Runs {@code action} if the surrounding transaction does not commit. Does nothing outside a transaction.
+     */
+    private void afterRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * Hands an audit row to the audit writer. Boards configured for synchronous auditing are written
+     * in the current transaction; all others are queued once it commits.
+     */
+    private void recordAudit(Long boardId, CardAudit audit) {
+        if (auditLogWriter.isSynchronous(boardId)) {
+            auditLogWriter.writeNow(audit);
+        } else {
+            afterCommit(() -> auditLogWriter.enqueue(audit));
+        }
+    }
+
+    /**
+     * Bumps the board's change sequence and stamps it on the changed cards so delta-sync clients pick
+     * them up, and drops the board's cached card lists once the change commits. Called after the card rows
+     * are written, so locks are always taken card first, then board.
+     */
+    private long recordChange(Long boardId, Collection<Long> cardIds) {
+        boardRepository.incrementChangeSeq(boardId);
+        long changeSeq = boardRepository.findChangeSeq(boardId);
+        cardRepository.stampChangeSeq(cardIds, changeSeq);
+        afterCommit(() -> cardListCache.evictBoard(boardId));
+        return changeSeq;
+    }
+
+    /**
+     * Pushes a card change to the board's event stream once the surrounding transaction commits.
+     */
+    private void publishEvent(String type, Long boardId, Long cardId, CardState state, LocalTime resetTime,
+                              LocalDateTime changedAt) {
+        BoardEvent event = new BoardEvent(type, boardId, cardId, state, resetTime, changedAt);
+        afterCommit(() -> boardEventHub.publish(event));
+    }
+
+    /**
+     * Saves a new card at the end of its board. The position on {@code card} is ignored: cards are ranked
+     * {@link #RANK_GAP} apart so they can later be moved by rewriting one row.
+     */
     @Transactional
     public Card createCard(Card card) {
+        Long boardId = card.getBoard().getId();
+        Set<Long> respaced = new TreeSet<>();
+        Integer last = cardRepository.findLastPosition(boardId);
+        if (last != null && last > Integer.MAX_VALUE - RANK_GAP) {
+            respaced.addAll(respaceRanks(boardId));
+            last = cardRepository.findLastPosition(boardId);
+        }
+        card.setPosition(last == null ? RANK_GAP : last + RANK_GAP);
         card.setState(CardState.RED); // Default state
-        return cardRepository.save(card);
+        card.setLastStateChange(now());
+        Card saved = cardRepository.save(card);
+        respaced.add(saved.getId());
+        recordChange(boardId, respaced);
+        publishEvent(BoardEvent.CARD_CREATED, saved.getBoard().getId(), saved.getId(), saved.getState(),
+                saved.getResetTime(), saved.getLastStateChange());
+        return saved;
     }
 
+    /**
+     * Copies the edited fields of {@code updatedCard} onto the card. When {@code expectedVersion} is given,
+     * the card must still be at that version; either way the write itself is version-checked, so an edit
+     * based on a stale read fails instead of overwriting a concurrent change.
+     *
+     * @throws IllegalArgumentException if the card does not exist
+     * @throws IllegalStateException if the card is not on the board
+     * @throws ObjectOptimisticLockingFailureException if the card changed since {@code expectedVersion},
+     *         or concurrently with this update
+     */
     @Transactional
-    public Card updateCard(Long id, Card updatedCard) {
+    public Card updateCard(Long boardId, Long id, Card updatedCard, Long expectedVersion) {
         logger.debug("Updating card {} with new values: {}", id, updatedCard);
         Card card = cardRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Card not found"));
+        if (!card.getBoard().getId().equals(boardId)) {
+            throw new IllegalStateException("Access denied");
+        }
+        if (expectedVersion != null && card.getVersion() != expectedVersion) {
+            throw new ObjectOptimisticLockingFailureException(Card.class, id);
+        }
 
         // Store the current state
         CardState currentState = card.getState();
@@ -54,6 +212,9 @@ public class CardService {
         card.setTitle(updatedCard.getTitle());
         card.setDetails(updatedCard.getDetails());
         card.setResetTime(updatedCard.getResetTime());
+        if (updatedCard.getPosition() != null) {
+            card.setPosition(updatedCard.getPosition());
+        }
 
         // If state is explicitly being changed, create an audit log entry
         if (updatedCard.getState() != null && updatedCard.getState() != currentState) {
@@ -64,7 +225,8 @@ public class CardService {
             audit.setNewState(updatedCard.getState());
             audit.setTimestamp(now());
             card.setState(updatedCard.getState());
-            cardAuditRepository.save(audit);
+            card.setLastStateChange(audit.getTimestamp());
+            recordAudit(card.getBoard() != null ? card.getBoard().getId() : null, audit);
         } else {
             // Preserve the current state if not explicitly changed
             card.setState(currentState);
@@ -72,6 +234,9 @@ public class CardService {
         }
 
         card = cardRepository.save(card);
+        recordChange(card.getBoard().getId(), List.of(id));
+        trackResetSchedule(card);
+        publishEvent(BoardEvent.CARD_UPDATED, card.getBoard().getId(), id, card.getState(), card.getResetTime(), now());
         logger.debug("Card {} updated successfully, final state: {}", id, card.getState());
         return card;
     }
@@ -80,14 +245,14 @@ public class CardService {
     public Card getCard(Long id) {
         Card card = cardRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Card not found"));
-        checkAndResetCardState(card);
+        applyEffectiveState(card);
         return card;
     }
 
     @Transactional(readOnly = true)
     public List<Card> getAllCards() {
         List<Card> cards = cardRepository.findAll();
-        cards.forEach(this::checkAndResetCardState);
+        cards.forEach(this::applyEffectiveState);
         return cards;
     }
 
@@ -95,90 +260,544 @@ public class CardService {
     public List<Card> getCardsByBoardId(Long boardId) {
         logger.debug("Getting cards for board {}", boardId);
         List<Card> cards = cardRepository.findByBoardIdOrderByPosition(boardId);
-        cards.forEach(this::checkAndResetCardState);
+        cards.forEach(this::applyEffectiveState);
         return cards;
     }
 
-    @Transactional
-    public void checkAndResetCardState(Card card) {
-        if (shouldResetCard(card)) {
-            logger.info("Resetting card {} from GREEN to RED", card.getId());
-            CardState previousState = card.getState();
-            card.setState(CardState.RED);
-            cardRepository.save(card);
+    /**
+     * Returns the board's cards as listed by the API at change sequence {@code changeSeq}, from the
+     * {@link CardListCache} when another request already loaded them. Cards whose reset came due after
+     * the list was loaded show up once the reset job has written them, as with the list's ETag.
+     *
+     * @throws IllegalArgumentException if the board does not exist
+     */
+    public CardListCache.CardList getCardList(Long boardId, long changeSeq) {
+        return cardListCache.get(boardId, changeSeq, () -> {
+            // Read before the cards, so a client that syncs from here on may see a change twice but never miss one
+            Long loadedSeq = boardRepository.findChangeSeq(boardId);
+            if (loadedSeq == null) {
+                throw new IllegalArgumentException("Board not found");
+            }
+            List<Card> cards = getCardsByBoardId(boardId);
+            return new CardListCache.Snapshot(loadedSeq, cards.stream().map(CardListResponse::new).toList());
+        });
+    }
 
-            CardAudit audit = new CardAudit();
-            audit.setCard(card);
-            audit.setPreviousState(previousState);
-            audit.setNewState(CardState.RED);
-            audit.setTimestamp(now());
-            cardAuditRepository.save(audit);
+    /**
+     * Returns the state the card should be shown in right now: a GREEN card whose reset time has passed
+     * since it last changed is RED, even if the scheduled reset has not been written yet.
+     */
+    public CardState getEffectiveState(Card card) {
+        return effectiveState(card.getState(), card.getResetTime(), card.getLastStateChange());
+    }
+
+    private CardState effectiveState(CardState state, LocalTime resetTime, LocalDateTime lastStateChange) {
+        return isResetDue(state, resetTime, lastStateChange) ? CardState.RED : state;
+    }
+
+    /**
+     * Overlays the effective state onto a loaded card without persisting it; persisting resets is left
+     * to {@link #resetCards()}. The entity is marked read-only first so that an enclosing read-write
+     * transaction or open session cannot flush the in-memory state back to the database.
+     */
+    private void applyEffectiveState(Card card) {
+        CardState effectiveState = getEffectiveState(card);
+        if (effectiveState == card.getState()) {
+            return;
         }
+        if (entityManager.contains(card)) {
+            entityManager.unwrap(Session.class).setReadOnly(card, true);
+        }
+        card.setState(effectiveState);
     }
 
-    private boolean shouldResetCard(Card card) {
+    private boolean isResetDue(CardState state, LocalTime resetTime, LocalDateTime lastStateChange) {
         // If the card is not in GREEN state or has no reset time, no need to reset
-        if (card.getState() != CardState.GREEN || card.getResetTime() == null) {
+        if (state != CardState.GREEN || resetTime == null || lastStateChange == null) {
             return false;
         }
 
-        // Get the current time
-        LocalTime currentTime = LocalTime.now(clock);
-        
-        // Get the last time the card was set to GREEN
-        Optional<CardAudit> lastGreenAudit = cardAuditRepository.findTopByCardAndNewStateOrderByTimestampDesc(card, CardState.GREEN);
-        
-        if (lastGreenAudit.isEmpty()) {
-            // If we have no audit record of when it was set to GREEN, don't reset
-            return false;
+        // Reset once the first reset time after the card went GREEN has passed
+        LocalDateTime resetAt = nextResetAfter(lastStateChange, resetTime);
+        return !resetAt.isAfter(now());
+    }
+
+    /**
+     * Returns the first occurrence of {@code resetTime} strictly after {@code since}.
+     */
+    static LocalDateTime nextResetAfter(LocalDateTime since, LocalTime resetTime) {
+        LocalDateTime candidate = since.toLocalDate().atTime(resetTime);
+        return candidate.isAfter(since) ? candidate : candidate.plusDays(1);
+    }
+
+    private void trackResetSchedule(Card card) {
+        trackResetSchedule(card.getId(), card.getState(), card.getResetTime(), card.getLastStateChange());
+    }
+
+    private void trackResetSchedule(Long cardId, CardState state, LocalTime resetTime, LocalDateTime lastStateChange) {
+        if (state != CardState.GREEN || resetTime == null || lastStateChange == null) {
+            afterCommit(() -> cardResetQueue.cancel(cardId));
+            return;
         }
+        LocalDateTime resetAt = nextResetAfter(lastStateChange, resetTime);
+        afterCommit(() -> cardResetQueue.schedule(cardId, resetAt));
+    }
 
-        LocalDateTime lastGreenTime = lastGreenAudit.get().getTimestamp();
-        LocalTime resetTime = card.getResetTime();
+    /**
+     * Toggles a card on behalf of an account without loading the card or its board. The card's current
+     * state is read as a projection and written back with a conditional {@code UPDATE} that also checks
+     * board membership, so a toggle that raced with another change matches no row and is retried from
+     * the fresh state instead of overwriting it. When no row matches, access is checked on its own, and
+     * the fresh state is taken with a locking read, which sees the committed row under any isolation level.
+     *
+     * @throws IllegalArgumentException if the card does not exist on the board
+     * @throws IllegalStateException if the account cannot access the board
+     * @throws ConcurrencyFailureException if the card kept changing for {@link #MAX_TOGGLE_ATTEMPTS} attempts
+     */
+    @Transactional
+    public CardResponse toggleCardState(Long boardId, Long cardId, Long accountId) {
+        Object[] snapshot = toggleSnapshot(cardRepository.findToggleSnapshot(cardId, boardId));
+        for (int attempt = 1; attempt <= MAX_TOGGLE_ATTEMPTS; attempt++) {
+            CardState storedState = (CardState) snapshot[0];
+            LocalTime resetTime = (LocalTime) snapshot[1];
+            LocalDateTime lastStateChange = (LocalDateTime) snapshot[2];
+            // Toggle from what the user was shown, even if a due reset has not been persisted yet
+            CardState currentState = effectiveState(storedState, resetTime, lastStateChange);
+            CardState newState = (currentState == CardState.RED) ? CardState.GREEN : CardState.RED;
+            LocalDateTime now = now();
 
-        // If the reset time is after the current time, we haven't reached reset time yet
-        if (resetTime.isAfter(currentTime)) {
-            return false;
+            if (cardRepository.compareAndSetState(cardId, boardId, accountId, storedState.name(), lastStateChange,
+                    newState.name(), now) == 1) {
+                logger.info("Toggled card {} state from {} to {}", cardId, currentState, newState);
+                CardAudit audit = new CardAudit();
+                audit.setCard(entityManager.getReference(Card.class, cardId));
+                audit.setPreviousState(currentState);
+                audit.setNewState(newState);
+                audit.setTimestamp(now);
+                recordAudit(boardId, audit);
+                recordChange(boardId, List.of(cardId));
+                trackResetSchedule(cardId, newState, resetTime, now);
+                publishEvent(BoardEvent.CARD_TOGGLED, boardId, cardId, newState, resetTime, now);
+                return new CardResponse(cardId, newState);
+            }
+
+            // No row matched: either the account has no access or the card changed underneath us
+            if (boardRepository.findAccessibleChangeSeq(boardId, accountId) == null) {
+                throw new IllegalStateException("Access denied");
+            }
+            logger.debug("Card {} changed during toggle attempt {}, retrying", cardId, attempt);
+            snapshot = toggleSnapshot(cardRepository.findToggleSnapshotForUpdate(cardId, boardId));
+        }
+        throw new ConcurrencyFailureException("Card " + cardId + " is being modified concurrently");
+    }
+
+    /**
+     * Applies a batch of operations to cards on one board in a single transaction. Access is checked
+     * once, every referenced card is loaded and locked by one {@code IN} query, and the changed rows are
+     * flushed together as one JDBC batch, followed by a single change-sequence bump for the board.
+     * Operations run in request order, so several operations on one card see each other's effects. An
+     * operation on a card that is not on the board, or one that is malformed, fails on its own without
+     * affecting the rest.
+     *
+     * @throws IllegalStateException if the board does not exist or the account cannot access it
+     */
+    @Transactional
+    public CardBatchResponse applyBatch(Long boardId, Long accountId, List<CardBatchOperation> operations) {
+        Long changeSeq = boardRepository.findAccessibleChangeSeq(boardId, accountId);
+        if (changeSeq == null) {
+            throw new IllegalStateException("Access denied");
+        }
+        Set<Long> cardIds = operations.stream()
+                .map(CardBatchOperation::getCardId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(TreeSet::new));
+        Map<Long, Card> cards = new HashMap<>();
+        if (!cardIds.isEmpty()) {
+            cardRepository.findForUpdate(boardId, cardIds).forEach(card -> cards.put(card.getId(), card));
+        }
+
+        LocalDateTime now = now();
+        List<CardBatchResult> results = new ArrayList<>(operations.size());
+        Map<Long, CardState> stateBefore = new LinkedHashMap<>();
+        List<CardAudit> audits = new ArrayList<>();
+        for (int index = 0; index < operations.size(); index++) {
+            CardBatchOperation operation = operations.get(index);
+            Card card = cards.get(operation.getCardId());
+            if (card == null) {
+                results.add(CardBatchResult.failed(index, operation.getCardId(), CardBatchResult.NOT_FOUND, "Card not found"));
+                continue;
+            }
+            String invalid = validateBatchOperation(operation);
+            if (invalid != null) {
+                results.add(CardBatchResult.failed(index, card.getId(), CardBatchResult.INVALID, invalid));
+                continue;
+            }
+            CardState previousState = card.getState();
+            if (applyBatchOperation(card, operation, now, audits)) {
+                stateBefore.putIfAbsent(card.getId(), previousState);
+            }
+            results.add(CardBatchResult.ok(index, card.getId(), card.getState(), card.getPosition()));
         }
 
-        // If the last green time was before today's reset time, we should reset
-        LocalDateTime todayResetTime = LocalDateTime.now(clock).with(resetTime);
-        return lastGreenTime.isBefore(todayResetTime);
+        if (!stateBefore.isEmpty()) {
+            // Flushes the card updates as one batch before the board row is locked
+            changeSeq = recordChange(boardId, stateBefore.keySet());
+            audits.forEach(audit -> recordAudit(boardId, audit));
+            stateBefore.forEach((cardId, previousState) -> {
+                Card card = cards.get(cardId);
+                trackResetSchedule(card);
+                String type = card.getState() != previousState ? BoardEvent.CARD_TOGGLED : BoardEvent.CARD_UPDATED;
+                publishEvent(type, boardId, cardId, card.getState(), card.getResetTime(), now);
+            });
+        }
+        logger.info("Applied {} of {} batch operations to board {}", results.stream()
+                .filter(result -> CardBatchResult.OK.equals(result.getStatus())).count(), operations.size(), boardId);
+        return new CardBatchResponse(changeSeq, results);
     }
 
+    /**
+     * Moves a card to just after {@code afterCardId}, or to the top of the board when it is null, by giving
+     * it a rank halfway between its new neighbours. Only the moved card's row is written unless there is no
+     * rank left between them, in which case the board is re-spaced first; a move that leaves a gap below
+     * {@link #MIN_RANK_GAP} asks {@link #rebalanceRanks()} to re-space the board in the background.
+     *
+     * @throws IllegalStateException if the board does not exist or the account cannot access it
+     * @throws IllegalArgumentException if either card is not on the board
+     */
     @Transactional
-    public CardResponse toggleCardState(Card card) {
-        CardState newState = (card.getState() == CardState.RED) ? CardState.GREEN : CardState.RED;
-        logger.info("Toggling card {} state from {} to {}", card.getId(), card.getState(), newState);
-        
+    public Card moveCard(Long boardId, Long cardId, Long afterCardId, Long accountId) {
+        if (boardRepository.findAccessibleChangeSeq(boardId, accountId) == null) {
+            throw new IllegalStateException("Access denied");
+        }
+        Set<Long> lockedIds = new TreeSet<>();
+        lockedIds.add(cardId);
+        if (afterCardId != null) {
+            lockedIds.add(afterCardId);
+        }
+        // Locking the anchor too serializes moves into the same gap, so two cards cannot take the same rank
+        Map<Long, Card> locked = new HashMap<>();
+        cardRepository.findForUpdate(boardId, lockedIds).forEach(card -> locked.put(card.getId(), card));
+        Card card = locked.get(cardId);
+        Card anchor = afterCardId != null ? locked.get(afterCardId) : null;
+        if (card == null || (afterCardId != null && anchor == null)) {
+            throw new IllegalArgumentException("Card not found");
+        }
+
+        Set<Long> changed = new TreeSet<>();
+        RankSlot slot = findRankSlot(boardId, card, anchor);
+        if (slot == null) {
+            changed.addAll(respaceRanks(boardId));
+            slot = findRankSlot(boardId, card, anchor);
+        }
+        card.setPosition(slot.rank());
+        changed.add(cardId);
+        recordChange(boardId, changed);
+        if (slot.room() < MIN_RANK_GAP) {
+            afterCommit(() -> rankRebalanceQueue.request(boardId));
+        }
+        publishEvent(BoardEvent.CARD_UPDATED, boardId, cardId, card.getState(), card.getResetTime(), now());
+        logger.debug("Moved card {} on board {} to rank {} ({} rows re-ranked)", cardId, boardId, slot.rank(), changed.size());
+        return card;
+    }
+
+    /**
+     * A free rank for a moved card, and the smaller of the gaps it leaves to its new neighbours.
+     */
+    private record RankSlot(int rank, long room) {
+    }
+
+    /**
+     * Finds the rank halfway between {@code anchor} (or the top of the board) and the card after it,
+     * ignoring {@code card} itself. Returns null if there is no free rank there, or if the anchor shares
+     * its rank with another card and so has no well-defined successor.
+     */
+    private RankSlot findRankSlot(Long boardId, Card card, Card anchor) {
+        long rank;
+        long room;
+        if (anchor == null) {
+            Integer first = cardRepository.findFirstPosition(boardId, card.getId());
+            rank = first == null ? RANK_GAP : (long) first - RANK_GAP;
+            room = RANK_GAP;
+        } else {
+            long anchorRank = anchor.getPosition();
+            if (cardRepository.countByBoardIdAndPositionAndIdNot(boardId, anchor.getPosition(), card.getId()) > 1) {
+                return null;
+            }
+            Integer next = cardRepository.findPositionAfter(boardId, anchor.getPosition(), card.getId());
+            if (next == null) {
+                rank = anchorRank + RANK_GAP;
+                room = RANK_GAP;
+            } else if (next - anchorRank < 2) {
+                return null;
+            } else {
+                rank = anchorRank + (next - anchorRank) / 2;
+                room = rank - anchorRank;
+            }
+        }
+        if (rank < Integer.MIN_VALUE || rank > Integer.MAX_VALUE) {
+            return null;
+        }
+        return new RankSlot((int) rank, room);
+    }
+
+    /**
+     * Re-ranks the board's cards {@link #RANK_GAP} apart, keeping their order (ties broken by id).
+     *
+     * @return the ids of the cards whose rank changed
+     */
+    private List<Long> respaceRanks(Long boardId) {
+        List<Long> changed = new ArrayList<>();
+        List<Card> cards = cardRepository.findByBoardIdOrderByPositionAscIdAsc(boardId);
+        for (int index = 0; index < cards.size(); index++) {
+            Card card = cards.get(index);
+            int rank = (index + 1) * RANK_GAP;
+            if (card.getPosition() != rank) {
+                card.setPosition(rank);
+                changed.add(card.getId());
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Re-spaces the ranks of every board a move left crowded. The cards keep their relative order, so the
+     * change sequence is bumped for delta-sync clients but no events are pushed to open boards.
+     *
+     * @return the number of cards re-ranked
+     */
+    @Scheduled(fixedDelayString = "${app.ranks.rebalance-delay-ms:10000}")
+    @Transactional
+    public int rebalanceRanks() {
+        int reranked = 0;
+        // Boards are re-spaced in id order so two overlapping runs cannot deadlock on them
+        for (Long boardId : rankRebalanceQueue.drain()) {
+            List<Long> changed = respaceRanks(boardId);
+            if (!changed.isEmpty()) {
+                recordChange(boardId, changed);
+                reranked += changed.size();
+            }
+        }
+        if (reranked > 0) {
+            logger.info("Rebalanced the ranks of {} cards", reranked);
+        }
+        return reranked;
+    }
+
+    /**
+     * Returns why the operation cannot be applied, or null if it can.
+     */
+    private String validateBatchOperation(CardBatchOperation operation) {
+        if (operation.getOp() == null) {
+            return "Operation is required";
+        }
+        return switch (operation.getOp()) {
+            case CardBatchOperation.TOGGLE -> null;
+            case CardBatchOperation.SET_STATE -> operation.getState() == null ? "State is required" : null;
+            case CardBatchOperation.MOVE -> operation.getPosition() == null || operation.getPosition() < 0
+                    ? "Position must be zero or more" : null;
+            case CardBatchOperation.EDIT -> {
+                if (operation.getTitle() != null
+                        && (operation.getTitle().isBlank() || operation.getTitle().length() > MAX_TITLE_LENGTH)) {
+                    yield "Title must be between 1 and " + MAX_TITLE_LENGTH + " characters";
+                }
+                if (operation.getDetails() != null && operation.getDetails().length() > MAX_DETAILS_LENGTH) {
+                    yield "Details cannot exceed " + MAX_DETAILS_LENGTH + " characters";
+                }
+                yield null;
+            }
+            default -> "Unknown operation: " + operation.getOp();
+        };
+    }
+
+    /**
+     * Applies a validated operation to the loaded card and returns whether it changed anything.
+     */
+    private boolean applyBatchOperation(Card card, CardBatchOperation operation, LocalDateTime now,
+                                        List<CardAudit> audits) {
+        switch (operation.getOp()) {
+            case CardBatchOperation.TOGGLE -> {
+                // Toggle from what the user was shown, even if a due reset has not been persisted yet
+                CardState currentState = getEffectiveState(card);
+                changeBatchState(card, currentState, currentState == CardState.RED ? CardState.GREEN : CardState.RED,
+                        now, audits);
+                return true;
+            }
+            case CardBatchOperation.SET_STATE -> {
+                CardState currentState = getEffectiveState(card);
+                if (currentState == operation.getState()) {
+                    return false;
+                }
+                changeBatchState(card, currentState, operation.getState(), now, audits);
+                return true;
+            }
+            case CardBatchOperation.MOVE -> {
+                boolean changed = !operation.getPosition().equals(card.getPosition());
+                card.setPosition(operation.getPosition());
+                return changed;
+            }
+            case CardBatchOperation.EDIT -> {
+                boolean changed = false;
+                if (operation.getTitle() != null && !operation.getTitle().equals(card.getTitle())) {
+                    card.setTitle(operation.getTitle());
+                    changed = true;
+                }
+                if (operation.getDetails() != null && !operation.getDetails().equals(card.getDetails())) {
+                    card.setDetails(operation.getDetails());
+                    changed = true;
+                }
+                if (operation.getResetTime() != null && !operation.getResetTime().equals(card.getResetTime())) {
+                    card.setResetTime(operation.getResetTime());
+                    changed = true;
+                }
+                return changed;
+            }
+            default -> throw new IllegalArgumentException("Unknown operation: " + operation.getOp());
+        }
+    }
+
+    private void changeBatchState(Card card, CardState currentState, CardState newState, LocalDateTime now,
+                                  List<CardAudit> audits) {
         CardAudit audit = new CardAudit();
         audit.setCard(card);
-        audit.setPreviousState(card.getState());
+        audit.setPreviousState(currentState);
         audit.setNewState(newState);
-        audit.setTimestamp(now());
+        audit.setTimestamp(now);
+        audits.add(audit);
         card.setState(newState);
-        
-        cardAuditRepository.save(audit);
-        card = cardRepository.save(card);
-        logger.debug("Card {} state updated successfully", card.getId());
+        card.setLastStateChange(now);
+    }
+
+    private static Object[] toggleSnapshot(List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            throw new IllegalArgumentException("Card not found");
+        }
+        return rows.get(0);
+    }
+
+    /**
+     * Returns up to {@code limit} audit entries for the card, newest first, starting after
+     * {@code cursor} (or from the newest entry when it is null). Once the hot table runs out the
+     * page continues into the {@link AuditArchive}, so purged history stays reachable.
+     */
+    @Transactional(readOnly = true)
+    public CardAuditPage getCardAuditPage(Card card, String cursor, int limit) {
+        LocalDateTime cursorTimestamp = cursor == null ? null : CardAuditPage.cursorTimestamp(cursor);
+        Long cursorId = cursor == null ? null : CardAuditPage.cursorId(cursor);
+        // Fetch one extra row to learn whether another page exists without counting
+        Pageable pageable = PageRequest.of(0, limit + 1);
+        List<CardAuditEntry> entries = cursor == null
+                ? cardAuditRepository.findLatestEntries(card.getId(), pageable)
+                : cardAuditRepository.findEntriesBefore(card.getId(), cursorTimestamp, cursorId, pageable);
+        // Only cards created before the end of the newest archived month can have rows in the archive
+        if (entries.size() <= limit && auditArchive.mayHoldEntries(card.getCreatedAt())) {
+            if (!entries.isEmpty()) {
+                CardAuditEntry last = entries.get(entries.size() - 1);
+                cursorTimestamp = last.getTimestamp();
+                cursorId = last.getId();
+            }
+            entries = new ArrayList<>(entries);
+            entries.addAll(auditArchive.findEntriesBefore(card.getId(), card.getCreatedAt(), cursorTimestamp,
+                    cursorId, limit + 1 - entries.size()));
+        }
+        if (entries.size() <= limit) {
+            return new CardAuditPage(entries, null);
+        }
+        List<CardAuditEntry> page = entries.subList(0, limit);
+        return new CardAuditPage(page, CardAuditPage.cursorAfter(page.get(limit - 1)));
+    }
 
-        return new CardResponse(card.getId(), card.getState());
+    /**
+     * Returns the cards on the board that changed after {@code since}, checking access and reading the
+     * board's change sequence in one lookup first, so polling an idle board costs nothing more.
+     *
+     * @throws IllegalStateException if the board does not exist or the account cannot access it
+     */
+    @Transactional(readOnly = true)
+    public CardChangesResponse getCardChanges(Long boardId, Long accountId, long since) {
+        Long changeSeq = boardRepository.findAccessibleChangeSeq(boardId, accountId);
+        if (changeSeq == null) {
+            throw new IllegalStateException("Access denied");
+        }
+        if (since == changeSeq) {
+            return new CardChangesResponse(boardId, changeSeq, false, List.of());
+        }
+        // A client ahead of the board (e.g. after a restore) cannot be given a delta, so it gets everything
+        boolean full = since > changeSeq;
+        List<Card> cards = full
+                ? cardRepository.findByBoardIdOrderByPosition(boardId)
+                : cardRepository.findByBoardIdAndChangeSeqGreaterThanOrderByPosition(boardId, since);
+        cards.forEach(this::applyEffectiveState);
+        return new CardChangesResponse(boardId, changeSeq, full, cards.stream().map(CardListResponse::new).toList());
     }
 
+    @EventListener(ApplicationReadyEvent.class)
     @Transactional(readOnly = true)
-    public List<CardAudit> getCardAuditLog(Card card) {
-        return cardAuditRepository.findByCardOrderByTimestampDesc(card);
+    public void seedResetQueue() {
+        cardResetQueue.clear();
+        for (Object[] row : cardRepository.findResetSchedule(CardState.GREEN)) {
+            Long cardId = (Long) row[0];
+            LocalTime resetTime = (LocalTime) row[1];
+            LocalDateTime lastStateChange = (LocalDateTime) row[2];
+            cardResetQueue.schedule(cardId, nextResetAfter(lastStateChange, resetTime));
+        }
+        logger.info("Seeded reset queue with {} GREEN cards", cardResetQueue.size());
     }
 
+    /**
+     * Resets every card the reset queue reports as due. Each batch costs one locking {@code SELECT} of the
+     * cards still due, one {@code INSERT ... SELECT} for the audit rows and one set-based {@code UPDATE},
+     * regardless of how many cards it contains. Cards whose last state change is not before the reset
+     * instant are skipped, so a card re-toggled since it was queued is left alone.
+     *
+     * @return the number of cards flipped from GREEN to RED
+     */
     @Scheduled(cron = "0 * * * * *") // Runs every minute
     @Transactional
-    public void resetCards() {
-        logger.debug("Running scheduled card reset check");
-        LocalTime now = now().toLocalTime();
-        List<Card> cards = cardRepository.findByStateAndResetTimeLessThanEqual(CardState.GREEN, now);
-        
-        for (Card card : cards) {
-            checkAndResetCardState(card);
+    public int resetCards() {
+        LocalDateTime now = now();
+        SortedMap<LocalDateTime, List<Long>> due = cardResetQueue.pollDue(now);
+        if (due.isEmpty()) {
+            return 0;
+        }
+        // Taken off the queue now, so a failed run must put them back for the next one
+        afterRollback(() -> cardResetQueue.restore(due));
+
+        int dueCount = 0;
+        int resetCount = 0;
+        for (Map.Entry<LocalDateTime, List<Long>> entry : due.entrySet()) {
+            LocalDateTime resetAt = entry.getKey();
+            List<Long> cardIds = entry.getValue();
+            dueCount += cardIds.size();
+            for (int from = 0; from < cardIds.size(); from += RESET_BATCH_SIZE) {
+                List<Long> batch = cardIds.subList(from, Math.min(from + RESET_BATCH_SIZE, cardIds.size()));
+                // The flipped cards are known up front: the stored timestamp may be rounded, so it cannot find them
+                List<Object[]> dueCards = cardRepository.findDueForReset(batch, resetAt);
+                if (dueCards.isEmpty()) {
+                    continue;
+                }
+                List<Long> dueIds = dueCards.stream().map(row -> (Long) row[0]).toList();
+                cardAuditRepository.insertResetAudits(dueIds, resetAt, now);
+                resetCount += cardRepository.resetGreenCards(dueIds, resetAt, now);
+                recordResets(dueCards, now);
+            }
+        }
+        logger.info("Scheduled reset flipped {} of {} due cards to RED", resetCount, dueCount);
+        return resetCount;
+    }
+
+    /**
+     * Bumps the change sequence of every board that had cards reset, once per board, and publishes
+     * the resets.
+     */
+    private void recordResets(List<Object[]> flippedCards, LocalDateTime now) {
+        Map<Long, List<Long>> flippedByBoard = new TreeMap<>();
+        for (Object[] row : flippedCards) {
+            flippedByBoard.computeIfAbsent((Long) row[1], key -> new ArrayList<>()).add((Long) row[0]);
         }
+        // Boards are bumped in id order so two overlapping runs cannot deadlock on them
+        flippedByBoard.forEach((boardId, flipped) -> {
+            recordChange(boardId, flipped);
+            flipped.forEach(cardId -> publishEvent(BoardEvent.CARD_RESET, boardId, cardId, CardState.RED, null, now));
+        });
     }
 }
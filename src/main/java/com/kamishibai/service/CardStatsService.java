@@ -0,0 +1,174 @@
+package com.kamishibai.service;
+
+import com.kamishibai.model.CardDailyStats;
+import com.kamishibai.model.CardState;
+import com.kamishibai.repository.CardAuditRepository;
+import com.kamishibai.repository.CardDailyStatsRepository;
+import com.kamishibai.repository.CardRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains {@code card_daily_stats}, a one-row-per-card-per-day rollup of the audit log.
+ * <p>
+ * The job compacts whole days. Its high-water mark is the latest {@code stat_date} already written,
+ * and a day is only compacted once it ended at least {@link #GRACE_PERIOD} ago, so audit rows still
+ * sitting in the asynchronous writer's queue are included. Each day is built from that day's audit
+ * rows plus the previous day's end state, so the audit log is read once per day, not once per report.
+ */
+@Service
+public class CardStatsService {
+    static final Duration GRACE_PERIOD = Duration.ofMinutes(10);
+    private static final int MAX_DAYS_PER_RUN = 31;
+    private static final String INSERT_SQL =
+            "INSERT INTO card_daily_stats (card_id, stat_date, green_seconds, toggle_count, red_at_reset, end_state) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final Logger logger = LoggerFactory.getLogger(CardStatsService.class);
+    private final CardRepository cardRepository;
+    private final CardAuditRepository cardAuditRepository;
+    private final CardDailyStatsRepository cardDailyStatsRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final Clock clock;
+
+    public CardStatsService(CardRepository cardRepository, CardAuditRepository cardAuditRepository,
+                            CardDailyStatsRepository cardDailyStatsRepository, JdbcTemplate jdbcTemplate,
+                            Clock clock) {
+        this.cardRepository = cardRepository;
+        this.cardAuditRepository = cardAuditRepository;
+        this.cardDailyStatsRepository = cardDailyStatsRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.clock = clock;
+    }
+
+    @Transactional(readOnly = true)
+    public List<CardDailyStats> getDailyStats(Long cardId, LocalDate from, LocalDate to) {
+        return cardDailyStatsRepository.findByCardIdAndStatDateBetweenOrderByStatDate(cardId, from, to);
+    }
+
+    /**
+     * Compacts every complete day after the high-water mark, up to {@link #MAX_DAYS_PER_RUN} days per run.
+     *
+     * @return the number of days compacted
+     */
+    @Scheduled(cron = "0 15 * * * *") // Runs hourly
+    @Transactional
+    public int compactDailyStats() {
+        LocalDate lastComplete = LocalDateTime.now(clock).minus(GRACE_PERIOD).toLocalDate().minusDays(1);
+        LocalDate next = nextDayToCompact();
+        if (next == null) {
+            return 0;
+        }
+
+        int days = 0;
+        while (!next.isAfter(lastComplete) && days < MAX_DAYS_PER_RUN) {
+            compactDay(next);
+            next = next.plusDays(1);
+            days++;
+        }
+        if (days > 0) {
+            logger.info("Compacted card stats through {}", next.minusDays(1));
+        }
+        return days;
+    }
+
+    private LocalDate nextDayToCompact() {
+        LocalDate lastCompacted = cardDailyStatsRepository.findLastCompactedDate();
+        if (lastCompacted != null) {
+            return lastCompacted.plusDays(1);
+        }
+        LocalDateTime earliest = cardRepository.findEarliestCreatedAt();
+        return earliest != null ? earliest.toLocalDate() : null;
+    }
+
+    /**
+     * Rebuilds the rows for {@code day}. Cards start the day in the state the previous day ended in,
+     * or RED if they have no previous row, since cards are created RED and every change is audited.
+     */
+    void compactDay(LocalDate day) {
+        LocalDateTime dayStart = day.atStartOfDay();
+        LocalDateTime dayEnd = dayStart.plusDays(1);
+
+        Map<Long, CardState> startStates = new HashMap<>();
+        for (CardDailyStats previous : cardDailyStatsRepository.findByStatDate(day.minusDays(1))) {
+            startStates.put(previous.getCardId(), previous.getEndState());
+        }
+        Map<Long, List<Transition>> transitions = new HashMap<>();
+        for (Object[] row : cardAuditRepository.findTransitionsBetween(dayStart, dayEnd)) {
+            transitions.computeIfAbsent((Long) row[0], key -> new ArrayList<>())
+                    .add(new Transition((CardState) row[1], (LocalDateTime) row[2]));
+        }
+
+        List<Object[]> rows = new ArrayList<>();
+        for (Object[] card : cardRepository.findCreatedBefore(dayEnd)) {
+            Long cardId = (Long) card[0];
+            LocalTime resetTime = (LocalTime) card[1];
+            LocalDateTime createdAt = (LocalDateTime) card[2];
+            CardDailyStats stats = summarize(day, startStates.getOrDefault(cardId, CardState.RED),
+                    createdAt.isAfter(dayStart) ? createdAt : dayStart,
+                    resetTime, transitions.getOrDefault(cardId, List.of()));
+            rows.add(new Object[]{cardId, Date.valueOf(day), stats.getGreenSeconds(), stats.getToggleCount(),
+                    stats.isRedAtReset(), stats.getEndState().name()});
+        }
+
+        cardDailyStatsRepository.deleteByStatDate(day);
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        logger.debug("Compacted {} card stats rows for {}", rows.size(), day);
+    }
+
+    /**
+     * Walks one card's transitions for a day, in order, starting from {@code startState} at {@code from}.
+     * Every audited transition, manual or scheduled, counts as a toggle.
+     */
+    static CardDailyStats summarize(LocalDate day, CardState startState, LocalDateTime from,
+                                    LocalTime resetTime, List<Transition> transitions) {
+        LocalDateTime resetAt = resetTime != null ? day.atTime(resetTime) : null;
+        CardState state = startState;
+        LocalDateTime since = from;
+        long greenSeconds = 0;
+        Boolean redAtReset = null;
+
+        for (Transition transition : transitions) {
+            if (resetAt != null && redAtReset == null && !transition.timestamp().isBefore(resetAt)) {
+                redAtReset = state == CardState.RED && !resetAt.isBefore(from);
+            }
+            if (state == CardState.GREEN) {
+                greenSeconds += Duration.between(since, transition.timestamp()).getSeconds();
+            }
+            state = transition.newState();
+            since = transition.timestamp();
+        }
+        if (state == CardState.GREEN) {
+            greenSeconds += Duration.between(since, day.plusDays(1).atStartOfDay()).getSeconds();
+        }
+        if (resetAt != null && redAtReset == null) {
+            redAtReset = state == CardState.RED && !resetAt.isBefore(from);
+        }
+
+        CardDailyStats stats = new CardDailyStats();
+        stats.setStatDate(day);
+        stats.setGreenSeconds((int) greenSeconds);
+        stats.setToggleCount(transitions.size());
+        stats.setRedAtReset(Boolean.TRUE.equals(redAtReset));
+        stats.setEndState(state);
+        return stats;
+    }
+
+    record Transition(CardState newState, LocalDateTime timestamp) {
+    }
+}
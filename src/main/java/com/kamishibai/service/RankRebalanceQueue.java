@@ -0,0 +1,33 @@
+package com.kamishibai.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Boards whose card ranks are running out of room between neighbours and should be re-spaced by
+ * {@link CardService#rebalanceRanks()}. Held in memory only: a request lost on restart just means
+ * the next move into a full gap re-spaces the board itself.
+ */
+@Component
+public class RankRebalanceQueue {
+    private final SortedSet<Long> boardIds = new TreeSet<>();
+
+    public synchronized void request(Long boardId) {
+        boardIds.add(boardId);
+    }
+
+    /**
+     * Removes and returns every requested board, in id order.
+     */
+    public synchronized SortedSet<Long> drain() {
+        SortedSet<Long> drained = new TreeSet<>(boardIds);
+        boardIds.clear();
+        return drained;
+    }
+
+    public synchronized int size() {
+        return boardIds.size();
+    }
+}
@@ -0,0 +1,3 @@
+-- Optimistic-lock version for accounts; cached copies of an account are only ever replaced by a
+-- copy with a higher version
+ALTER TABLE accounts ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,11 @@
+-- Pooled id blocks for accounts, boards and cards (Hibernate table generator, allocation size 50),
+-- which lets inserts be batched on both H2 and MySQL. Each counter starts a full block past the
+-- current largest id, so the first block handed out cannot collide with existing rows.
+CREATE TABLE id_generators (
+    sequence_name VARCHAR(255) NOT NULL PRIMARY KEY,
+    next_val BIGINT NOT NULL
+);
+
+INSERT INTO id_generators (sequence_name, next_val) SELECT 'accounts', COALESCE(MAX(id), 0) + 51 FROM accounts;
+INSERT INTO id_generators (sequence_name, next_val) SELECT 'boards', COALESCE(MAX(id), 0) + 51 FROM boards;
+INSERT INTO id_generators (sequence_name, next_val) SELECT 'cards', COALESCE(MAX(id), 0) + 51 FROM cards;
@@ -0,0 +1,4 @@
+-- Optimistic-lock versions: PUT requests may send the version they edited (If-Match) and get a 409
+-- instead of overwriting a concurrent change
+ALTER TABLE cards ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE boards ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
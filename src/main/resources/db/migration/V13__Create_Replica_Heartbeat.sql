@@ -0,0 +1,8 @@
+-- Single-row heartbeat for the read-replica lag guard: every node writes the current time (epoch millis)
+-- to the primary, and the difference to the value the replica has replicated is its lag
+CREATE TABLE replica_heartbeat (
+    id INT NOT NULL PRIMARY KEY,
+    beat_at BIGINT NOT NULL
+);
+
+INSERT INTO replica_heartbeat (id, beat_at) VALUES (1, 0);
@@ -0,0 +1,6 @@
+-- Backfill last_state_change from the most recent audit entry, since reset checks now read it directly
+UPDATE cards
+SET last_state_change = (
+    SELECT MAX(a.timestamp) FROM card_audit_log a WHERE a.card_id = cards.id
+)
+WHERE EXISTS (SELECT 1 FROM card_audit_log a WHERE a.card_id = cards.id);
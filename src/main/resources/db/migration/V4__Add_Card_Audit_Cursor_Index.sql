@@ -0,0 +1,2 @@
+-- Lets the audit pager seek straight to a (timestamp, id) cursor for a card and read the page in index order
+CREATE INDEX idx_card_audit_card_timestamp_id ON card_audit_log (card_id, timestamp DESC, id DESC);
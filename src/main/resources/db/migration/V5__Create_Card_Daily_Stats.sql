@@ -0,0 +1,17 @@
+-- Per-card daily rollup of the audit log, filled in by the stats compaction job
+CREATE TABLE card_daily_stats (
+    card_id BIGINT NOT NULL,
+    stat_date DATE NOT NULL,
+    green_seconds INT NOT NULL DEFAULT 0,
+    toggle_count INT NOT NULL DEFAULT 0,
+    red_at_reset BOOLEAN NOT NULL DEFAULT FALSE,
+    end_state VARCHAR(20) NOT NULL,
+    PRIMARY KEY (card_id, stat_date),
+    FOREIGN KEY (card_id) REFERENCES cards(id)
+);
+
+-- The compaction job reads one day of audit rows across all cards at a time
+CREATE INDEX idx_card_audit_timestamp ON card_audit_log (timestamp);
+
+-- Compaction replaces and reads back whole days
+CREATE INDEX idx_card_daily_stats_date ON card_daily_stats (stat_date);
@@ -0,0 +1,2 @@
+-- Serves the shared-boards arm of the accessible-boards UNION; the primary key leads with board_id
+CREATE INDEX idx_board_shared_users_account ON board_shared_users (account_id, board_id);
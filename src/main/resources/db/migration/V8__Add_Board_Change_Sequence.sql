@@ -0,0 +1,7 @@
+-- Per-board change sequence for delta sync: boards.change_seq is bumped once per card change and
+-- cards.change_seq records the board sequence of the card's latest change
+ALTER TABLE boards ADD COLUMN change_seq BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE cards ADD COLUMN change_seq BIGINT NOT NULL DEFAULT 0;
+
+-- Serves "cards on this board changed after N"
+CREATE INDEX idx_cards_board_change_seq ON cards (board_id, change_seq);
@@ -0,0 +1,3 @@
+-- Lets cards be listed in board order straight from the index, and finds a card's neighbours when
+-- it is moved; positions are sparse ranks, re-spaced by the rebalancer when gaps run out
+CREATE INDEX idx_cards_board_position ON cards (board_id, position);
@@ -3,6 +3,8 @@ package com.kamishibai.config;
 import com.kamishibai.controller.AccountController;
 import com.kamishibai.controller.BoardController;
 import com.kamishibai.service.AccountService;
+import com.kamishibai.service.BoardAccessService;
+import com.kamishibai.service.BoardEventHub;
 import com.kamishibai.service.BoardService;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
@@ -19,7 +21,8 @@ public class TestControllersConfig {
 
     @Bean
     @Primary
-    public BoardController boardController(BoardService boardService, AccountService accountService) {
-        return new BoardController(boardService, accountService);
+    public BoardController boardController(BoardService boardService, AccountService accountService,
+                                           BoardEventHub boardEventHub, BoardAccessService boardAccessService) {
+        return new BoardController(boardService, accountService, boardEventHub, boardAccessService);
     }
 }
@@ -3,10 +3,14 @@ package com.kamishibai.controller;
 import com.kamishibai.config.TestDatabaseConfig;
 import com.kamishibai.config.TestSecurityConfig;
 import com.kamishibai.dto.BoardRequest;
+import com.kamishibai.dto.BoardSummary;
+import com.kamishibai.dto.BoardSummaryPage;
 import com.kamishibai.model.Account;
 import com.kamishibai.model.Board;
 import com.kamishibai.security.CustomUserDetails;
 import com.kamishibai.service.AccountService;
+import com.kamishibai.service.BoardAccessService;
+import com.kamishibai.service.BoardEventHub;
 import com.kamishibai.service.BoardService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -14,15 +18,26 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
@@ -46,6 +61,12 @@ class BoardControllerTest {
     @MockBean
     private AccountService accountService;
 
+    @MockBean
+    private BoardEventHub boardEventHub;
+
+    @MockBean
+    private BoardAccessService boardAccessService;
+
     private Board testBoard;
     private Account testAccount;
     private CustomUserDetails userDetails;
@@ -90,16 +111,161 @@ class BoardControllerTest {
                 .andExpect(jsonPath("$.description").value("Test Description"));
     }
 
+    @Test
+    void updateBoard_ShouldPassIfMatchVersion_AndReturnNewTag() throws Exception {
+        when(boardService.updateBoard(eq(1L), any(BoardRequest.class), eq(1L), eq(3L))).thenReturn(testBoard);
+
+        mockMvc.perform(put("/api/boards/1")
+                .with(csrf())
+                .with(user(userDetails))
+                .header("If-Match", "\"board-1-v3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(testBoardRequest)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"board-1-v0\""));
+    }
+
+    @Test
+    void updateBoard_ShouldReturnConflictWithCurrentBoard_WhenVersionIsStale() throws Exception {
+        when(boardService.updateBoard(eq(1L), any(BoardRequest.class), eq(1L), eq(2L)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Board.class, 1L));
+        when(boardService.getBoardById(1L, 1L)).thenReturn(Optional.of(testBoard));
+
+        mockMvc.perform(put("/api/boards/1")
+                .with(csrf())
+                .with(user(userDetails))
+                .header("If-Match", "\"board-1-v2\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(testBoardRequest)))
+                .andExpect(status().isConflict())
+                .andExpect(header().string("ETag", "\"board-1-v0\""))
+                .andExpect(jsonPath("$.board.name").value("Test Board"));
+    }
+
     @Test
     void getBoards_ShouldReturnUserBoards_WhenAuthenticated() throws Exception {
-        when(boardService.getBoardsForUser(any(Account.class))).thenReturn(Arrays.asList(testBoard));
+        BoardSummary summary = new BoardSummary(1L, "Test Board", "Test Description", 1L, "Test User",
+                LocalDateTime.now(), LocalDateTime.now(), 2, 3, 1);
+        when(boardService.getBoardSummaries(eq(1L), any(Pageable.class)))
+                .thenReturn(new BoardSummaryPage(Arrays.asList(summary), 0, 50, 1));
 
         mockMvc.perform(get("/api/boards")
                 .with(user(userDetails)))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
-                .andExpect(jsonPath("$[0].id").value(1))
-                .andExpect(jsonPath("$[0].name").value("Test Board"))
-                .andExpect(jsonPath("$[0].description").value("Test Description"));
+                .andExpect(jsonPath("$.totalCount").value(1))
+                .andExpect(jsonPath("$.boards[0].id").value(1))
+                .andExpect(jsonPath("$.boards[0].name").value("Test Board"))
+                .andExpect(jsonPath("$.boards[0].description").value("Test Description"))
+                .andExpect(jsonPath("$.boards[0].ownerName").value("Test User"))
+                .andExpect(jsonPath("$.boards[0].sharedCount").value(2))
+                .andExpect(jsonPath("$.boards[0].cardCount").value(3))
+                .andExpect(jsonPath("$.boards[0].greenCardCount").value(1))
+                .andExpect(jsonPath("$.boards[0].redCardCount").value(2))
+                .andExpect(jsonPath("$.boards[0].cards").doesNotExist());
+
+        verify(accountService, never()).getAccount(any());
+    }
+
+    @Test
+    void getBoards_ShouldPassPageAndSortToService() throws Exception {
+        when(boardService.getBoardSummaries(eq(1L), any(Pageable.class)))
+                .thenReturn(new BoardSummaryPage(List.of(), 2, 20, 40));
+
+        mockMvc.perform(get("/api/boards")
+                .param("page", "2")
+                .param("size", "20")
+                .param("sort", "lastChangedAt,desc")
+                .with(user(userDetails)))
+                .andExpect(status().isOk());
+
+        verify(boardService).getBoardSummaries(1L,
+                PageRequest.of(2, 20, Sort.by(Sort.Direction.DESC, "lastChangedAt")));
+    }
+
+    @Test
+    void getBoards_ShouldRejectBadPagingOrSort() throws Exception {
+        mockMvc.perform(get("/api/boards").param("size", "501").with(user(userDetails)))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/boards").param("sort", "name,sideways").with(user(userDetails)))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/boards").param("sort", "cards").with(user(userDetails)))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(boardService);
+    }
+
+    @Test
+    void getBoard_ShouldReturnBoardWithETag_WhenBoardIsAccessible() throws Exception {
+        when(boardService.getAccessibleChangeSeq(1L, 1L)).thenReturn(7L);
+        when(boardService.getBoardById(1L, 1L)).thenReturn(Optional.of(testBoard));
+
+        mockMvc.perform(get("/api/boards/1")
+                .with(user(userDetails)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"board-1-7\""))
+                .andExpect(header().string("Cache-Control", "no-cache, private"))
+                .andExpect(jsonPath("$.name").value("Test Board"));
+
+        // The principal carries the account id, so the account is never loaded
+        verify(accountService, never()).getAccount(any());
+    }
+
+    @Test
+    void getBoard_ShouldReturnNotModified_WithoutLoadingBoard() throws Exception {
+        when(boardService.getAccessibleChangeSeq(1L, 1L)).thenReturn(7L);
+
+        mockMvc.perform(get("/api/boards/1")
+                .header("If-None-Match", "\"board-1-7\"")
+                .with(user(userDetails)))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        verify(boardService, never()).getBoardById(any(), any());
+        verify(accountService, never()).getAccount(any());
+    }
+
+    @Test
+    void getBoard_ShouldReturnNotFound_WithoutBoardAccess() throws Exception {
+        when(boardService.getAccessibleChangeSeq(1L, 1L)).thenReturn(null);
+
+        mockMvc.perform(get("/api/boards/1")
+                .header("If-None-Match", "\"board-1-7\"")
+                .with(user(userDetails)))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void streamBoardEvents_ShouldResumeFromLastEventId_WhenBoardIsAccessible() throws Exception {
+        when(boardAccessService.canAccess(1L, testAccount.getId())).thenReturn(true);
+        when(boardEventHub.subscribe(1L, "abc-5")).thenReturn(new SseEmitter());
+
+        mockMvc.perform(get("/api/boards/1/events")
+                .header("Last-Event-ID", "abc-5")
+                .with(user(userDetails)))
+                .andExpect(request().asyncStarted());
+
+        verify(boardEventHub).subscribe(1L, "abc-5");
+    }
+
+    @Test
+    void streamBoardEvents_ShouldReturnNotFound_WithoutBoardAccess() throws Exception {
+        when(boardAccessService.canAccess(1L, testAccount.getId())).thenReturn(false);
+
+        mockMvc.perform(get("/api/boards/1/events")
+                .with(user(userDetails)))
+                .andExpect(status().isNotFound());
+
+        verifyNoInteractions(boardEventHub);
+    }
+
+    @Test
+    void streamBoardEvents_ShouldReturnServiceUnavailable_WhenSubscriberLimitIsReached() throws Exception {
+        when(boardAccessService.canAccess(1L, testAccount.getId())).thenReturn(true);
+        when(boardEventHub.subscribe(1L, null)).thenThrow(new IllegalStateException("Subscriber limit reached"));
+
+        mockMvc.perform(get("/api/boards/1/events")
+                .with(user(userDetails)))
+                .andExpect(status().isServiceUnavailable());
     }
 }
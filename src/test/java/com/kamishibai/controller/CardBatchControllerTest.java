@@ -0,0 +1,120 @@
+package com.kamishibai.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kamishibai.config.TestSecurityConfig;
+import com.kamishibai.dto.CardBatchOperation;
+import com.kamishibai.dto.CardBatchRequest;
+import com.kamishibai.dto.CardBatchResponse;
+import com.kamishibai.dto.CardBatchResult;
+import com.kamishibai.model.Account;
+import com.kamishibai.model.CardState;
+import com.kamishibai.security.CustomUserDetails;
+import com.kamishibai.service.CardService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(CardBatchController.class)
+@Import(TestSecurityConfig.class)
+class CardBatchControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockBean
+    private CardService cardService;
+
+    private CustomUserDetails userDetails;
+
+    @BeforeEach
+    void setUp() {
+        Account account = new Account();
+        account.setId(1L);
+        account.setEmail("test@example.com");
+        account.setName("Test User");
+        account.setPasswordHash("hashedPassword");
+        userDetails = new CustomUserDetails(account);
+    }
+
+    private String batchOf(List<CardBatchOperation> operations) throws Exception {
+        CardBatchRequest request = new CardBatchRequest();
+        request.setOperations(operations);
+        return objectMapper.writeValueAsString(request);
+    }
+
+    @Test
+    void applyBatch_ShouldReturnPerOperationResults() throws Exception {
+        CardBatchResponse response = new CardBatchResponse(12L, List.of(
+                CardBatchResult.ok(0, 1L, CardState.GREEN, 0),
+                CardBatchResult.failed(1, 9L, CardBatchResult.NOT_FOUND, "Card not found")));
+        when(cardService.applyBatch(eq(1L), eq(1L), anyList())).thenReturn(response);
+
+        mockMvc.perform(post("/api/boards/1/cards:batch")
+                .with(csrf())
+                .with(user(userDetails))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(batchOf(List.of(new CardBatchOperation(CardBatchOperation.TOGGLE, 1L),
+                        new CardBatchOperation(CardBatchOperation.TOGGLE, 9L)))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changeSeq").value(12))
+                .andExpect(jsonPath("$.results[0].status").value("ok"))
+                .andExpect(jsonPath("$.results[0].state").value("GREEN"))
+                .andExpect(jsonPath("$.results[1].status").value("not-found"))
+                .andExpect(jsonPath("$.results[1].index").value(1));
+    }
+
+    @Test
+    void applyBatch_ShouldRejectEmptyAndOversizedBatches() throws Exception {
+        mockMvc.perform(post("/api/boards/1/cards:batch")
+                .with(csrf())
+                .with(user(userDetails))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(batchOf(List.of())))
+                .andExpect(status().isBadRequest());
+
+        List<CardBatchOperation> tooMany = Collections.nCopies(CardBatchRequest.MAX_OPERATIONS + 1,
+                new CardBatchOperation(CardBatchOperation.TOGGLE, 1L));
+        mockMvc.perform(post("/api/boards/1/cards:batch")
+                .with(csrf())
+                .with(user(userDetails))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(batchOf(tooMany)))
+                .andExpect(status().isBadRequest());
+
+        verify(cardService, never()).applyBatch(any(), any(), any());
+    }
+
+    @Test
+    void applyBatch_ShouldReturnForbidden_WithoutBoardAccess() throws Exception {
+        when(cardService.applyBatch(eq(1L), eq(1L), any())).thenThrow(new IllegalStateException("Access denied"));
+
+        mockMvc.perform(post("/api/boards/1/cards:batch")
+                .with(csrf())
+                .with(user(userDetails))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(batchOf(List.of(new CardBatchOperation(CardBatchOperation.TOGGLE, 1L)))))
+                .andExpect(status().isForbidden());
+    }
+}
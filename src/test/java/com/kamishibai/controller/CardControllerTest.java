@@ -2,27 +2,42 @@ package com.kamishibai.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.kamishibai.config.TestSecurityConfig;
+import com.kamishibai.dto.CardAuditEntry;
+import com.kamishibai.dto.CardAuditPage;
+import com.kamishibai.dto.CardChangesResponse;
+import com.kamishibai.dto.CardListResponse;
+import com.kamishibai.dto.CardMoveRequest;
 import com.kamishibai.dto.CardRequest;
 import com.kamishibai.dto.CardResponse;
 import com.kamishibai.model.*;
 import com.kamishibai.repository.BoardRepository;
 import com.kamishibai.repository.CardRepository;
 import com.kamishibai.security.CustomUserDetails;
+import com.kamishibai.service.BoardAccessService;
+import com.kamishibai.service.CardListCache;
 import com.kamishibai.service.CardService;
+import com.kamishibai.service.CardStatsService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
+import static org.hamcrest.Matchers.hasItem;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
@@ -44,12 +59,18 @@ public class CardControllerTest {
     @MockBean
     private CardService cardService;
 
+    @MockBean
+    private CardStatsService cardStatsService;
+
     @MockBean
     private CardRepository cardRepository;
 
     @MockBean
     private BoardRepository boardRepository;
 
+    @MockBean
+    private BoardAccessService boardAccessService;
+
     private Account testAccount;
     private Board testBoard;
     private Card testCard;
@@ -79,7 +100,7 @@ public class CardControllerTest {
 
         userDetails = new CustomUserDetails(testAccount);
 
-        when(boardRepository.findById(1L)).thenReturn(Optional.of(testBoard));
+        when(boardRepository.getReferenceById(1L)).thenReturn(testBoard);
         when(cardRepository.findById(1L)).thenReturn(Optional.of(testCard));
     }
 
@@ -104,14 +125,38 @@ public class CardControllerTest {
                 .andExpect(jsonPath("$.id").value(testCard.getId()))
                 .andExpect(jsonPath("$.message").value("Card created successfully"));
 
-        verify(cardService).createCard(any(Card.class));
+        ArgumentCaptor<Card> created = ArgumentCaptor.forClass(Card.class);
+        verify(cardService).createCard(created.capture());
+        assertSame(testBoard, created.getValue().getBoard());
+        verify(boardRepository, never()).findById(any());
+    }
+
+    @Test
+    @WithMockUser
+    void createCard_ShouldReturnForbidden_WithoutLoadingBoard_WhenAccessIsDenied() throws Exception {
+        CardRequest request = new CardRequest();
+        request.setTitle("Test Card");
+        request.setPosition(0);
+        request.setResetTime(LocalTime.of(9, 0));
+        doThrow(new IllegalStateException("Access denied"))
+                .when(boardAccessService).checkAccess(1L, userDetails.getId());
+
+        mockMvc.perform(post("/api/boards/1/cards")
+                .with(csrf())
+                .with(user(userDetails))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isForbidden());
+
+        verify(boardRepository, never()).findById(any());
+        verify(cardService, never()).createCard(any());
     }
 
     @Test
     @WithMockUser
     void toggleCardState_Success() throws Exception {
         CardResponse cardResponse = new CardResponse(1L, CardState.GREEN);
-        when(cardService.toggleCardState(any(Card.class))).thenReturn(cardResponse);
+        when(cardService.toggleCardState(1L, 1L, userDetails.getId())).thenReturn(cardResponse);
 
         mockMvc.perform(post("/api/boards/1/cards/1/toggle")
                 .with(csrf())
@@ -120,28 +165,169 @@ public class CardControllerTest {
                 .andExpect(jsonPath("$.id").value(1L))
                 .andExpect(jsonPath("$.state").value(CardState.GREEN.toString()));
 
-        verify(cardService).toggleCardState(any(Card.class));
+        verify(cardService).toggleCardState(1L, 1L, userDetails.getId());
+        verifyNoInteractions(boardRepository, cardRepository);
+    }
+
+    @Test
+    @WithMockUser
+    void moveCard_ShouldReturnNewRank() throws Exception {
+        CardMoveRequest request = new CardMoveRequest();
+        request.setAfterCardId(2L);
+        testCard.setPosition(1536);
+        when(cardService.moveCard(1L, 1L, 2L, userDetails.getId())).thenReturn(testCard);
+
+        mockMvc.perform(post("/api/boards/1/cards/1/move")
+                .with(csrf())
+                .with(user(userDetails))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1L))
+                .andExpect(jsonPath("$.position").value(1536));
+
+        verifyNoInteractions(boardRepository, cardRepository);
+    }
+
+    @Test
+    @WithMockUser
+    void moveCard_ShouldMapErrors() throws Exception {
+        CardMoveRequest afterItself = new CardMoveRequest();
+        afterItself.setAfterCardId(1L);
+        mockMvc.perform(post("/api/boards/1/cards/1/move")
+                .with(csrf())
+                .with(user(userDetails))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(afterItself)))
+                .andExpect(status().isBadRequest());
+
+        when(cardService.moveCard(1L, 5L, null, userDetails.getId()))
+                .thenThrow(new IllegalArgumentException("Card not found"));
+        mockMvc.perform(post("/api/boards/1/cards/5/move")
+                .with(csrf())
+                .with(user(userDetails))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{}"))
+                .andExpect(status().isNotFound());
+
+        when(cardService.moveCard(2L, 5L, null, userDetails.getId()))
+                .thenThrow(new IllegalStateException("Access denied"));
+        mockMvc.perform(post("/api/boards/2/cards/5/move")
+                .with(csrf())
+                .with(user(userDetails))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{}"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    @WithMockUser
+    void getCardChanges_ShouldReturnDelta() throws Exception {
+        CardChangesResponse changes = new CardChangesResponse(1L, 12L, false, List.of(new CardListResponse(testCard)));
+        when(cardService.getCardChanges(1L, userDetails.getId(), 10L)).thenReturn(changes);
+
+        mockMvc.perform(get("/api/boards/1/cards/changes")
+                .param("since", "10")
+                .with(user(userDetails)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changeSeq").value(12))
+                .andExpect(jsonPath("$.full").value(false))
+                .andExpect(jsonPath("$.cards[0].id").value(testCard.getId()));
+
+        verifyNoInteractions(boardRepository, cardRepository);
+    }
+
+    @Test
+    @WithMockUser
+    void getCardChanges_ShouldReturnForbidden_WithoutAccess() throws Exception {
+        when(cardService.getCardChanges(1L, userDetails.getId(), 0L))
+                .thenThrow(new IllegalStateException("Access denied"));
+
+        mockMvc.perform(get("/api/boards/1/cards/changes")
+                .param("since", "0")
+                .with(user(userDetails)))
+                .andExpect(status().isForbidden());
     }
 
     @Test
     @WithMockUser
     void getCardAuditLog_Success() throws Exception {
-        CardAudit audit = new CardAudit();
-        audit.setId(1L);
-        audit.setCard(testCard);
-        audit.setPreviousState(CardState.RED);
-        audit.setNewState(CardState.GREEN);
+        CardAuditEntry entry = new CardAuditEntry(1L, CardState.RED, CardState.GREEN,
+                LocalDateTime.of(2025, 2, 18, 7, 0));
+        when(cardService.getCardAuditPage(any(Card.class), eq(null), eq(50)))
+                .thenReturn(new CardAuditPage(List.of(entry), "2025-02-18T07:00_1"));
 
-        when(cardService.getCardAuditLog(any(Card.class)))
-                .thenReturn(Arrays.asList(audit));
+        mockMvc.perform(get("/api/boards/1/cards/1/audit")
+                .with(user(userDetails)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.entries[0].previousState").value("RED"))
+                .andExpect(jsonPath("$.entries[0].newState").value("GREEN"))
+                .andExpect(jsonPath("$.entries[0].timestamp").value("2025-02-18T07:00:00"))
+                .andExpect(jsonPath("$.nextCursor").value("2025-02-18T07:00_1"));
+
+        verify(cardService).getCardAuditPage(any(Card.class), eq(null), eq(50));
+        verifyNoInteractions(boardRepository);
+    }
+
+    @Test
+    @WithMockUser
+    void getCardAuditLog_ShouldPassCursorAndLimit() throws Exception {
+        when(cardService.getCardAuditPage(any(Card.class), eq("2025-02-18T07:00_1"), eq(10)))
+                .thenReturn(new CardAuditPage(List.of(), null));
 
         mockMvc.perform(get("/api/boards/1/cards/1/audit")
+                .param("cursor", "2025-02-18T07:00_1")
+                .param("limit", "10")
                 .with(user(userDetails)))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$[0].previousState").value("RED"))
-                .andExpect(jsonPath("$[0].newState").value("GREEN"));
+                .andExpect(jsonPath("$.entries").isEmpty())
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
 
-        verify(cardService).getCardAuditLog(any(Card.class));
+    @Test
+    @WithMockUser
+    void getCardAuditLog_ShouldRejectMalformedCursor() throws Exception {
+        mockMvc.perform(get("/api/boards/1/cards/1/audit")
+                .param("cursor", "yesterday")
+                .with(user(userDetails)))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(cardService);
+    }
+
+    @Test
+    @WithMockUser
+    void getCardDailyStats_Success() throws Exception {
+        CardDailyStats stats = new CardDailyStats();
+        stats.setCardId(1L);
+        stats.setStatDate(LocalDate.of(2025, 2, 17));
+        stats.setGreenSeconds(3600);
+        stats.setToggleCount(2);
+        stats.setEndState(CardState.RED);
+        when(cardStatsService.getDailyStats(1L, LocalDate.of(2025, 2, 1), LocalDate.of(2025, 2, 28)))
+                .thenReturn(List.of(stats));
+
+        mockMvc.perform(get("/api/boards/1/cards/1/stats")
+                .param("from", "2025-02-01")
+                .param("to", "2025-02-28")
+                .with(user(userDetails)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].greenSeconds").value(3600))
+                .andExpect(jsonPath("$[0].toggleCount").value(2));
+
+        verifyNoInteractions(boardRepository);
+    }
+
+    @Test
+    @WithMockUser
+    void getCardDailyStats_ShouldRejectRangeLongerThanAYear() throws Exception {
+        mockMvc.perform(get("/api/boards/1/cards/1/stats")
+                .param("from", "2023-01-01")
+                .param("to", "2025-01-01")
+                .with(user(userDetails)))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(cardStatsService);
     }
 
     @Test
@@ -153,50 +339,184 @@ public class CardControllerTest {
         request.setPosition(1);
         request.setResetTime(LocalTime.of(10, 0));
 
-        when(cardService.updateCard(eq(1L), any(Card.class))).thenReturn(testCard);
+        when(cardService.updateCard(eq(1L), eq(1L), any(Card.class), isNull())).thenReturn(testCard);
 
         mockMvc.perform(put("/api/boards/1/cards/1")
                 .with(csrf())
                 .with(user(userDetails))
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(request)))
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"card-1-v0\""));
+
+        verify(cardService).updateCard(eq(1L), eq(1L), argThat(card -> "Updated Card".equals(card.getTitle())),
+                isNull());
+        verify(cardRepository, never()).findById(any());
+    }
+
+    @Test
+    @WithMockUser
+    void updateCard_ShouldReturnConflictWithCurrentCard_WhenIfMatchIsStale() throws Exception {
+        CardRequest request = new CardRequest();
+        request.setTitle("Updated Card");
+        request.setPosition(1);
+        request.setResetTime(LocalTime.of(10, 0));
+        when(cardService.updateCard(eq(1L), eq(1L), any(Card.class), eq(4L)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Card.class, 1L));
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(testCard));
 
-        verify(cardService).updateCard(eq(1L), any(Card.class));
+        mockMvc.perform(put("/api/boards/1/cards/1")
+                .with(csrf())
+                .with(user(userDetails))
+                .header("If-Match", "\"card-1-v4\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isConflict())
+                .andExpect(header().string("ETag", "\"card-1-v0\""))
+                .andExpect(jsonPath("$.card.title").value(testCard.getTitle()))
+                .andExpect(jsonPath("$.card.version").value(0));
+    }
+
+    @Test
+    @WithMockUser
+    void updateCard_ShouldTreatForeignIfMatchAsStale() throws Exception {
+        CardRequest request = new CardRequest();
+        request.setTitle("Updated Card");
+        request.setPosition(1);
+        request.setResetTime(LocalTime.of(10, 0));
+        when(cardService.updateCard(eq(1L), eq(1L), any(Card.class), eq(-1L)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Card.class, 1L));
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(testCard));
+
+        mockMvc.perform(put("/api/boards/1/cards/1")
+                .with(csrf())
+                .with(user(userDetails))
+                .header("If-Match", "\"card-2-v0\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isConflict());
     }
 
     @Test
     @WithMockUser
     void accessDenied_WhenUserIsNotBoardOwner() throws Exception {
-        Account otherAccount = new Account();
-        otherAccount.setId(2L);
-        otherAccount.setEmail("other@example.com");
-        
-        Board board = new Board();
-        board.setId(1L);
-        board.setOwner(otherAccount);
-        
-        when(boardRepository.findById(1L)).thenReturn(Optional.of(board));
+        // The lookup answers null for boards that are neither owned by nor shared with the account
+        when(boardRepository.findAccessibleChangeSeq(1L, testAccount.getId())).thenReturn(null);
 
         mockMvc.perform(get("/api/boards/1/cards")
                 .with(user(userDetails)))
                 .andExpect(status().isForbidden());
+
+        verifyNoInteractions(cardService);
     }
 
     @Test
     @WithMockUser
     void accessAllowed_WhenBoardIsShared() throws Exception {
-        Board board = new Board();
-        board.setId(1L);
-        Account owner = new Account();
-        owner.setId(2L);
-        board.setOwner(owner);
-        board.getSharedWith().add(testAccount);
-        
-        when(boardRepository.findById(1L)).thenReturn(Optional.of(board));
+        when(boardRepository.findAccessibleChangeSeq(1L, testAccount.getId())).thenReturn(0L);
+        when(cardService.getCardList(1L, 0L)).thenReturn(new CardListCache.CardList(0L, "[]".getBytes(), null));
 
         mockMvc.perform(get("/api/boards/1/cards")
                 .with(user(userDetails)))
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(header().string(CardController.CHANGE_SEQ_HEADER, "0"));
+    }
+
+    @Test
+    @WithMockUser
+    void getCards_ShouldReturnETag_AndNotModifiedWhenItMatches() throws Exception {
+        when(boardRepository.findAccessibleChangeSeq(1L, testAccount.getId())).thenReturn(12L);
+        when(cardService.getCardList(1L, 12L)).thenReturn(cardList(12L, null));
+
+        mockMvc.perform(get("/api/boards/1/cards")
+                .with(user(userDetails)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"cards-1-12\""))
+                .andExpect(jsonPath("$[0].id").value(testCard.getId()));
+
+        mockMvc.perform(get("/api/boards/1/cards")
+                .header("If-None-Match", "\"cards-1-12\"")
+                .with(user(userDetails)))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        verify(cardService, times(1)).getCardList(1L, 12L);
+        verify(boardRepository, never()).findById(any());
+    }
+
+    @Test
+    @WithMockUser
+    void getCards_ShouldTagListWithSequenceItWasLoadedAt() throws Exception {
+        // A change committed between the access lookup and the load
+        when(boardRepository.findAccessibleChangeSeq(1L, testAccount.getId())).thenReturn(12L);
+        when(cardService.getCardList(1L, 12L)).thenReturn(cardList(13L, null));
+
+        mockMvc.perform(get("/api/boards/1/cards")
+                .with(user(userDetails)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"cards-1-13\""))
+                .andExpect(header().string(CardController.CHANGE_SEQ_HEADER, "13"));
+    }
+
+    @Test
+    @WithMockUser
+    void getCards_ShouldWriteCachedBytes_GzippedOnlyForClientsAcceptingIt() throws Exception {
+        byte[] gzipped = {31, -117, 8, 0};
+        CardListCache.CardList list = cardList(12L, gzipped);
+        when(boardRepository.findAccessibleChangeSeq(1L, testAccount.getId())).thenReturn(12L);
+        when(cardService.getCardList(1L, 12L)).thenReturn(list);
+
+        mockMvc.perform(get("/api/boards/1/cards")
+                .header("Accept-Encoding", "gzip, deflate, br")
+                .with(user(userDetails)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().stringValues("Vary", hasItem("Accept-Encoding")))
+                .andExpect(content().bytes(gzipped));
+
+        mockMvc.perform(get("/api/boards/1/cards")
+                .header("Accept-Encoding", "gzip;q=0, identity")
+                .with(user(userDetails)))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(content().bytes(list.json()));
+    }
+
+    @Test
+    @WithMockUser
+    void getCards_ShouldTagEachEncodingDistinctly_AndRevalidateEither() throws Exception {
+        when(boardRepository.findAccessibleChangeSeq(1L, testAccount.getId())).thenReturn(12L);
+        when(cardService.getCardList(1L, 12L)).thenReturn(cardList(12L, new byte[] {31, -117, 8, 0}));
+
+        String gzipTag = mockMvc.perform(get("/api/boards/1/cards")
+                .header("Accept-Encoding", "gzip")
+                .with(user(userDetails)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"cards-1-12-gzip\""))
+                .andReturn().getResponse().getHeader("ETag");
+        String identityTag = mockMvc.perform(get("/api/boards/1/cards")
+                .with(user(userDetails)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"cards-1-12\""))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/boards/1/cards")
+                .header("Accept-Encoding", "gzip")
+                .header("If-None-Match", gzipTag)
+                .with(user(userDetails)))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", gzipTag));
+        mockMvc.perform(get("/api/boards/1/cards")
+                .header("If-None-Match", identityTag)
+                .with(user(userDetails)))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", identityTag));
+        verify(cardService, times(2)).getCardList(1L, 12L);
+    }
+
+    private CardListCache.CardList cardList(long changeSeq, byte[] gzippedJson) throws Exception {
+        byte[] json = objectMapper.writeValueAsBytes(List.of(new CardListResponse(testCard)));
+        return new CardListCache.CardList(changeSeq, json, gzippedJson);
     }
 }
@@ -0,0 +1,132 @@
+package com.kamishibai.datasource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Clock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Routes between two in-memory H2 databases standing in for a primary and its replica; replication of
+ * the heartbeat is simulated by writing it to the replica directly.
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    private final Clock clock = mock(Clock.class);
+    private JdbcTemplate primaryJdbc;
+    private JdbcTemplate replicaJdbc;
+    private SwitchableDataSource replica;
+    private ReplicaLagMonitor monitor;
+    private JdbcTemplate routedJdbc;
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+
+    @BeforeEach
+    void setUp() {
+        DataSource primary = database("routing_primary", "primary");
+        replica = new SwitchableDataSource(database("routing_replica", "replica"));
+        primaryJdbc = new JdbcTemplate(primary);
+        replicaJdbc = new JdbcTemplate(replica);
+        when(clock.millis()).thenReturn(NOW);
+
+        monitor = new ReplicaLagMonitor(primaryJdbc, replicaJdbc, 5_000, clock);
+        DataSource routed = new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primary, replica, monitor));
+        routedJdbc = new JdbcTemplate(routed);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(routed);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readWrite = new TransactionTemplate(transactionManager);
+    }
+
+    private static DataSource database(String name, String role) {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("DROP TABLE IF EXISTS replica_heartbeat");
+        jdbc.execute("DROP TABLE IF EXISTS whoami");
+        jdbc.execute("CREATE TABLE replica_heartbeat (id INT PRIMARY KEY, beat_at BIGINT NOT NULL)");
+        jdbc.update("INSERT INTO replica_heartbeat (id, beat_at) VALUES (1, 0)");
+        jdbc.execute("CREATE TABLE whoami (role VARCHAR(20))");
+        jdbc.update("INSERT INTO whoami (role) VALUES (?)", role);
+        return dataSource;
+    }
+
+    private void replicateHeartbeat(long beatAt) {
+        replicaJdbc.update(ReplicaLagMonitor.WRITE_HEARTBEAT_SQL, beatAt);
+    }
+
+    private String servedBy(TransactionTemplate transaction) {
+        return transaction.execute(status -> routedJdbc.queryForObject("SELECT role FROM whoami", String.class));
+    }
+
+    @Test
+    void readOnlyTransactions_ShouldUseReplica_OnlyOnceItIsCaughtUp() {
+        assertThat(servedBy(readOnly)).isEqualTo("primary");
+
+        replicateHeartbeat(NOW - 800);
+        monitor.check();
+
+        assertThat(monitor.getLagMillis()).isEqualTo(800);
+        assertThat(servedBy(readOnly)).isEqualTo("replica");
+        assertThat(servedBy(readWrite)).isEqualTo("primary");
+        assertThat(routedJdbc.queryForObject("SELECT role FROM whoami", String.class)).isEqualTo("primary");
+        // The check also wrote the heartbeat the replica is measured against next time
+        assertThat(primaryJdbc.queryForObject(ReplicaLagMonitor.READ_HEARTBEAT_SQL, Long.class)).isEqualTo(NOW);
+    }
+
+    @Test
+    void readOnlyTransactions_ShouldFallBackToPrimary_WhileReplicaLags() {
+        replicateHeartbeat(NOW - 800);
+        monitor.check();
+
+        replicateHeartbeat(NOW - 800);
+        when(clock.millis()).thenReturn(NOW + 10_000);
+        monitor.check();
+
+        assertThat(monitor.isReplicaUsable()).isFalse();
+        assertThat(servedBy(readOnly)).isEqualTo("primary");
+    }
+
+    @Test
+    void readOnlyTransactions_ShouldFallBackToPrimary_WhenReplicaIsDown() {
+        replicateHeartbeat(NOW);
+        monitor.check();
+        replica.down = true;
+
+        assertThat(servedBy(readOnly)).isEqualTo("primary");
+        assertThat(monitor.isReplicaUsable()).isFalse();
+
+        replica.down = false;
+        monitor.check();
+        assertThat(servedBy(readOnly)).isEqualTo("replica");
+    }
+
+    private static class SwitchableDataSource extends DelegatingDataSource {
+        private volatile boolean down;
+
+        SwitchableDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (down) {
+                throw new SQLException("Connection refused");
+            }
+            return super.getConnection();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.kamishibai.integration;
+
+import com.kamishibai.dto.BoardView;
+import com.kamishibai.model.Account;
+import com.kamishibai.model.Board;
+import com.kamishibai.model.Card;
+import com.kamishibai.model.CardState;
+import com.kamishibai.security.CustomUserDetails;
+import com.kamishibai.service.BoardViewAssembler;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.MockMvcPrint;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Counts the statements behind the board page, so a lazy association touched while rendering it
+ * (one query per share or per card) fails the build.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+// Printing the result would call Board.toString, which counts the lazy card collection
+@AutoConfigureMockMvc(print = MockMvcPrint.NONE)
+@ActiveProfiles("test")
+@Transactional
+class BoardViewQueryCountTest {
+
+    // Board with owner and the access check, then its cards
+    private static final int ASSEMBLER_QUERY_BUDGET = 2;
+    // The access and ETag lookup, then the assembler
+    private static final int PAGE_QUERY_BUDGET = 1 + ASSEMBLER_QUERY_BUDGET;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BoardViewAssembler boardViewAssembler;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Account owner;
+    private Account sharedUser;
+    private Account stranger;
+    private Board board;
+
+    private Account persistAccount(String name) {
+        Account account = new Account();
+        account.setEmail(name.toLowerCase() + "-view@example.com");
+        account.setName(name);
+        account.setPasswordHash("hashedPassword");
+        entityManager.persist(account);
+        return account;
+    }
+
+    @BeforeEach
+    void setUp() {
+        owner = persistAccount("Owner");
+        sharedUser = persistAccount("Shared");
+        stranger = persistAccount("Stranger");
+        Account otherShare = persistAccount("Other");
+
+        board = new Board();
+        board.setName("Line 1");
+        board.setOwner(owner);
+        board.getSharedWith().add(sharedUser);
+        board.getSharedWith().add(otherShare);
+        entityManager.persist(board);
+
+        for (int i = 0; i < 6; i++) {
+            Card card = new Card();
+            card.setTitle("Check " + i);
+            card.setPosition((i + 1) * 1024);
+            card.setState(i % 2 == 0 ? CardState.RED : CardState.GREEN);
+            card.setBoard(board);
+            card.setResetTime(LocalTime.of(23, 59));
+            card.setLastStateChange(LocalDateTime.of(2025, 2, 18, 21, 0));
+            entityManager.persist(card);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void assemble_ShouldLoadBoardAndCardsWithinBudget() {
+        BoardView view = boardViewAssembler.assemble(board.getId(), sharedUser.getId()).orElseThrow();
+
+        // Touch everything the page renders; the shares are not needed, so they must not be loaded
+        assertThat(view.getBoard().getOwner().getName()).isEqualTo("Owner");
+        assertThat(Hibernate.isInitialized(view.getBoard().getSharedWith())).isFalse();
+        assertThat(view.getRedCards()).extracting(Card::getTitle).containsExactly("Check 0", "Check 2", "Check 4");
+        assertThat(view.getGreenCards()).extracting(Card::getTitle).containsExactly("Check 1", "Check 3", "Check 5");
+        assertThat(view.getRedCards()).allSatisfy(card -> assertThat(card.getBoard().getName()).isEqualTo("Line 1"));
+
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(ASSEMBLER_QUERY_BUDGET);
+    }
+
+    @Test
+    void assemble_ShouldBeEmpty_WithoutAccess() {
+        assertThat(boardViewAssembler.assemble(board.getId(), stranger.getId())).isEmpty();
+        assertThat(boardViewAssembler.assemble(-1L, owner.getId())).isEmpty();
+    }
+
+    @Test
+    void viewBoard_ShouldRenderWithinQueryBudget() throws Exception {
+        mockMvc.perform(get("/boards/" + board.getId()).with(user(new CustomUserDetails(owner))))
+                .andExpect(status().isOk());
+
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(PAGE_QUERY_BUDGET);
+    }
+}
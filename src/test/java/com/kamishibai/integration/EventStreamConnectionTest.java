@@ -0,0 +1,71 @@
+package com.kamishibai.integration;
+
+import com.kamishibai.model.Account;
+import com.kamishibai.model.Board;
+import com.kamishibai.repository.AccountRepository;
+import com.kamishibai.repository.BoardRepository;
+import com.kamishibai.security.CustomUserDetails;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.sql.DataSource;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Opens a board event stream through the whole web stack and checks that it does not keep a pooled
+ * connection for as long as it stays open, as an open-in-view session would.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class EventStreamConnectionTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private BoardRepository boardRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void streamBoardEvents_ShouldReleaseConnection_WhileStreamIsOpen() throws Exception {
+        Account owner = new Account();
+        owner.setEmail(UUID.randomUUID() + "@example.com");
+        owner.setName("Owner");
+        owner.setPasswordHash("hashedPassword");
+        owner = accountRepository.save(owner);
+        Board board = new Board();
+        board.setName("Line 1");
+        board.setOwner(owner);
+        board = boardRepository.save(board);
+
+        MvcResult stream = mockMvc.perform(get("/api/boards/" + board.getId() + "/events")
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .with(user(new CustomUserDetails(owner))))
+                .andExpect(status().isOk())
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // The access check ran against the database, and the stream is still open
+        assertThat(stream.getRequest().isAsyncStarted()).isTrue();
+        assertThat(((HikariDataSource) dataSource).getHikariPoolMXBean().getActiveConnections()).isZero();
+    }
+}
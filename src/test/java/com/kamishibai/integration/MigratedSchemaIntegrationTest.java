@@ -0,0 +1,163 @@
+package com.kamishibai.integration;
+
+import com.kamishibai.model.Account;
+import com.kamishibai.model.Board;
+import com.kamishibai.model.Card;
+import com.kamishibai.model.CardDailyStats;
+import com.kamishibai.model.CardState;
+import com.kamishibai.repository.AccountRepository;
+import com.kamishibai.repository.BoardRepository;
+import com.kamishibai.repository.CardAuditRepository;
+import com.kamishibai.repository.CardDailyStatsRepository;
+import com.kamishibai.repository.CardRepository;
+import com.kamishibai.service.AuditArchive;
+import com.kamishibai.service.AuditLogWriter;
+import com.kamishibai.service.BoardEventHub;
+import com.kamishibai.service.BoardService;
+import com.kamishibai.service.CardListCache;
+import com.kamishibai.service.CardResetQueue;
+import com.kamishibai.service.CardService;
+import com.kamishibai.service.RankRebalanceQueue;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs against the schema the Flyway migrations build, rather than the one Hibernate derives from the
+ * entities in the other tests, so foreign keys and defaults are the ones production has.
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:migrated;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+    "spring.flyway.enabled=true",
+    "spring.flyway.locations=classpath:db/migration,classpath:db/vendor/{vendor}",
+    "spring.jpa.hibernate.ddl-auto=none"
+})
+@ActiveProfiles("test")
+class MigratedSchemaIntegrationTest {
+
+    @Autowired
+    private BoardService boardService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private BoardRepository boardRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private CardDailyStatsRepository cardDailyStatsRepository;
+
+    @Autowired
+    private CardAuditRepository cardAuditRepository;
+
+    @Autowired
+    private AuditLogWriter auditLogWriter;
+
+    @Autowired
+    private AuditArchive auditArchive;
+
+    @Autowired
+    private BoardEventHub boardEventHub;
+
+    @Autowired
+    private CardListCache cardListCache;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Board createBoard() {
+        Account owner = new Account();
+        owner.setEmail(UUID.randomUUID() + "@example.com");
+        owner.setName("Owner");
+        owner.setPasswordHash("hash");
+        owner = accountRepository.save(owner);
+
+        Board board = new Board();
+        board.setName("Line 1");
+        board.setOwner(owner);
+        return boardRepository.save(board);
+    }
+
+    private Card createGreenCard(Board board, LocalTime resetTime, LocalDateTime lastStateChange) {
+        Card card = new Card();
+        card.setTitle("Lights");
+        card.setPosition(1024);
+        card.setState(CardState.GREEN);
+        card.setResetTime(resetTime);
+        card.setLastStateChange(lastStateChange);
+        card.setBoard(board);
+        return cardRepository.save(card);
+    }
+
+    @Test
+    void deleteBoard_ShouldRemoveCompactedStatsOfItsCards() {
+        Board board = createBoard();
+        Account owner = board.getOwner();
+        Card card = createGreenCard(board, LocalTime.of(6, 0), LocalDateTime.of(2025, 2, 17, 7, 0));
+
+        CardDailyStats stats = new CardDailyStats();
+        stats.setCardId(card.getId());
+        stats.setStatDate(LocalDate.of(2025, 2, 17));
+        stats.setGreenSeconds(3600);
+        stats.setToggleCount(1);
+        stats.setEndState(CardState.GREEN);
+        cardDailyStatsRepository.save(stats);
+
+        boardService.deleteBoard(board.getId(), owner.getId());
+
+        assertThat(boardRepository.existsById(board.getId())).isFalse();
+        assertThat(cardRepository.existsById(card.getId())).isFalse();
+        assertThat(cardDailyStatsRepository.findByCardIdAndStatDateBetweenOrderByStatDate(card.getId(),
+                LocalDate.of(2025, 2, 1), LocalDate.of(2025, 2, 28))).isEmpty();
+    }
+
+    @Test
+    void resetCards_ShouldRecordResets_WhenColumnDropsFractionalSeconds() {
+        Board board = createBoard();
+        Card card = createGreenCard(board, LocalTime.of(20, 0), LocalDateTime.of(2025, 2, 18, 18, 0));
+        long changeSeq = boardRepository.findChangeSeq(board.getId());
+        // MySQL's TIMESTAMP keeps whole seconds, so the stored reset instant differs from the clock's
+        jdbcTemplate.execute("ALTER TABLE cards ALTER COLUMN last_state_change SET DATA TYPE TIMESTAMP(0)");
+        try {
+            Clock clock = Clock.fixed(LocalDateTime.of(2025, 2, 18, 20, 30, 0, 600_000_000).toInstant(ZoneOffset.UTC),
+                    ZoneOffset.UTC);
+            CardResetQueue queue = new CardResetQueue();
+            queue.schedule(card.getId(), LocalDateTime.of(2025, 2, 18, 20, 0));
+            CardService service = new CardService(cardRepository, cardAuditRepository, boardRepository, queue,
+                    new RankRebalanceQueue(), auditLogWriter, auditArchive, boardEventHub, cardListCache,
+                    entityManager, clock);
+
+            Integer reset = new TransactionTemplate(transactionManager).execute(status -> service.resetCards());
+
+            assertThat(reset).isEqualTo(1);
+            assertThat(cardRepository.findById(card.getId()).orElseThrow().getState()).isEqualTo(CardState.RED);
+            // The reset counts as a change of the board, so pollers and cached card lists see it
+            assertThat(boardRepository.findChangeSeq(board.getId())).isGreaterThan(changeSeq);
+        } finally {
+            jdbcTemplate.execute("ALTER TABLE cards ALTER COLUMN last_state_change SET DATA TYPE TIMESTAMP(6)");
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.kamishibai.integration;
+
+import com.kamishibai.datasource.ReplicaLagMonitor;
+import com.kamishibai.model.Account;
+import com.kamishibai.model.Board;
+import com.kamishibai.repository.AccountRepository;
+import com.kamishibai.service.BoardService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the application with a replica configured, and checks that one open-in-view session sends its
+ * read-only transaction to the replica and its next, writing transaction back to the primary, and that a
+ * replica trailing the primary does not keep an owner out of a board they just created.
+ */
+@SpringBootTest(properties = {
+    "app.datasource.replica.url=jdbc:h2:mem:replicadb;DB_CLOSE_DELAY=-1",
+    "app.datasource.replica.username=sa",
+    // Checks are run by the test
+    "app.datasource.replica.check-interval-ms=3600000"
+})
+@ActiveProfiles("test")
+class ReplicaRoutingIntegrationTest {
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    @Autowired
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private Clock clock;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private BoardService boardService;
+
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        prepare(new JdbcTemplate(primaryDataSource), "primary", 0);
+        prepare(new JdbcTemplate(replicaDataSource), "replica", clock.millis());
+        replicaLagMonitor.check();
+
+        // What OpenEntityManagerInViewInterceptor does at the start of a request
+        entityManager = entityManagerFactory.createEntityManager();
+        TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(entityManager));
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+        entityManager.close();
+    }
+
+    private static void prepare(JdbcTemplate jdbc, String role, long heartbeat) {
+        jdbc.execute("DROP TABLE IF EXISTS replica_heartbeat");
+        jdbc.execute("DROP TABLE IF EXISTS whoami");
+        jdbc.execute("CREATE TABLE replica_heartbeat (id INT PRIMARY KEY, beat_at BIGINT NOT NULL)");
+        jdbc.update("INSERT INTO replica_heartbeat (id, beat_at) VALUES (1, ?)", heartbeat);
+        jdbc.execute("CREATE TABLE whoami (role VARCHAR(20))");
+        jdbc.update("INSERT INTO whoami (role) VALUES (?)", role);
+    }
+
+    private static final List<String> BOARD_TABLES = List.of("ACCOUNTS", "BOARDS", "BOARD_SHARED_USERS");
+
+    /**
+     * Gives the replica the primary's board tables, empty, as a replica that has not yet seen any of their
+     * rows would be.
+     */
+    private void createBoardTablesOnReplica() {
+        JdbcTemplate primary = new JdbcTemplate(primaryDataSource);
+        JdbcTemplate replica = new JdbcTemplate(replicaDataSource);
+        replica.execute("DROP TABLE IF EXISTS BOARD_SHARED_USERS, BOARDS, ACCOUNTS");
+        primary.queryForList("SCRIPT NODATA TABLE " + String.join(", ", BOARD_TABLES), String.class).stream()
+                .filter(statement -> statement.startsWith("CREATE MEMORY TABLE")
+                        || statement.startsWith("CREATE CACHED TABLE"))
+                .forEach(replica::execute);
+    }
+
+    /**
+     * Copies the primary's board tables to the replica, as replication catching up would.
+     */
+    private void catchUpReplica() {
+        JdbcTemplate primary = new JdbcTemplate(primaryDataSource);
+        JdbcTemplate replica = new JdbcTemplate(replicaDataSource);
+        for (String table : BOARD_TABLES) {
+            replica.execute("DELETE FROM " + table);
+            for (Map<String, Object> row : primary.queryForList("SELECT * FROM " + table)) {
+                String columns = String.join(", ", row.keySet());
+                String values = row.keySet().stream().map(column -> "?").collect(Collectors.joining(", "));
+                replica.update("INSERT INTO " + table + " (" + columns + ") VALUES (" + values + ")",
+                        row.values().toArray());
+            }
+        }
+    }
+
+    private String servedBy(boolean readOnly) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status ->
+                (String) entityManager.createNativeQuery("SELECT role FROM whoami").getSingleResult());
+    }
+
+    @Test
+    void sameSession_ShouldRouteEachTransactionOnItsOwn() {
+        assertThat(replicaLagMonitor.isReplicaUsable()).isTrue();
+
+        assertThat(servedBy(true)).isEqualTo("replica");
+        assertThat(servedBy(false)).isEqualTo("primary");
+        assertThat(servedBy(true)).isEqualTo("replica");
+    }
+
+    @Test
+    void readOnlyTransaction_ShouldUsePrimary_WhileReplicaLags() {
+        new JdbcTemplate(replicaDataSource).update("UPDATE replica_heartbeat SET beat_at = ? WHERE id = 1",
+                clock.millis() - 60_000);
+        replicaLagMonitor.check();
+
+        assertThat(servedBy(true)).isEqualTo("primary");
+    }
+
+    @Test
+    void getBoardById_ShouldLetOwnerIn_OnceLaggingReplicaCatchesUp() {
+        createBoardTablesOnReplica();
+        Account owner = new Account();
+        owner.setEmail(UUID.randomUUID() + "@example.com");
+        owner.setName("Owner");
+        owner.setPasswordHash("hashedPassword");
+        owner = accountRepository.save(owner);
+        Board board = new Board();
+        board.setName("Line 1");
+        Long boardId = boardService.createBoard(board, owner).getId();
+        Long ownerId = owner.getId();
+        // The get comes in a request of its own
+        entityManager.clear();
+
+        // The replica is within the allowed lag but has not seen the new board yet
+        assertThat(replicaLagMonitor.isReplicaUsable()).isTrue();
+        assertThat(boardService.getBoardById(boardId, ownerId)).isEmpty();
+
+        catchUpReplica();
+
+        assertThat(boardService.getBoardById(boardId, ownerId)).isPresent();
+    }
+}
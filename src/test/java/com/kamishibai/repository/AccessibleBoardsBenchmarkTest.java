@@ -0,0 +1,110 @@
+package com.kamishibai.repository;
+
+import com.kamishibai.dto.BoardSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the plan of the old OR + membership-subquery lookup with the accessible-boards UNION over
+ * 10k accounts and 100k boards. Excluded from {@code test}; run it with {@code ./gradlew benchmark}.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Tag("benchmark")
+class AccessibleBoardsBenchmarkTest {
+
+    private static final int ACCOUNTS = 10_000;
+    private static final int BOARDS = 100_000;
+    private static final int SHARES_PER_BOARD = 2;
+    private static final int RUNS = 20;
+
+    // What Hibernate generated for "b.owner = :user OR :user MEMBER OF b.sharedWith"
+    private static final String LEGACY_SQL =
+            "SELECT b.* FROM boards b WHERE b.owner_id = ? OR ? IN " +
+            "(SELECT s.account_id FROM board_shared_users s WHERE s.board_id = b.id)";
+    private static final String UNION_SQL =
+            "SELECT b.* FROM (SELECT id AS board_id FROM boards WHERE owner_id = ? " +
+            "UNION SELECT board_id FROM board_shared_users WHERE account_id = ?) accessible " +
+            "JOIN boards b ON b.id = accessible.board_id";
+
+    private final Logger logger = LoggerFactory.getLogger(AccessibleBoardsBenchmarkTest.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private BoardRepository boardRepository;
+
+    @BeforeEach
+    void seed() {
+        List<Object[]> accounts = new ArrayList<>();
+        for (long id = 1; id <= ACCOUNTS; id++) {
+            accounts.add(new Object[]{id, "user" + id + "@example.com", "User " + id});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO accounts (id, email, name, password_hash, created_at, updated_at) " +
+                "VALUES (?, ?, ?, 'hash', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)", accounts);
+
+        List<Object[]> boards = new ArrayList<>();
+        List<Object[]> shares = new ArrayList<>();
+        for (long id = 1; id <= BOARDS; id++) {
+            long owner = (id % ACCOUNTS) + 1;
+            boards.add(new Object[]{id, "Board " + id, owner});
+            for (int i = 1; i <= SHARES_PER_BOARD; i++) {
+                shares.add(new Object[]{id, ((owner + i * 7919) % ACCOUNTS) + 1});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO boards (id, name, owner_id, created_at, updated_at) " +
+                "VALUES (?, ?, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)", boards);
+        jdbcTemplate.batchUpdate("INSERT INTO board_shared_users (board_id, account_id) VALUES (?, ?)", shares);
+    }
+
+    @Test
+    void unionUsesIndexesWhereOrScansBoards() {
+        long accountId = ACCOUNTS / 2;
+        String legacyPlan = explain(LEGACY_SQL, accountId);
+        String unionPlan = explain(UNION_SQL, accountId);
+        logger.info("OR + MEMBER OF plan:\n{}", legacyPlan);
+        logger.info("UNION plan:\n{}", unionPlan);
+
+        long legacyNanos = time(() -> jdbcTemplate.queryForList(LEGACY_SQL, accountId, accountId));
+        long unionNanos = time(() -> jdbcTemplate.queryForList(UNION_SQL, accountId, accountId));
+        logger.info("Average per lookup: OR + MEMBER OF {} us, UNION {} us",
+                legacyNanos / RUNS / 1000, unionNanos / RUNS / 1000);
+
+        assertThat(legacyPlan).containsIgnoringCase("BOARDS.tableScan");
+        assertThat(unionPlan).doesNotContainIgnoringCase("tableScan");
+        // Both arms are index lookups; which index serves the shared arm depends on the schema's key order
+        assertThat(unionPlan).containsPattern("INDEX_\\w+: OWNER_ID = \\?1");
+        assertThat(unionPlan).containsPattern("\\w+: ACCOUNT_ID = \\?2");
+
+        List<BoardSummary> boards = boardRepository.findAccessibleBoardSummaries(accountId);
+        assertThat(boards).hasSize(jdbcTemplate.queryForList(LEGACY_SQL, accountId, accountId).size());
+    }
+
+    private String explain(String sql, long accountId) {
+        return jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, accountId, accountId).stream()
+                .collect(Collectors.joining("\n"));
+    }
+
+    private long time(Runnable lookup) {
+        lookup.run(); // warm up
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            lookup.run();
+        }
+        return System.nanoTime() - start;
+    }
+}
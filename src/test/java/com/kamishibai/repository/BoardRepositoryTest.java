@@ -1,16 +1,25 @@
 package com.kamishibai.repository;
 
+import com.kamishibai.dto.BoardSummary;
 import com.kamishibai.model.Account;
 import com.kamishibai.model.Board;
+import com.kamishibai.model.Card;
+import com.kamishibai.model.CardState;
+import org.hibernate.Hibernate;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.time.LocalTime;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @DataJpaTest
 @ActiveProfiles("test")
@@ -23,7 +32,7 @@ class BoardRepositoryTest {
     private BoardRepository boardRepository;
 
     @Test
-    void findByOwnerOrSharedWith_ShouldReturnOwnedBoards() {
+    void findAccessibleBoardSummaries_ShouldReturnOwnedBoards() {
         // Arrange
         Account owner = new Account();
         owner.setEmail("owner@example.com");
@@ -39,16 +48,17 @@ class BoardRepositoryTest {
         entityManager.flush();
 
         // Act
-        List<Board> boards = boardRepository.findByOwnerOrSharedWith(owner, owner);
+        List<BoardSummary> boards = boardRepository.findAccessibleBoardSummaries(owner.getId());
 
         // Assert
         assertThat(boards).hasSize(1);
         assertThat(boards.get(0).getName()).isEqualTo("Test Board");
-        assertThat(boards.get(0).getOwner()).isEqualTo(owner);
+        assertThat(boards.get(0).getOwnerId()).isEqualTo(owner.getId());
+        assertThat(boards.get(0).getOwnerName()).isEqualTo("Owner");
     }
 
     @Test
-    void findByOwnerOrSharedWith_ShouldReturnSharedBoards() {
+    void findAccessibleBoardSummaries_ShouldReturnSharedBoards() {
         // Arrange
         Account owner = new Account();
         owner.setEmail("owner@example.com");
@@ -71,11 +81,189 @@ class BoardRepositoryTest {
         entityManager.flush();
 
         // Act
-        List<Board> boards = boardRepository.findByOwnerOrSharedWith(sharedUser, sharedUser);
+        List<BoardSummary> boards = boardRepository.findAccessibleBoardSummaries(sharedUser.getId());
 
         // Assert
         assertThat(boards).hasSize(1);
         assertThat(boards.get(0).getName()).isEqualTo("Shared Board");
-        assertThat(boards.get(0).getSharedWith()).contains(sharedUser);
+        assertThat(boards.get(0).getOwnerId()).isEqualTo(owner.getId());
+    }
+
+    @Test
+    void findAccessibleBoardSummaries_ShouldListBoardOnce_AndCountCards() {
+        // Arrange: the owner has also been added to the share list of their own board
+        Account owner = new Account();
+        owner.setEmail("owner@example.com");
+        owner.setName("Owner");
+        owner.setPasswordHash("hashedPassword");
+        entityManager.persist(owner);
+
+        Board board = new Board();
+        board.setName("Test Board");
+        board.setOwner(owner);
+        board.getSharedWith().add(owner);
+        entityManager.persist(board);
+
+        for (CardState state : List.of(CardState.GREEN, CardState.RED, CardState.RED)) {
+            Card card = new Card();
+            card.setTitle("Card");
+            card.setPosition(0);
+            card.setState(state);
+            card.setBoard(board);
+            card.setResetTime(LocalTime.of(8, 0));
+            entityManager.persist(card);
+        }
+        entityManager.flush();
+
+        // Act
+        List<BoardSummary> boards = boardRepository.findAccessibleBoardSummaries(owner.getId());
+
+        // Assert
+        assertThat(boards).hasSize(1);
+        assertThat(boards.get(0).getCardCount()).isEqualTo(3);
+        assertThat(boards.get(0).getGreenCardCount()).isEqualTo(1);
+    }
+
+    @Test
+    void incrementChangeSeqForAccount_ShouldBumpOwnedAndSharedBoardsOnly() {
+        // Arrange
+        Account member = new Account();
+        member.setEmail("member@example.com");
+        member.setName("Member");
+        member.setPasswordHash("hashedPassword");
+        entityManager.persist(member);
+
+        Account other = new Account();
+        other.setEmail("other@example.com");
+        other.setName("Other");
+        other.setPasswordHash("hashedPassword");
+        entityManager.persist(other);
+
+        Board owned = new Board();
+        owned.setName("Owned Board");
+        owned.setOwner(member);
+        entityManager.persist(owned);
+
+        Board shared = new Board();
+        shared.setName("Shared Board");
+        shared.setOwner(other);
+        shared.getSharedWith().add(member);
+        entityManager.persist(shared);
+
+        Board unrelated = new Board();
+        unrelated.setName("Unrelated Board");
+        unrelated.setOwner(other);
+        entityManager.persist(unrelated);
+        entityManager.flush();
+
+        // Act
+        int bumped = boardRepository.incrementChangeSeqForAccount(member.getId());
+
+        // Assert
+        assertThat(bumped).isEqualTo(2);
+        assertThat(boardRepository.findChangeSeq(owned.getId())).isEqualTo(1L);
+        assertThat(boardRepository.findChangeSeq(shared.getId())).isEqualTo(1L);
+        assertThat(boardRepository.findChangeSeq(unrelated.getId())).isZero();
+    }
+
+    @Test
+    void findAccessibleBoardSummaries_ShouldPageAndSortWithTotal() {
+        // Arrange: three boards with 0, 1 and 2 red cards, shared with 0, 1 and 0 accounts
+        Account owner = new Account();
+        owner.setEmail("owner@example.com");
+        owner.setName("Owner");
+        owner.setPasswordHash("hashedPassword");
+        entityManager.persist(owner);
+
+        Account sharedUser = new Account();
+        sharedUser.setEmail("shared@example.com");
+        sharedUser.setName("Shared User");
+        sharedUser.setPasswordHash("hashedPassword");
+        entityManager.persist(sharedUser);
+
+        for (int redCards = 0; redCards < 3; redCards++) {
+            Board board = new Board();
+            board.setName("Board " + (char) ('C' - redCards));
+            board.setOwner(owner);
+            if (redCards == 1) {
+                board.getSharedWith().add(sharedUser);
+            }
+            entityManager.persist(board);
+            for (int i = 0; i < redCards; i++) {
+                Card card = new Card();
+                card.setTitle("Card");
+                card.setPosition(i);
+                card.setState(CardState.RED);
+                card.setBoard(board);
+                card.setResetTime(LocalTime.of(8, 0));
+                entityManager.persist(card);
+            }
+        }
+        entityManager.flush();
+
+        // Act
+        Page<BoardSummary> byRedDesc = boardRepository.findAccessibleBoardSummaries(owner.getId(),
+                PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "redCardCount")));
+        Page<BoardSummary> byName = boardRepository.findAccessibleBoardSummaries(owner.getId(),
+                PageRequest.of(1, 2, Sort.by("name")));
+        Page<BoardSummary> pastTheEnd = boardRepository.findAccessibleBoardSummaries(owner.getId(),
+                PageRequest.of(5, 2, Sort.by("name")));
+
+        // Assert
+        assertThat(byRedDesc.getTotalElements()).isEqualTo(3);
+        assertThat(byRedDesc.getContent()).extracting(BoardSummary::getRedCardCount).containsExactly(2L, 1L);
+        assertThat(byRedDesc.getContent().get(1).getSharedCount()).isEqualTo(1);
+        assertThat(byRedDesc.getContent().get(1).getLastChangedAt()).isNotNull();
+        assertThat(byName.getContent()).extracting(BoardSummary::getName).containsExactly("Board C");
+        assertThat(byName.getContent().get(0).getLastChangedAt()).isNull();
+        assertThat(pastTheEnd.getContent()).isEmpty();
+        assertThat(pastTheEnd.getTotalElements()).isEqualTo(3);
+    }
+
+    @Test
+    void findAccessibleBoardSummaries_ShouldRejectUnknownSortProperty() {
+        assertThatThrownBy(() -> boardRepository.findAccessibleBoardSummaries(1L,
+                PageRequest.of(0, 10, Sort.by("description; DROP TABLE boards"))))
+                .hasRootCauseInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void accessLookups_ShouldProbeSharesWithoutLoadingThem() {
+        Account owner = new Account();
+        owner.setEmail("owner@example.com");
+        owner.setName("Owner");
+        owner.setPasswordHash("hashedPassword");
+        entityManager.persist(owner);
+
+        Account sharedUser = new Account();
+        sharedUser.setEmail("shared@example.com");
+        sharedUser.setName("Shared User");
+        sharedUser.setPasswordHash("hashedPassword");
+        entityManager.persist(sharedUser);
+
+        Account stranger = new Account();
+        stranger.setEmail("stranger@example.com");
+        stranger.setName("Stranger");
+        stranger.setPasswordHash("hashedPassword");
+        entityManager.persist(stranger);
+
+        Board board = new Board();
+        board.setName("Shared Board");
+        board.setOwner(owner);
+        board.getSharedWith().add(sharedUser);
+        entityManager.persist(board);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(boardRepository.findAccessibleOwnerId(board.getId(), owner.getId())).isEqualTo(owner.getId());
+        assertThat(boardRepository.findAccessibleOwnerId(board.getId(), sharedUser.getId())).isEqualTo(owner.getId());
+        assertThat(boardRepository.findAccessibleOwnerId(board.getId(), stranger.getId())).isNull();
+        assertThat(boardRepository.findAccessibleOwnerId(-1L, owner.getId())).isNull();
+
+        Board loaded = boardRepository.findAccessibleById(board.getId(), sharedUser.getId()).orElseThrow();
+        assertThat(loaded.getOwner().getName()).isEqualTo("Owner");
+        assertThat(Hibernate.isInitialized(loaded.getSharedWith())).isFalse();
+        assertThat(boardRepository.findAccessibleById(board.getId(), owner.getId())).isPresent();
+        assertThat(boardRepository.findAccessibleById(board.getId(), stranger.getId())).isEmpty();
     }
 }
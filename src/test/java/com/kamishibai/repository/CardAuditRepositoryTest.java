@@ -0,0 +1,84 @@
+package com.kamishibai.repository;
+
+import com.kamishibai.dto.CardAuditEntry;
+import com.kamishibai.model.Account;
+import com.kamishibai.model.Board;
+import com.kamishibai.model.Card;
+import com.kamishibai.model.CardAudit;
+import com.kamishibai.model.CardState;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class CardAuditRepositoryTest {
+
+    private static final LocalDateTime SEVEN_AM = LocalDateTime.of(2025, 2, 18, 7, 0);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private CardAuditRepository cardAuditRepository;
+
+    private Card card;
+
+    @BeforeEach
+    void setUp() {
+        Account owner = new Account();
+        owner.setEmail("owner@example.com");
+        owner.setName("Owner");
+        owner.setPasswordHash("hashedPassword");
+        entityManager.persist(owner);
+
+        Board board = new Board();
+        board.setName("Test Board");
+        board.setOwner(owner);
+        entityManager.persist(board);
+
+        card = new Card();
+        card.setTitle("Test Card");
+        card.setPosition(0);
+        card.setBoard(board);
+        card.setResetTime(LocalTime.of(20, 0));
+        entityManager.persist(card);
+    }
+
+    private CardAudit persistAudit(LocalDateTime timestamp) {
+        CardAudit audit = new CardAudit();
+        audit.setCard(card);
+        audit.setPreviousState(CardState.RED);
+        audit.setNewState(CardState.GREEN);
+        audit.setTimestamp(timestamp);
+        return entityManager.persist(audit);
+    }
+
+    @Test
+    void findEntriesBefore_ShouldPageByTimestampThenId() {
+        // Two entries share a timestamp, so the id is what keeps them apart across pages
+        CardAudit oldest = persistAudit(SEVEN_AM);
+        CardAudit tiedLow = persistAudit(SEVEN_AM.plusHours(1));
+        CardAudit tiedHigh = persistAudit(SEVEN_AM.plusHours(1));
+        CardAudit newest = persistAudit(SEVEN_AM.plusHours(2));
+        entityManager.flush();
+
+        List<CardAuditEntry> firstPage = cardAuditRepository.findLatestEntries(card.getId(), PageRequest.of(0, 2));
+        CardAuditEntry last = firstPage.get(1);
+        List<CardAuditEntry> secondPage = cardAuditRepository.findEntriesBefore(
+                card.getId(), last.getTimestamp(), last.getId(), PageRequest.of(0, 2));
+
+        assertThat(firstPage).extracting(CardAuditEntry::getId).containsExactly(newest.getId(), tiedHigh.getId());
+        assertThat(secondPage).extracting(CardAuditEntry::getId).containsExactly(tiedLow.getId(), oldest.getId());
+    }
+}
@@ -0,0 +1,104 @@
+package com.kamishibai.repository;
+
+import com.kamishibai.model.Account;
+import com.kamishibai.model.Board;
+import com.kamishibai.model.Card;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Imports 10k cards one INSERT per row, as IDENTITY keys forced, and then in JDBC batches, which the
+ * pooled id_generators ids allow. Excluded from {@code test}; run it with {@code ./gradlew benchmark}.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+@Tag("benchmark")
+class CardInsertBenchmarkTest {
+
+    private static final int CARDS = 10_000;
+    private static final int FLUSH_EVERY = 1_000;
+
+    private final Logger logger = LoggerFactory.getLogger(CardInsertBenchmarkTest.class);
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void batchedInsertsNeedAFractionOfTheStatements() {
+        Board board = persistBoard();
+        Session session = entityManager.unwrap(Session.class);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        importCards(board, FLUSH_EVERY); // warm up
+
+        session.setJdbcBatchSize(1);
+        statistics.clear();
+        long rowNanos = importCards(board, CARDS);
+        long rowStatements = statistics.getPrepareStatementCount();
+
+        session.setJdbcBatchSize(null); // back to hibernate.jdbc.batch_size
+        statistics.clear();
+        long batchedNanos = importCards(board, CARDS);
+        long batchedStatements = statistics.getPrepareStatementCount();
+
+        logger.info("Row at a time: {} statements, {} cards/s", rowStatements, CARDS * 1_000_000_000L / rowNanos);
+        logger.info("Batched: {} statements, {} cards/s", batchedStatements, CARDS * 1_000_000_000L / batchedNanos);
+
+        assertThat(rowStatements).isGreaterThanOrEqualTo(CARDS);
+        // Each flush prepares the insert once and sends it in batches of 50
+        assertThat(batchedStatements).isLessThan(rowStatements / 10);
+        assertThat(entityManager.createQuery("SELECT COUNT(c) FROM Card c WHERE c.board.id = :boardId", Long.class)
+                .setParameter("boardId", board.getId()).getSingleResult())
+                .isEqualTo(2L * CARDS + FLUSH_EVERY);
+    }
+
+    private Board persistBoard() {
+        Account owner = new Account();
+        owner.setEmail("importer@example.com");
+        owner.setName("Importer");
+        owner.setPasswordHash("hashedPassword");
+        entityManager.persist(owner);
+
+        Board board = new Board();
+        board.setName("Imported Board");
+        board.setOwner(owner);
+        entityManager.persist(board);
+        entityManager.flush();
+        return board;
+    }
+
+    private long importCards(Board board, int count) {
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            Card card = new Card();
+            card.setTitle("Card " + i);
+            card.setPosition(i * 1024);
+            card.setBoard(board);
+            card.setResetTime(LocalTime.of(20, 0));
+            entityManager.persist(card);
+            if ((i + 1) % FLUSH_EVERY == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return System.nanoTime() - start;
+    }
+}
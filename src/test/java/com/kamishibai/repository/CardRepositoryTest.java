@@ -0,0 +1,185 @@
+package com.kamishibai.repository;
+
+import com.kamishibai.model.Account;
+import com.kamishibai.model.Board;
+import com.kamishibai.model.Card;
+import com.kamishibai.model.CardState;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class CardRepositoryTest {
+
+    private static final LocalDateTime SIX_PM = LocalDateTime.of(2025, 2, 18, 18, 0);
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 2, 18, 20, 30);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private BoardRepository boardRepository;
+
+    private Account owner;
+    private Account sharedUser;
+    private Account stranger;
+    private Board board;
+    private Card card;
+
+    private Account persistAccount(String name) {
+        Account account = new Account();
+        account.setEmail(name.toLowerCase() + "@example.com");
+        account.setName(name);
+        account.setPasswordHash("hashedPassword");
+        return entityManager.persist(account);
+    }
+
+    @BeforeEach
+    void setUp() {
+        owner = persistAccount("Owner");
+        sharedUser = persistAccount("Shared");
+        stranger = persistAccount("Stranger");
+
+        board = new Board();
+        board.setName("Test Board");
+        board.setOwner(owner);
+        board.getSharedWith().add(sharedUser);
+        entityManager.persist(board);
+
+        card = new Card();
+        card.setTitle("Test Card");
+        card.setPosition(0);
+        card.setState(CardState.RED);
+        card.setBoard(board);
+        card.setResetTime(LocalTime.of(20, 0));
+        card.setLastStateChange(SIX_PM);
+        entityManager.persist(card);
+        entityManager.flush();
+    }
+
+    private int toggleToGreen(Long accountId, CardState expectedState, LocalDateTime expectedLastStateChange) {
+        return cardRepository.compareAndSetState(card.getId(), board.getId(), accountId, expectedState.name(),
+                expectedLastStateChange, CardState.GREEN.name(), NOW);
+    }
+
+    @Test
+    void compareAndSetState_ShouldUpdateCard_ForOwnerAndSharedUser() {
+        assertThat(toggleToGreen(sharedUser.getId(), CardState.RED, SIX_PM)).isEqualTo(1);
+        // A toggle is a change like any other edit, so a PUT based on the old version must conflict
+        assertThat(cardRepository.findById(card.getId()).orElseThrow().getVersion()).isEqualTo(card.getVersion() + 1);
+
+        Object[] snapshot = cardRepository.findToggleSnapshot(card.getId(), board.getId()).get(0);
+        assertThat(snapshot[0]).isEqualTo(CardState.GREEN);
+        assertThat(snapshot[2]).isEqualTo(NOW);
+
+        assertThat(cardRepository.compareAndSetState(card.getId(), board.getId(), owner.getId(), "GREEN", NOW,
+                "RED", NOW.plusMinutes(1))).isEqualTo(1);
+    }
+
+    @Test
+    void compareAndSetState_ShouldMatchNothing_WhenStateIsStale() {
+        assertThat(toggleToGreen(owner.getId(), CardState.GREEN, SIX_PM)).isZero();
+        assertThat(toggleToGreen(owner.getId(), CardState.RED, SIX_PM.minusMinutes(1))).isZero();
+    }
+
+    @Test
+    void compareAndSetState_ShouldMatchNothing_WithoutBoardAccess() {
+        assertThat(toggleToGreen(stranger.getId(), CardState.RED, SIX_PM)).isZero();
+        assertThat(cardRepository.findToggleSnapshot(card.getId(), board.getId()).get(0)[0]).isEqualTo(CardState.RED);
+    }
+
+    @Test
+    void findToggleSnapshot_ShouldBeEmpty_ForCardOnAnotherBoard() {
+        assertThat(cardRepository.findToggleSnapshot(card.getId(), board.getId() + 1)).isEmpty();
+    }
+
+    @Test
+    void findToggleSnapshotForUpdate_ShouldReadCardStateUnderLock() {
+        assertThat(toggleToGreen(owner.getId(), CardState.RED, SIX_PM)).isEqualTo(1);
+
+        Object[] snapshot = cardRepository.findToggleSnapshotForUpdate(card.getId(), board.getId()).get(0);
+        assertThat(snapshot).containsExactly(CardState.GREEN, card.getResetTime(), NOW);
+        assertThat(cardRepository.findToggleSnapshotForUpdate(card.getId(), board.getId() + 1)).isEmpty();
+    }
+
+    @Test
+    void changeSeq_ShouldSelectOnlyCardsChangedAfterSequence() {
+        Card other = new Card();
+        other.setTitle("Other Card");
+        other.setPosition(1);
+        other.setBoard(board);
+        other.setResetTime(LocalTime.of(20, 0));
+        entityManager.persist(other);
+        entityManager.flush();
+
+        boardRepository.incrementChangeSeq(board.getId());
+        cardRepository.stampChangeSeq(List.of(card.getId()), boardRepository.findChangeSeq(board.getId()));
+        boardRepository.incrementChangeSeq(board.getId());
+        cardRepository.stampChangeSeq(List.of(other.getId()), boardRepository.findChangeSeq(board.getId()));
+        entityManager.clear();
+
+        assertThat(boardRepository.findChangeSeq(board.getId())).isEqualTo(2L);
+        assertThat(cardRepository.findByBoardIdAndChangeSeqGreaterThanOrderByPosition(board.getId(), 1L))
+                .extracting(Card::getId).containsExactly(other.getId());
+        assertThat(cardRepository.findByBoardIdAndChangeSeqGreaterThanOrderByPosition(board.getId(), 0L))
+                .extracting(Card::getId).containsExactly(card.getId(), other.getId());
+    }
+
+    @Test
+    void findAccessibleChangeSeq_ShouldBeNull_WithoutBoardAccess() {
+        assertThat(boardRepository.findAccessibleChangeSeq(board.getId(), owner.getId())).isZero();
+        assertThat(boardRepository.findAccessibleChangeSeq(board.getId(), sharedUser.getId())).isZero();
+        assertThat(boardRepository.findAccessibleChangeSeq(board.getId(), stranger.getId())).isNull();
+    }
+
+    @Test
+    void findForUpdate_ShouldOnlyReturnCardsOnTheBoard() {
+        Board otherBoard = new Board();
+        otherBoard.setName("Other Board");
+        otherBoard.setOwner(stranger);
+        entityManager.persist(otherBoard);
+
+        Card foreign = new Card();
+        foreign.setTitle("Foreign Card");
+        foreign.setPosition(0);
+        foreign.setBoard(otherBoard);
+        foreign.setResetTime(LocalTime.of(20, 0));
+        entityManager.persist(foreign);
+        entityManager.flush();
+
+        assertThat(cardRepository.findForUpdate(board.getId(), List.of(foreign.getId(), card.getId(), -1L)))
+                .extracting(Card::getId).containsExactly(card.getId());
+    }
+
+    @Test
+    void positionQueries_ShouldFindNeighboursIgnoringTheMovedCard() {
+        card.setPosition(1024);
+        Card second = new Card();
+        second.setTitle("Second Card");
+        second.setPosition(2048);
+        second.setBoard(board);
+        second.setResetTime(LocalTime.of(20, 0));
+        entityManager.persist(second);
+        entityManager.flush();
+
+        assertThat(cardRepository.findLastPosition(board.getId())).isEqualTo(2048);
+        assertThat(cardRepository.findFirstPosition(board.getId(), card.getId())).isEqualTo(2048);
+        assertThat(cardRepository.findPositionAfter(board.getId(), 1024, -1L)).isEqualTo(2048);
+        assertThat(cardRepository.findPositionAfter(board.getId(), 1024, second.getId())).isNull();
+        assertThat(cardRepository.findPositionAfter(board.getId() + 1, 0, -1L)).isNull();
+        assertThat(cardRepository.countByBoardIdAndPositionAndIdNot(board.getId(), 2048, card.getId())).isEqualTo(1);
+    }
+}
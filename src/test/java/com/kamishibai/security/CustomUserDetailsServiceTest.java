@@ -12,6 +12,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -54,6 +55,20 @@ class CustomUserDetailsServiceTest {
         assertEquals("ROLE_USER", userDetails.getAuthorities().iterator().next().getAuthority());
     }
 
+    @Test
+    void userDetails_ShouldKeepIdentity_WhenCredentialsAreErased() {
+        when(accountRepository.findByEmail("test@example.com")).thenReturn(Optional.of(testAccount));
+
+        CustomUserDetails userDetails = (CustomUserDetails) userDetailsService.loadUserByUsername("test@example.com");
+        userDetails.eraseCredentials();
+
+        assertNull(userDetails.getPassword());
+        assertEquals(1L, userDetails.getId());
+        assertEquals("test@example.com", userDetails.getEmail());
+        assertEquals("Test User", userDetails.getName());
+        assertEquals(List.of("ROLE_USER"), userDetails.getRoles());
+    }
+
     @Test
     void loadUserByUsername_ShouldThrowException_WhenUserDoesNotExist() {
         // Arrange
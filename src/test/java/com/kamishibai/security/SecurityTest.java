@@ -7,10 +7,15 @@ import com.kamishibai.controller.BoardController;
 import com.kamishibai.controller.BoardViewController;
 import com.kamishibai.controller.HomeController;
 import com.kamishibai.controller.RegisterController;
+import com.kamishibai.dto.BoardSummary;
+import com.kamishibai.dto.BoardSummaryPage;
 import com.kamishibai.model.Account;
 import com.kamishibai.model.Board;
 import com.kamishibai.service.AccountService;
+import com.kamishibai.service.BoardAccessService;
+import com.kamishibai.service.BoardEventHub;
 import com.kamishibai.service.BoardService;
+import com.kamishibai.service.BoardViewAssembler;
 import com.kamishibai.service.CardService;
 import com.kamishibai.service.auth.CustomUserDetailsService;
 import org.junit.jupiter.api.BeforeEach;
@@ -64,6 +69,15 @@ class SecurityTest {
     @MockBean
     private CardService cardService;
 
+    @MockBean
+    private BoardEventHub boardEventHub;
+
+    @MockBean
+    private BoardViewAssembler boardViewAssembler;
+
+    @MockBean
+    private BoardAccessService boardAccessService;
+
     private Account testAccount;
 
     @BeforeEach
@@ -104,8 +118,13 @@ class SecurityTest {
         testBoard.setName("Test Board");
         testBoard.setOwner(testAccount);
 
-        when(boardService.getBoardsForUser(any())).thenReturn(Arrays.asList(testBoard));
+        List<BoardSummary> summaries = Arrays.asList(
+                new BoardSummary(1L, "Test Board", null, testAccount.getId(), testAccount.getName(), null, null, 0, 0, 0));
+        when(boardService.getBoardsForUser(any())).thenReturn(summaries);
+        when(boardService.getBoardSummaries(eq(testAccount.getId()), any()))
+                .thenReturn(new BoardSummaryPage(summaries, 0, 50, 1));
         when(boardService.getBoardById(eq(1L), any())).thenReturn(Optional.of(testBoard));
+        when(boardService.getAccessibleChangeSeq(eq(1L), any())).thenReturn(0L);
 
         // Test protected endpoints with authentication
         mockMvc.perform(get("/boards"))
@@ -0,0 +1,128 @@
+package com.kamishibai.service;
+
+import com.kamishibai.dto.AccountRequest;
+import com.kamishibai.model.Account;
+import com.kamishibai.repository.AccountRepository;
+import com.kamishibai.repository.BoardRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AccountServiceTest {
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private BoardRepository boardRepository;
+
+    @Mock
+    private PasswordEncoder passwordEncoder;
+
+    @Mock
+    private Clock clock;
+
+    private AccountService accountService;
+
+    @BeforeEach
+    void setUp() {
+        accountService = new AccountService(accountRepository, boardRepository, passwordEncoder, 10, 1000, clock,
+                new SimpleMeterRegistry());
+        lenient().when(clock.millis()).thenReturn(10_000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static Account account(String name, long version) {
+        Account account = new Account();
+        account.setId(1L);
+        account.setEmail("test@example.com");
+        account.setName(name);
+        account.setPasswordHash("hashedPassword");
+        ReflectionTestUtils.setField(account, "version", version);
+        return account;
+    }
+
+    @Test
+    void getAccount_ShouldLoadOnce_AndCacheSnapshotWithoutPassword() {
+        Account loaded = account("Test User", 0);
+        when(accountRepository.findById(1L)).thenReturn(Optional.of(loaded));
+
+        Account first = accountService.getAccount(1L);
+        Account second = accountService.getAccount(1L);
+
+        verify(accountRepository, times(1)).findById(1L);
+        assertThat(second).isSameAs(first).isNotSameAs(loaded);
+        assertThat(first.getName()).isEqualTo("Test User");
+        assertThat(first.getPasswordHash()).isNull();
+    }
+
+    @Test
+    void getAccount_ShouldReload_WhenEntryExpires() {
+        when(accountRepository.findById(1L)).thenReturn(Optional.of(account("Test User", 0)));
+        accountService.getAccount(1L);
+
+        when(clock.millis()).thenReturn(11_000L);
+        accountService.getAccount(1L);
+
+        verify(accountRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    void updateAccount_ShouldKeepNewerVersion_WhenStaleReadFinishesAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        Account managed = account("Old Name", 1);
+        when(accountRepository.findById(1L)).thenReturn(Optional.of(managed));
+        when(accountRepository.findByEmail("test@example.com")).thenReturn(Optional.of(managed));
+        when(accountRepository.save(managed)).thenReturn(managed);
+
+        AccountRequest request = new AccountRequest();
+        request.setEmail("test@example.com");
+        request.setName("New Name");
+        accountService.updateAccount(1L, request);
+        ReflectionTestUtils.setField(managed, "version", 2L); // bumped by the flush at commit
+
+        // A concurrent read misses the cache, reads the old row, and only caches it after the commit
+        Account stale = account("Old Name", 1);
+        when(accountRepository.findById(1L)).thenAnswer(invocation -> {
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            return Optional.of(stale);
+        });
+
+        assertThat(accountService.getAccount(1L).getName()).isEqualTo("New Name");
+        assertThat(accountService.getAccount(1L).getVersion()).isEqualTo(2L);
+        verify(boardRepository).incrementChangeSeqForAccount(1L);
+    }
+
+    @Test
+    void deleteAccount_ShouldEvictCachedAccount() {
+        Account loaded = account("Test User", 0);
+        when(accountRepository.findById(1L)).thenReturn(Optional.of(loaded));
+        accountService.getAccount(1L);
+
+        accountService.deleteAccount(1L);
+
+        verify(accountRepository).delete(loaded);
+        assertThat(accountService.cacheSize()).isZero();
+    }
+}
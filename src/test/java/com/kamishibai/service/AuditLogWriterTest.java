@@ -0,0 +1,173 @@
+package com.kamishibai.service;
+
+import com.kamishibai.model.Card;
+import com.kamishibai.model.CardAudit;
+import com.kamishibai.model.CardState;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AuditLogWriterTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private Card card;
+
+    @BeforeEach
+    void setUp() {
+        card = new Card();
+        card.setId(7L);
+    }
+
+    private CardAudit audit(CardState previousState, CardState newState) {
+        CardAudit audit = new CardAudit();
+        audit.setCard(card);
+        audit.setPreviousState(previousState);
+        audit.setNewState(newState);
+        audit.setTimestamp(LocalDateTime.of(2025, 2, 18, 7, 0));
+        return audit;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void stop_ShouldFlushQueuedEntriesInBatches() {
+        AuditLogWriter writer = new AuditLogWriter(jdbcTemplate, transactionManager, 100, 2, 50, Set.of());
+        for (int i = 0; i < 5; i++) {
+            writer.enqueue(audit(CardState.RED, CardState.GREEN));
+        }
+
+        writer.stop();
+
+        ArgumentCaptor<Collection<Object>> batches = ArgumentCaptor.forClass(Collection.class);
+        verify(jdbcTemplate, times(3)).batchUpdate(anyString(), batches.capture(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class));
+        assertThat(batches.getAllValues()).extracting(Collection::size).containsExactly(2, 2, 1);
+        assertThat(writer.pending()).isZero();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void writerThread_ShouldFlushAfterInterval() {
+        AuditLogWriter writer = new AuditLogWriter(jdbcTemplate, transactionManager, 100, 50, 20, Set.of());
+        writer.start();
+        try {
+            writer.enqueue(audit(CardState.RED, CardState.GREEN));
+            writer.enqueue(audit(CardState.GREEN, CardState.RED));
+
+            verify(jdbcTemplate, timeout(2000)).batchUpdate(anyString(), any(Collection.class), anyInt(),
+                    any(ParameterizedPreparedStatementSetter.class));
+        } finally {
+            writer.stop();
+        }
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void stop_ShouldWriteFailedBatchRowByRow_AndRetryFailingRowsBoundedTimes() {
+        AuditLogWriter writer = new AuditLogWriter(jdbcTemplate, transactionManager, 100, 10, 50, Set.of());
+        doThrow(new DataIntegrityViolationException("batch failed")).when(jdbcTemplate)
+                .batchUpdate(anyString(), any(Collection.class), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+        // The row for a deleted card keeps failing; the others go in on their own
+        lenient().doThrow(new DataIntegrityViolationException("card 8 is gone")).when(jdbcTemplate)
+                .update(anyString(), eq(8L), anyString(), anyString(), any());
+        Card deleted = new Card();
+        deleted.setId(8L);
+        CardAudit orphan = audit(CardState.RED, CardState.GREEN);
+        orphan.setCard(deleted);
+        writer.enqueue(audit(CardState.RED, CardState.GREEN));
+        writer.enqueue(orphan);
+        writer.enqueue(audit(CardState.GREEN, CardState.RED));
+
+        writer.stop();
+
+        verify(jdbcTemplate).update(anyString(), eq(7L), eq("RED"), eq("GREEN"), any());
+        verify(jdbcTemplate).update(anyString(), eq(7L), eq("GREEN"), eq("RED"), any());
+        verify(jdbcTemplate, times(AuditLogWriter.MAX_ATTEMPTS)).update(anyString(), eq(8L), anyString(),
+                anyString(), any());
+        assertThat(writer.pending()).isZero();
+    }
+
+    @Test
+    void stop_ShouldNotDuplicateRows_WhenBatchFailsPartway() {
+        EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        try {
+            JdbcTemplate jdbc = new JdbcTemplate(database);
+            jdbc.execute("CREATE TABLE cards (id BIGINT PRIMARY KEY)");
+            jdbc.execute("CREATE TABLE card_audit_log (id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                    "card_id BIGINT NOT NULL REFERENCES cards (id), previous_state VARCHAR(10), " +
+                    "new_state VARCHAR(10), timestamp TIMESTAMP)");
+            jdbc.update("INSERT INTO cards (id) VALUES (7)");
+            AuditLogWriter writer = new AuditLogWriter(jdbc, new DataSourceTransactionManager(database),
+                    100, 10, 50, Set.of());
+            // The middle row's card does not exist, so the batch fails after running the rows around it
+            Card deleted = new Card();
+            deleted.setId(8L);
+            CardAudit orphan = audit(CardState.RED, CardState.GREEN);
+            orphan.setCard(deleted);
+            writer.enqueue(audit(CardState.RED, CardState.GREEN));
+            writer.enqueue(orphan);
+            writer.enqueue(audit(CardState.GREEN, CardState.RED));
+
+            writer.stop();
+
+            assertThat(jdbc.queryForList("SELECT new_state FROM card_audit_log ORDER BY id", String.class))
+                    .containsExactly("GREEN", "RED");
+        } finally {
+            database.shutdown();
+        }
+    }
+
+    @Test
+    void enqueue_ShouldWriteSynchronously_WhenQueueIsFull() {
+        AuditLogWriter writer = new AuditLogWriter(jdbcTemplate, transactionManager, 1, 10, 50, Set.of());
+
+        writer.enqueue(audit(CardState.RED, CardState.GREEN));
+        writer.enqueue(audit(CardState.GREEN, CardState.RED));
+
+        verify(jdbcTemplate).update(anyString(), eq(7L), eq("GREEN"), eq("RED"), any());
+        assertThat(writer.pending()).isEqualTo(1);
+    }
+
+    @Test
+    void isSynchronous_ShouldOnlyMatchConfiguredBoards() {
+        AuditLogWriter writer = new AuditLogWriter(jdbcTemplate, transactionManager, 10, 10, 50, Set.of(3L));
+
+        assertTrue(writer.isSynchronous(3L));
+        assertFalse(writer.isSynchronous(4L));
+        assertFalse(writer.isSynchronous(null));
+        verifyNoInteractions(jdbcTemplate);
+    }
+}
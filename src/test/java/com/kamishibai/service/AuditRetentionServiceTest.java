@@ -0,0 +1,167 @@
+package com.kamishibai.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kamishibai.dto.CardAuditEntry;
+import com.kamishibai.model.Account;
+import com.kamishibai.model.Board;
+import com.kamishibai.model.Card;
+import com.kamishibai.model.CardAudit;
+import com.kamishibai.model.CardState;
+import com.kamishibai.repository.CardAuditRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class AuditRetentionServiceTest {
+
+    @TempDir
+    Path archiveDir;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private CardAuditRepository cardAuditRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private AuditArchive auditArchive;
+    private AuditRetentionService retentionService;
+    private Card card;
+
+    @BeforeEach
+    void setUp() {
+        Clock clock = Clock.fixed(LocalDateTime.of(2025, 2, 18, 22, 0).toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        auditArchive = new AuditArchive(jdbcTemplate, new ObjectMapper(), archiveDir.toString());
+        // Keep three months: everything before November 2024 has expired
+        retentionService = new AuditRetentionService(jdbcTemplate, auditArchive, clock, 3);
+
+        Account owner = new Account();
+        owner.setEmail("owner@example.com");
+        owner.setName("Owner");
+        owner.setPasswordHash("hashedPassword");
+        entityManager.persist(owner);
+
+        Board board = new Board();
+        board.setName("Test Board");
+        board.setOwner(owner);
+        entityManager.persist(board);
+
+        card = new Card();
+        card.setTitle("Test Card");
+        card.setPosition(0);
+        card.setBoard(board);
+        card.setResetTime(LocalTime.of(8, 0));
+        entityManager.persist(card);
+    }
+
+    private CardAudit persistAudit(CardState newState, LocalDateTime timestamp) {
+        CardAudit audit = new CardAudit();
+        audit.setCard(card);
+        audit.setPreviousState(newState == CardState.GREEN ? CardState.RED : CardState.GREEN);
+        audit.setNewState(newState);
+        audit.setTimestamp(timestamp);
+        return entityManager.persist(audit);
+    }
+
+    @Test
+    void applyRetention_ShouldArchiveThenPurgeExpiredMonths() throws Exception {
+        CardAudit september1 = persistAudit(CardState.GREEN, LocalDateTime.of(2024, 9, 3, 7, 0));
+        CardAudit september2 = persistAudit(CardState.RED, LocalDateTime.of(2024, 9, 4, 8, 0));
+        CardAudit october = persistAudit(CardState.GREEN, LocalDateTime.of(2024, 10, 1, 7, 0));
+        CardAudit december = persistAudit(CardState.RED, LocalDateTime.of(2024, 12, 1, 8, 0));
+        entityManager.flush();
+
+        int purged = retentionService.applyRetention();
+
+        assertEquals(2, purged);
+        entityManager.clear();
+        assertThat(cardAuditRepository.findAll()).extracting(CardAudit::getId).containsExactly(december.getId());
+        try (var files = Files.list(archiveDir)) {
+            assertThat(files.map(file -> file.getFileName().toString())).containsExactlyInAnyOrder(
+                    "card_audit_log-2024-09.ndjson.gz", "card_audit_log-2024-09.idx",
+                    "card_audit_log-2024-10.ndjson.gz", "card_audit_log-2024-10.idx");
+        }
+
+        // History older than the hot table is still readable, newest first, and pages by cursor
+        List<CardAuditEntry> archived = auditArchive.findEntriesBefore(card.getId(), null, null, null, 2);
+        assertThat(archived).extracting(CardAuditEntry::getId).containsExactly(october.getId(), september2.getId());
+        CardAuditEntry last = archived.get(1);
+        assertThat(auditArchive.findEntriesBefore(card.getId(), null, last.getTimestamp(), last.getId(), 2))
+                .extracting(CardAuditEntry::getId).containsExactly(september1.getId());
+    }
+
+    @Test
+    void findEntriesBefore_ShouldReadOnlyTheCardsRows_ThroughTheIndex() {
+        Card other = new Card();
+        other.setTitle("Other Card");
+        other.setPosition(1);
+        other.setBoard(card.getBoard());
+        other.setResetTime(LocalTime.of(8, 0));
+        entityManager.persist(other);
+        CardAudit mine = persistAudit(CardState.GREEN, LocalDateTime.of(2024, 9, 3, 7, 0));
+        CardAudit theirs = persistAudit(CardState.RED, LocalDateTime.of(2024, 9, 3, 8, 0));
+        theirs.setCard(other);
+        entityManager.flush();
+        LocalDateTime createdAt = LocalDateTime.of(2024, 9, 1, 0, 0);
+        assertThat(auditArchive.mayHoldEntries(createdAt)).isFalse();
+
+        retentionService.applyRetention();
+
+        assertThat(auditArchive.findEntriesBefore(card.getId(), null, null, null, 10))
+                .extracting(CardAuditEntry::getId).containsExactly(mine.getId());
+        assertThat(auditArchive.findEntriesBefore(other.getId(), null, null, null, 10))
+                .extracting(CardAuditEntry::getId).containsExactly(theirs.getId());
+        assertThat(auditArchive.findEntriesBefore(other.getId() + 1, null, null, null, 10)).isEmpty();
+        // Only cards created before the end of the newest archived month can have archived rows
+        assertThat(auditArchive.mayHoldEntries(createdAt)).isTrue();
+        assertThat(auditArchive.mayHoldEntries(LocalDateTime.of(2024, 11, 1, 0, 0))).isFalse();
+    }
+
+    @Test
+    void findEntriesBefore_ShouldScanFilesWrittenWithoutIndex() throws Exception {
+        String row = "{\"id\":5,\"cardId\":" + card.getId() + ",\"previousState\":\"RED\"," +
+                "\"newState\":\"GREEN\",\"timestamp\":\"2023-05-02T07:00\"}\n";
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(
+                Files.newOutputStream(archiveDir.resolve("card_audit_log-2023-05.ndjson.gz"))), UTF_8)) {
+            writer.write(row);
+        }
+
+        assertThat(auditArchive.mayHoldEntries(LocalDateTime.of(2023, 5, 1, 0, 0))).isTrue();
+        assertThat(auditArchive.findEntriesBefore(card.getId(), null, null, null, 10))
+                .extracting(CardAuditEntry::getId).containsExactly(5L);
+    }
+
+    @Test
+    void applyRetention_ShouldDoNothing_WhenNothingHasExpired() {
+        persistAudit(CardState.GREEN, LocalDateTime.of(2025, 1, 10, 7, 0));
+        entityManager.flush();
+
+        assertEquals(0, retentionService.applyRetention());
+        assertEquals(1, cardAuditRepository.count());
+        assertThat(archiveDir.toFile().list()).isEmpty();
+    }
+}
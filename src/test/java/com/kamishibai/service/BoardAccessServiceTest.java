@@ -0,0 +1,120 @@
+package com.kamishibai.service;
+
+import com.kamishibai.repository.BoardRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BoardAccessServiceTest {
+
+    private static final long OWNER = 1L;
+    private static final long SHARED = 2L;
+    private static final long STRANGER = 3L;
+
+    @Mock
+    private BoardRepository boardRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private Clock clock;
+
+    private SimpleMeterRegistry meterRegistry;
+    private BoardAccessService accessService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        accessService = new BoardAccessService(boardRepository, transactionManager, 2, 1000, clock, meterRegistry);
+        lenient().when(clock.millis()).thenReturn(10_000L);
+        lenient().when(boardRepository.findAccessibleOwnerId(10L, OWNER)).thenReturn(OWNER);
+        lenient().when(boardRepository.findAccessibleOwnerId(10L, SHARED)).thenReturn(OWNER);
+        lenient().when(boardRepository.findAccessibleOwnerId(10L, STRANGER)).thenReturn(null);
+    }
+
+    @Test
+    void getAccess_ShouldTellOwnerSharedAndStrangerApart() {
+        assertThat(accessService.getAccess(10L, OWNER)).isEqualTo(BoardAccessService.Access.OWNER);
+        assertThat(accessService.getAccess(10L, SHARED)).isEqualTo(BoardAccessService.Access.SHARED);
+        assertThat(accessService.canAccess(10L, STRANGER)).isFalse();
+        assertThat(accessService.isOwner(10L, SHARED)).isFalse();
+        assertThrows(IllegalStateException.class, () -> accessService.checkAccess(10L, STRANGER));
+    }
+
+    @Test
+    void getAccess_ShouldAnswerFromCache_UntilEntryExpires() {
+        accessService.canAccess(10L, SHARED);
+        accessService.canAccess(10L, SHARED);
+        verify(boardRepository, times(1)).findAccessibleOwnerId(10L, SHARED);
+
+        when(clock.millis()).thenReturn(11_000L);
+        accessService.canAccess(10L, SHARED);
+        verify(boardRepository, times(2)).findAccessibleOwnerId(10L, SHARED);
+    }
+
+    @Test
+    void getAccess_ShouldStayWithinSizeBound() {
+        accessService.canAccess(10L, OWNER);
+        accessService.canAccess(10L, SHARED);
+        accessService.canAccess(10L, STRANGER);
+
+        assertThat(accessService.cacheSize()).isEqualTo(2);
+    }
+
+    @Test
+    void getAccess_ShouldPublishHitsAndMisses() {
+        accessService.canAccess(10L, OWNER);
+        accessService.canAccess(10L, OWNER);
+        accessService.canAccess(10L, OWNER);
+
+        assertThat(cacheGets("hit")).isEqualTo(2);
+        assertThat(cacheGets("miss")).isEqualTo(1);
+    }
+
+    private double cacheGets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", BoardAccessService.CACHE_NAME).tag("result", result)
+                .functionCounter().count();
+    }
+
+    @Test
+    void getAccess_ShouldConfirmRefusalOnPrimary_InReadOnlyTransaction() {
+        // The replica has not seen the share yet, the primary has
+        when(boardRepository.findAccessibleOwnerId(10L, STRANGER)).thenReturn(null, OWNER);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        try {
+            assertThat(accessService.canAccess(10L, STRANGER)).isTrue();
+        } finally {
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        }
+
+        verify(transactionManager).getTransaction(argThat(definition ->
+                definition.getPropagationBehavior() == TransactionDefinition.PROPAGATION_REQUIRES_NEW
+                        && !definition.isReadOnly()));
+        assertThat(accessService.canAccess(10L, STRANGER)).isTrue();
+        verify(boardRepository, times(2)).findAccessibleOwnerId(10L, STRANGER);
+    }
+
+    @Test
+    void evictBoard_ShouldForgetDeniedAccess_AsSoonAsBoardIsShared() {
+        assertThat(accessService.canAccess(10L, STRANGER)).isFalse();
+        when(boardRepository.findAccessibleOwnerId(10L, STRANGER)).thenReturn(OWNER);
+
+        accessService.evictBoard(10L);
+
+        assertThat(accessService.canAccess(10L, STRANGER)).isTrue();
+    }
+}
@@ -0,0 +1,147 @@
+package com.kamishibai.service;
+
+import com.kamishibai.dto.BoardEvent;
+import com.kamishibai.model.CardState;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BoardEventHubTest {
+
+    private final List<RecordingEmitter> emitters = new ArrayList<>();
+    private BoardEventHub hub;
+    private long now = 1_000_000;
+
+    @BeforeEach
+    void setUp() {
+        hub = new BoardEventHub(2, 60_000, 3, 60_000) {
+            @Override
+            SseEmitter createEmitter() {
+                RecordingEmitter emitter = new RecordingEmitter();
+                emitters.add(emitter);
+                return emitter;
+            }
+
+            @Override
+            long now() {
+                return now;
+            }
+        };
+    }
+
+    private static BoardEvent toggled(Long boardId, Long cardId) {
+        return new BoardEvent(BoardEvent.CARD_TOGGLED, boardId, cardId, CardState.GREEN, null,
+                LocalDateTime.of(2025, 2, 18, 7, 0));
+    }
+
+    @Test
+    void publish_ShouldReachSubscribersOfThatBoardOnly() {
+        RecordingEmitter board1 = (RecordingEmitter) hub.subscribe(1L, null);
+        RecordingEmitter board2 = (RecordingEmitter) hub.subscribe(2L, null);
+
+        hub.publish(toggled(1L, 10L));
+        hub.shutdown(); // waits for the dispatcher to finish
+
+        assertThat(board1.sent).hasSize(1);
+        assertThat(board1.sent.get(0)).contains("event:card").contains("id:");
+        assertThat(board2.sent).isEmpty();
+    }
+
+    @Test
+    void subscribe_ShouldSendResync_WhenLastEventIdIsUnknown() {
+        hub.publish(toggled(1L, 10L));
+        RecordingEmitter fresh = (RecordingEmitter) hub.subscribe(1L, null);
+        assertThat(fresh.sent).isEmpty();
+
+        // An id from another run cannot be replayed, so the client is told to reload instead
+        RecordingEmitter stale = (RecordingEmitter) hub.subscribe(1L, "0-1");
+        assertThat(stale.sent).containsExactly("event:resync\ndata:\n\n");
+        hub.shutdown();
+    }
+
+    @Test
+    void subscribe_ShouldReplayOnlyMissedEvents() {
+        RecordingEmitter live = (RecordingEmitter) hub.subscribe(1L, null);
+        hub.publish(toggled(1L, 10L));
+        hub.publish(toggled(1L, 11L));
+        hub.shutdown();
+        String firstId = live.sent.get(0).lines().filter(line -> line.startsWith("id:"))
+                .findFirst().orElseThrow().substring(3);
+
+        // Reconnect as a client that only saw the first event
+        RecordingEmitter reconnected = (RecordingEmitter) hub.subscribe(1L, firstId);
+
+        assertThat(reconnected.sent).hasSize(1);
+        assertThat(reconnected.sent.get(0)).isEqualTo(live.sent.get(1));
+    }
+
+    @Test
+    void pruneRecentEvents_ShouldDropOldEvents_AndQuietBoards() {
+        RecordingEmitter live = (RecordingEmitter) hub.subscribe(1L, null);
+        hub.publish(toggled(1L, 10L));
+        hub.publish(toggled(2L, 20L));
+        now += 30_000;
+        hub.publish(toggled(1L, 11L));
+        hub.shutdown();
+        String firstId = live.sent.get(0).lines().filter(line -> line.startsWith("id:"))
+                .findFirst().orElseThrow().substring(3);
+
+        now += 45_000;
+        hub.pruneRecentEvents();
+
+        // Board 2 has nothing left to replay and nobody listening; board 1 keeps its newer event
+        assertThat(hub.bufferedBoardCount()).isEqualTo(1);
+        // A client that saw the first event of board 1 has not missed anything pruned
+        RecordingEmitter reconnected = (RecordingEmitter) hub.subscribe(1L, firstId);
+        assertThat(reconnected.sent).containsExactly(live.sent.get(1));
+    }
+
+    @Test
+    void subscribe_ShouldSendResync_WhenMissedEventsWerePruned() {
+        hub.publish(toggled(1L, 10L));
+        hub.publish(toggled(1L, 11L));
+        hub.publish(toggled(2L, 20L));
+        RecordingEmitter live = (RecordingEmitter) hub.subscribe(2L, null);
+        hub.publish(toggled(2L, 21L));
+        hub.shutdown();
+        String id = live.sent.get(0).lines().filter(line -> line.startsWith("id:"))
+                .findFirst().orElseThrow().substring(3);
+        String beforeAll = id.substring(0, id.lastIndexOf('-')) + "-0";
+
+        now += 120_000;
+        hub.pruneRecentEvents();
+
+        // Board 1's events are gone, so a client that saw none of them cannot be caught up
+        RecordingEmitter stale = (RecordingEmitter) hub.subscribe(1L, beforeAll);
+        assertThat(stale.sent).containsExactly("event:resync\ndata:\n\n");
+    }
+
+    @Test
+    void subscribe_ShouldRejectStreamsBeyondTheLimit() {
+        hub.subscribe(1L, null);
+        hub.subscribe(2L, null);
+
+        assertThrows(IllegalStateException.class, () -> hub.subscribe(3L, null));
+        assertThat(hub.subscriberCount()).isEqualTo(2);
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<String> sent = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            sent.add(builder.build().stream()
+                    .map(part -> part.getData() instanceof String text ? text : "<json>")
+                    .collect(Collectors.joining()));
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.kamishibai.service;
+
+import com.kamishibai.config.JacksonConfig;
+import com.kamishibai.dto.CardListResponse;
+import com.kamishibai.model.Card;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+class CardListCacheTest {
+
+    private CardListCache cache;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        cache = new CardListCache(mock(PlatformTransactionManager.class), new JacksonConfig().objectMapper(),
+                2, 1 << 20, 1024, new SimpleMeterRegistry());
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static CardListCache.Snapshot snapshot(long changeSeq, String... titles) {
+        List<CardListResponse> cards = new ArrayList<>();
+        for (String title : titles) {
+            Card card = new Card();
+            card.setTitle(title);
+            cards.add(new CardListResponse(card));
+        }
+        return new CardListCache.Snapshot(changeSeq, cards);
+    }
+
+    private static String json(CardListCache.CardList list) {
+        return new String(list.json(), UTF_8);
+    }
+
+    @Test
+    void get_ShouldRunOneLoad_ForConcurrentMisses() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<CardListCache.CardList>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(executor.submit(() -> cache.get(1L, 5L, () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return snapshot(5, "Lights");
+            })));
+        }
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        // Give the other callers time to arrive while the first load is still running
+        Thread.sleep(100);
+        release.countDown();
+
+        CardListCache.CardList first = results.get(0).get(5, TimeUnit.SECONDS);
+        for (Future<CardListCache.CardList> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isSameAs(first);
+        }
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void get_ShouldNotCacheFailedLoad() {
+        assertThrows(IllegalArgumentException.class, () -> cache.get(1L, 5L, () -> {
+            throw new IllegalArgumentException("Board not found");
+        }));
+
+        assertThat(json(cache.get(1L, 5L, () -> snapshot(5, "Lights")))).contains("Lights");
+    }
+
+    @Test
+    void get_ShouldFileListUnderSequenceItWasLoadedAt() {
+        cache.get(1L, 5L, () -> snapshot(6, "Lights"));
+
+        CardListCache.CardList cached = cache.get(1L, 6L, () -> {
+            throw new AssertionError("should have been cached");
+        });
+        assertThat(cached.changeSeq()).isEqualTo(6);
+        assertThat(cache.get(1L, 5L, () -> snapshot(5)).changeSeq()).isEqualTo(5);
+    }
+
+    @Test
+    void get_ShouldMissForNewerSequence_AndEvictBoardShouldDropItsLists() {
+        cache.get(1L, 5L, () -> snapshot(5, "Lights"));
+        cache.get(2L, 9L, () -> snapshot(9, "Doors"));
+
+        assertThat(json(cache.get(1L, 6L, () -> snapshot(6, "Lights", "Fire exits")))).contains("Fire exits");
+
+        cache.evictBoard(1L);
+        assertThat(cache.cacheSize()).isEqualTo(1);
+    }
+
+    @Test
+    void get_ShouldStayWithinBoardCount_AndByteBudget() {
+        cache.get(1L, 1L, () -> snapshot(1, "Lights"));
+        cache.get(2L, 1L, () -> snapshot(1, "Doors"));
+        cache.get(3L, 1L, () -> snapshot(1, "Fire exits"));
+        assertThat(cache.cacheSize()).isEqualTo(2);
+
+        cache.evictBoard(1L);
+        cache.evictBoard(2L);
+        cache.evictBoard(3L);
+        // Over the whole budget on its own, so it is not kept
+        cache.get(4L, 1L, () -> snapshot(1, "x".repeat(1 << 20)));
+        assertThat(cache.cacheSize()).isZero();
+    }
+
+    @Test
+    void serialize_ShouldWriteJsonWithApplicationMapper_AndGzipOnlyLargeLists() throws IOException {
+        Card card = new Card();
+        card.setTitle("Lights");
+        card.setResetTime(LocalTime.of(20, 0));
+        CardListCache.CardList small = cache.serialize(new CardListCache.Snapshot(3, List.of(new CardListResponse(card))));
+
+        assertThat(small.changeSeq()).isEqualTo(3);
+        assertThat(json(small)).startsWith("[{").contains("\"title\":\"Lights\"", "\"resetTime\":[20,0]");
+        assertThat(small.gzippedJson()).isNull();
+
+        CardListCache.CardList large = cache.serialize(snapshot(3, "Lights ".repeat(500)));
+        assertThat(large.gzippedJson()).isNotNull().hasSizeLessThan(large.json().length);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(large.gzippedJson()))) {
+            assertThat(in.readAllBytes()).isEqualTo(large.json());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.kamishibai.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CardResetQueueTest {
+
+    private static final LocalDateTime SEVEN_AM = LocalDateTime.of(2025, 2, 18, 7, 0);
+
+    private CardResetQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        queue = new CardResetQueue();
+    }
+
+    @Test
+    void pollDue_ShouldReturnOnlyDueCards_GroupedByResetInstant() {
+        queue.schedule(1L, SEVEN_AM);
+        queue.schedule(2L, SEVEN_AM);
+        queue.schedule(3L, SEVEN_AM.plusHours(1));
+
+        Map<LocalDateTime, List<Long>> due = queue.pollDue(SEVEN_AM);
+
+        assertThat(due).containsOnlyKeys(SEVEN_AM);
+        assertThat(due.get(SEVEN_AM)).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(queue.size()).isEqualTo(1);
+    }
+
+    @Test
+    void schedule_ShouldSupersedePreviousEntryForSameCard() {
+        queue.schedule(1L, SEVEN_AM);
+        queue.schedule(1L, SEVEN_AM.plusDays(1));
+
+        assertThat(queue.pollDue(SEVEN_AM)).isEmpty();
+        assertThat(queue.pollDue(SEVEN_AM.plusDays(1))).containsEntry(SEVEN_AM.plusDays(1), List.of(1L));
+    }
+
+    @Test
+    void cancel_ShouldDropScheduledCard() {
+        queue.schedule(1L, SEVEN_AM);
+        queue.cancel(1L);
+
+        assertThat(queue.pollDue(SEVEN_AM.plusDays(1))).isEmpty();
+        assertThat(queue.size()).isZero();
+    }
+
+    @Test
+    void restore_ShouldRequeuePolledCards_UnlessScheduledAgain() {
+        queue.schedule(1L, SEVEN_AM);
+        queue.schedule(2L, SEVEN_AM);
+        SortedMap<LocalDateTime, List<Long>> due = queue.pollDue(SEVEN_AM);
+        queue.schedule(2L, SEVEN_AM.plusDays(1));
+
+        queue.restore(due);
+
+        assertThat(queue.size()).isEqualTo(2);
+        assertThat(queue.pollDue(SEVEN_AM)).containsEntry(SEVEN_AM, List.of(1L));
+        assertThat(queue.pollDue(SEVEN_AM.plusDays(1))).containsEntry(SEVEN_AM.plusDays(1), List.of(2L));
+    }
+
+    @Test
+    void schedule_ShouldCompactSupersededEntries() {
+        for (int i = 0; i < 1000; i++) {
+            queue.schedule(1L, SEVEN_AM.plusMinutes(i));
+        }
+
+        assertThat(queue.size()).isEqualTo(1);
+        assertThat(queue.pollDue(SEVEN_AM.plusMinutes(998))).isEmpty();
+        assertThat(queue.pollDue(SEVEN_AM.plusMinutes(999))).containsEntry(SEVEN_AM.plusMinutes(999), List.of(1L));
+    }
+}
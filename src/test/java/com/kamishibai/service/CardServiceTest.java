@@ -2,19 +2,38 @@ package com.kamishibai.service;
 
 import com.kamishibai.model.*;
 import com.kamishibai.repository.*;
+import com.kamishibai.dto.BoardEvent;
+import com.kamishibai.dto.CardAuditEntry;
+import com.kamishibai.dto.CardAuditPage;
+import com.kamishibai.dto.CardBatchOperation;
+import com.kamishibai.dto.CardBatchResponse;
+import com.kamishibai.dto.CardBatchResult;
+import com.kamishibai.dto.CardChangesResponse;
+import com.kamishibai.dto.CardListResponse;
 import com.kamishibai.dto.CardResponse;
 import com.kamishibai.repository.BoardRepository;
 import com.kamishibai.repository.CardAuditRepository;
 import com.kamishibai.repository.CardRepository;
+import com.kamishibai.config.JacksonConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatcher;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Clock;
 import java.time.Instant;
 import java.time.LocalDate;
@@ -44,7 +63,22 @@ public class CardServiceTest {
     @Mock
     private BoardRepository boardRepository;
 
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private AuditLogWriter auditLogWriter;
+
+    @Mock
+    private AuditArchive auditArchive;
+
+    @Mock
+    private BoardEventHub boardEventHub;
+
     private Clock clock;
+    private CardResetQueue cardResetQueue;
+    private RankRebalanceQueue rankRebalanceQueue;
+    private CardListCache cardListCache;
     private CardService cardService;
     private Board testBoard;
     private Card testCard;
@@ -56,7 +90,11 @@ public class CardServiceTest {
             LocalDateTime.of(LocalDate.now(), LocalTime.of(20, 30)).toInstant(ZoneOffset.UTC),
             ZoneOffset.UTC
         );
-        cardService = new CardService(cardRepository, cardAuditRepository, clock);
+        cardResetQueue = new CardResetQueue();
+        rankRebalanceQueue = new RankRebalanceQueue();
+        cardListCache = new CardListCache(mock(PlatformTransactionManager.class), new JacksonConfig().objectMapper(),
+                100, 1 << 20, 1024, new SimpleMeterRegistry());
+        cardService = new CardService(cardRepository, cardAuditRepository, boardRepository, cardResetQueue, rankRebalanceQueue, auditLogWriter, auditArchive, boardEventHub, cardListCache, entityManager, clock);
 
         testBoard = new Board();
         testBoard.setId(1L);
@@ -69,6 +107,8 @@ public class CardServiceTest {
         testCard.setBoard(testBoard);
         testCard.setPosition(0);
         testCard.setResetTime(LocalTime.of(20, 0)); // 8 PM
+
+        lenient().when(boardRepository.findChangeSeq(testBoard.getId())).thenReturn(42L);
     }
 
     private CardAudit createAudit(CardState previousState, CardState newState, LocalDateTime timestamp) {
@@ -80,51 +120,645 @@ public class CardServiceTest {
         return audit;
     }
 
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
     @Test
     void resetCards_Success() {
         // Given
-        List<Card> cardsToReset = Arrays.asList(testCard);
-        
-        when(cardRepository.findByStateAndResetTimeLessThanEqual(eq(CardState.GREEN), any(LocalTime.class)))
-                .thenReturn(cardsToReset);
-        when(cardRepository.save(any(Card.class))).thenReturn(testCard);
-        when(cardAuditRepository.save(any(CardAudit.class))).thenReturn(new CardAudit());
-        when(cardAuditRepository.findTopByCardAndNewStateOrderByTimestampDesc(any(Card.class), eq(CardState.GREEN)))
-                .thenReturn(Optional.of(createAudit(CardState.RED, CardState.GREEN, LocalDateTime.of(LocalDate.now(), LocalTime.of(19, 0)))));
+        LocalDateTime now = LocalDateTime.now(clock);
+        LocalDateTime resetAt = LocalDateTime.of(LocalDate.now(clock), LocalTime.of(20, 0));
+        cardResetQueue.schedule(testCard.getId(), resetAt);
+
+        when(cardRepository.findDueForReset(List.of(testCard.getId()), resetAt))
+                .thenReturn(List.<Object[]>of(new Object[]{testCard.getId(), testBoard.getId()}));
+        when(cardAuditRepository.insertResetAudits(List.of(testCard.getId()), resetAt, now)).thenReturn(1);
+        when(cardRepository.resetGreenCards(List.of(testCard.getId()), resetAt, now)).thenReturn(1);
+
+        // When
+        int resetCount = cardService.resetCards();
+
+        // Then
+        assertEquals(1, resetCount);
+        InOrder inOrder = inOrder(cardAuditRepository, cardRepository);
+        inOrder.verify(cardRepository).findDueForReset(List.of(testCard.getId()), resetAt);
+        inOrder.verify(cardAuditRepository).insertResetAudits(List.of(testCard.getId()), resetAt, now);
+        inOrder.verify(cardRepository).resetGreenCards(List.of(testCard.getId()), resetAt, now);
+        verify(cardRepository, never()).save(any());
+        verify(cardAuditRepository, never()).save(any());
+        assertEquals(0, cardResetQueue.size());
+    }
+
+    @Test
+    void resetCards_ShouldResetCardOnNextRun_WhenResetRollsBack() {
+        // Given a due card whose first reset UPDATE fails
+        LocalDateTime now = LocalDateTime.now(clock);
+        LocalDateTime resetAt = LocalDateTime.of(LocalDate.now(clock), LocalTime.of(20, 0));
+        cardResetQueue.schedule(testCard.getId(), resetAt);
+        when(cardRepository.findDueForReset(List.of(testCard.getId()), resetAt))
+                .thenReturn(List.<Object[]>of(new Object[]{testCard.getId(), testBoard.getId()}));
+        when(cardAuditRepository.insertResetAudits(List.of(testCard.getId()), resetAt, now)).thenReturn(1);
+        when(cardRepository.resetGreenCards(List.of(testCard.getId()), resetAt, now))
+                .thenThrow(new RuntimeException("Lock wait timeout exceeded"))
+                .thenReturn(1);
+
+        // When the first run rolls back
+        TransactionSynchronizationManager.initSynchronization();
+        assertThrows(RuntimeException.class, () -> cardService.resetCards());
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        // Then the card is back on the queue and the next run resets it
+        assertEquals(1, cardResetQueue.size());
+        assertEquals(1, cardService.resetCards());
+        verify(cardRepository, times(2)).resetGreenCards(List.of(testCard.getId()), resetAt, now);
+        assertEquals(0, cardResetQueue.size());
+    }
+
+    @Test
+    void resetCards_ShouldNotTouchDatabase_WhenNothingIsDue() {
+        // Given a card that is not due until 9 PM
+        cardResetQueue.schedule(testCard.getId(), LocalDateTime.of(LocalDate.now(clock), LocalTime.of(21, 0)));
 
         // When
         cardService.resetCards();
 
         // Then
-        verify(cardRepository).findByStateAndResetTimeLessThanEqual(eq(CardState.GREEN), any(LocalTime.class));
-        verify(cardRepository).save(argThat(card -> card.getState() == CardState.RED));
-        verify(cardAuditRepository).save(any(CardAudit.class));
+        verifyNoInteractions(cardRepository, cardAuditRepository);
+        assertEquals(1, cardResetQueue.size());
+    }
+
+    private void givenSnapshot(CardState state, LocalDateTime lastStateChange) {
+        when(cardRepository.findToggleSnapshot(testCard.getId(), testBoard.getId()))
+                .thenReturn(List.<Object[]>of(new Object[]{state, testCard.getResetTime(), lastStateChange}));
     }
 
     @Test
-    void checkAndResetCardState_ShouldNotResetRedCard() {
+    void toggleCardState_ShouldScheduleNextReset_WhenTurningGreen() {
         // Given
-        testCard.setState(CardState.RED);
+        LocalDateTime sixPm = LocalDateTime.of(LocalDate.now(clock), LocalTime.of(18, 0));
+        givenSnapshot(CardState.RED, sixPm);
+        when(cardRepository.compareAndSetState(1L, 1L, 7L, "RED", sixPm, "GREEN", LocalDateTime.now(clock)))
+                .thenReturn(1);
+
+        // When
+        CardResponse response = cardService.toggleCardState(1L, 1L, 7L);
+
+        // Then the 8 PM reset has already passed today, so the card is due tomorrow at 8 PM
+        assertEquals(CardState.GREEN, response.getState());
+        LocalDateTime tomorrowResetTime = LocalDateTime.of(LocalDate.now(clock).plusDays(1), LocalTime.of(20, 0));
+        assertThat(cardResetQueue.pollDue(tomorrowResetTime.minusMinutes(1))).isEmpty();
+        assertThat(cardResetQueue.pollDue(tomorrowResetTime)).containsEntry(tomorrowResetTime, List.of(testCard.getId()));
+        verify(cardRepository, never()).findById(any());
+        verify(cardRepository, never()).save(any());
+    }
+
+    @Test
+    void toggleCardState_ShouldStartFromEffectiveState_WhenResetIsOverdue() {
+        // Given a card that went GREEN at 6 PM and has passed its 8 PM reset without being flipped yet
+        LocalDateTime sixPm = LocalDateTime.of(LocalDate.now(clock), LocalTime.of(18, 0));
+        givenSnapshot(CardState.GREEN, sixPm);
+        when(cardRepository.compareAndSetState(1L, 1L, 7L, "GREEN", sixPm, "GREEN", LocalDateTime.now(clock)))
+                .thenReturn(1);
+
+        // When
+        CardResponse response = cardService.toggleCardState(1L, 1L, 7L);
+
+        // Then the user saw RED, so the toggle turns it GREEN again
+        assertEquals(CardState.GREEN, response.getState());
+    }
+
+    @Test
+    void toggleCardState_ShouldRetryFromFreshState_WhenCardChangedConcurrently() {
+        // Given the card is toggled GREEN by someone else between our read and our update; as under
+        // REPEATABLE READ, a plain read keeps returning the first snapshot, and only a locking read sees theirs
+        LocalDateTime sixPm = LocalDateTime.of(LocalDate.now(clock), LocalTime.of(18, 0));
+        LocalDateTime justNow = LocalDateTime.now(clock).minusSeconds(1);
+        List<Object[]> stale = List.<Object[]>of(new Object[]{CardState.RED, testCard.getResetTime(), sixPm});
+        List<Object[]> fresh = List.<Object[]>of(new Object[]{CardState.GREEN, testCard.getResetTime(), justNow});
+        when(cardRepository.findToggleSnapshot(1L, 1L)).thenReturn(stale);
+        when(cardRepository.findToggleSnapshotForUpdate(1L, 1L)).thenReturn(fresh);
+        when(boardRepository.findAccessibleChangeSeq(1L, 7L)).thenReturn(41L);
+        when(cardRepository.compareAndSetState(1L, 1L, 7L, "RED", sixPm, "GREEN", LocalDateTime.now(clock)))
+                .thenReturn(0);
+        when(cardRepository.compareAndSetState(1L, 1L, 7L, "GREEN", justNow, "RED", LocalDateTime.now(clock)))
+                .thenReturn(1);
+
+        // When
+        CardResponse response = cardService.toggleCardState(1L, 1L, 7L);
+
+        // Then our toggle applies on top of theirs instead of overwriting it or being refused
+        assertEquals(CardState.RED, response.getState());
+        ArgumentCaptor<CardAudit> auditCaptor = ArgumentCaptor.forClass(CardAudit.class);
+        verify(auditLogWriter).enqueue(auditCaptor.capture());
+        assertEquals(CardState.GREEN, auditCaptor.getValue().getPreviousState());
+    }
+
+    @Test
+    void toggleCardState_ShouldPublishBoardEvent() {
+        // Given
+        LocalDateTime sixPm = LocalDateTime.of(LocalDate.now(clock), LocalTime.of(18, 0));
+        givenSnapshot(CardState.RED, sixPm);
+        when(cardRepository.compareAndSetState(any(), any(), any(), any(), any(), any(), any())).thenReturn(1);
 
         // When
-        cardService.checkAndResetCardState(testCard);
+        cardService.toggleCardState(1L, 1L, 7L);
 
         // Then
-        assertEquals(CardState.RED, testCard.getState());
+        ArgumentCaptor<BoardEvent> eventCaptor = ArgumentCaptor.forClass(BoardEvent.class);
+        verify(boardEventHub).publish(eventCaptor.capture());
+        assertEquals(BoardEvent.CARD_TOGGLED, eventCaptor.getValue().getType());
+        assertEquals(1L, eventCaptor.getValue().getBoardId());
+        assertEquals(CardState.GREEN, eventCaptor.getValue().getState());
+        assertEquals(LocalTime.of(20, 0), eventCaptor.getValue().getResetTime());
+    }
+
+    @Test
+    void resetCards_ShouldRecordAndPublishFlippedCards() {
+        // Given
+        LocalDateTime now = LocalDateTime.now(clock);
+        LocalDateTime resetAt = LocalDateTime.of(LocalDate.now(clock), LocalTime.of(20, 0));
+        cardResetQueue.schedule(testCard.getId(), resetAt);
+        when(cardRepository.findDueForReset(List.of(testCard.getId()), resetAt))
+                .thenReturn(List.<Object[]>of(new Object[]{testCard.getId(), testBoard.getId()}));
+        when(cardRepository.resetGreenCards(List.of(testCard.getId()), resetAt, now)).thenReturn(1);
+
+        // When
+        cardService.resetCards();
+
+        // Then
+        verify(boardRepository).incrementChangeSeq(testBoard.getId());
+        verify(cardRepository).stampChangeSeq(List.of(testCard.getId()), 42L);
+        ArgumentCaptor<BoardEvent> eventCaptor = ArgumentCaptor.forClass(BoardEvent.class);
+        verify(boardEventHub).publish(eventCaptor.capture());
+        assertEquals(BoardEvent.CARD_RESET, eventCaptor.getValue().getType());
+        assertEquals(testCard.getId(), eventCaptor.getValue().getCardId());
+        assertEquals(CardState.RED, eventCaptor.getValue().getState());
+    }
+
+    @Test
+    void toggleCardState_ShouldDenyAccess_WhenUpdateMatchesNothingAndBoardIsNotAccessible() {
+        // Given
+        LocalDateTime sixPm = LocalDateTime.of(LocalDate.now(clock), LocalTime.of(18, 0));
+        givenSnapshot(CardState.RED, sixPm);
+        when(cardRepository.compareAndSetState(any(), any(), any(), any(), any(), any(), any())).thenReturn(0);
+        when(boardRepository.findAccessibleChangeSeq(1L, 7L)).thenReturn(null);
+
+        // When / Then
+        assertThrows(IllegalStateException.class, () -> cardService.toggleCardState(1L, 1L, 7L));
+        verify(cardRepository, never()).findToggleSnapshotForUpdate(any(), any());
+        verifyNoInteractions(auditLogWriter);
+        assertEquals(0, cardResetQueue.size());
+    }
+
+    @Test
+    void toggleCardState_ShouldQueueAudit_InsteadOfSavingIt() {
+        // Given
+        LocalDateTime sixPm = LocalDateTime.of(LocalDate.now(clock), LocalTime.of(18, 0));
+        givenSnapshot(CardState.RED, sixPm);
+        when(cardRepository.compareAndSetState(any(), any(), any(), any(), any(), any(), any())).thenReturn(1);
+        when(entityManager.getReference(Card.class, 1L)).thenReturn(testCard);
+
+        // When
+        cardService.toggleCardState(1L, 1L, 7L);
+
+        // Then
+        ArgumentCaptor<CardAudit> auditCaptor = ArgumentCaptor.forClass(CardAudit.class);
+        verify(auditLogWriter).enqueue(auditCaptor.capture());
+        assertEquals(testCard, auditCaptor.getValue().getCard());
+        assertEquals(CardState.RED, auditCaptor.getValue().getPreviousState());
+        assertEquals(CardState.GREEN, auditCaptor.getValue().getNewState());
+        verify(auditLogWriter, never()).writeNow(any());
         verifyNoInteractions(cardAuditRepository);
     }
 
     @Test
-    void checkAndResetCardState_ShouldNotResetCardWithNullResetTime() {
+    void toggleCardState_ShouldWriteAuditImmediately_ForSynchronousBoard() {
         // Given
-        testCard.setResetTime(null);
-        
+        LocalDateTime sixPm = LocalDateTime.of(LocalDate.now(clock), LocalTime.of(18, 0));
+        givenSnapshot(CardState.RED, sixPm);
+        when(cardRepository.compareAndSetState(any(), any(), any(), any(), any(), any(), any())).thenReturn(1);
+        when(auditLogWriter.isSynchronous(testBoard.getId())).thenReturn(true);
+
         // When
-        cardService.checkAndResetCardState(testCard);
-        
+        cardService.toggleCardState(1L, 1L, 7L);
+
         // Then
+        verify(auditLogWriter).writeNow(any(CardAudit.class));
+        verify(auditLogWriter, never()).enqueue(any());
+    }
+
+    @Test
+    void toggleCardState_ShouldBumpBoardChangeSeq() {
+        // Given
+        LocalDateTime sixPm = LocalDateTime.of(LocalDate.now(clock), LocalTime.of(18, 0));
+        givenSnapshot(CardState.RED, sixPm);
+        when(cardRepository.compareAndSetState(any(), any(), any(), any(), any(), any(), any())).thenReturn(1);
+
+        // When
+        cardService.toggleCardState(1L, 1L, 7L);
+
+        // Then the card row is written before the board row is locked
+        InOrder inOrder = inOrder(cardRepository, boardRepository);
+        inOrder.verify(cardRepository).compareAndSetState(any(), any(), any(), any(), any(), any(), any());
+        inOrder.verify(boardRepository).incrementChangeSeq(1L);
+        inOrder.verify(cardRepository).stampChangeSeq(List.of(1L), 42L);
+    }
+
+    private static CardBatchOperation batchOperation(String op, Long cardId) {
+        return new CardBatchOperation(op, cardId);
+    }
+
+    @Test
+    void applyBatch_ShouldApplyOperationsInOrder_WithOneLoadAndOneBump() {
+        // Given
+        Card redCard = new Card();
+        redCard.setId(2L);
+        redCard.setTitle("Red Card");
+        redCard.setState(CardState.RED);
+        redCard.setBoard(testBoard);
+        redCard.setPosition(1);
+        redCard.setResetTime(LocalTime.of(20, 0));
+        when(boardRepository.findAccessibleChangeSeq(1L, 7L)).thenReturn(41L);
+        when(cardRepository.findForUpdate(eq(1L), any())).thenReturn(List.of(testCard, redCard));
+
+        CardBatchOperation move = batchOperation(CardBatchOperation.MOVE, 2L);
+        move.setPosition(5);
+        CardBatchOperation setGreen = batchOperation(CardBatchOperation.SET_STATE, 1L);
+        setGreen.setState(CardState.GREEN);
+        CardBatchOperation badMove = batchOperation(CardBatchOperation.MOVE, 1L);
+        badMove.setPosition(-1);
+        List<CardBatchOperation> operations = List.of(
+                batchOperation(CardBatchOperation.TOGGLE, 2L),
+                move,
+                setGreen,
+                batchOperation(CardBatchOperation.TOGGLE, 99L),
+                badMove);
+
+        // When
+        CardBatchResponse response = cardService.applyBatch(1L, 7L, operations);
+
+        // Then
+        assertThat(response.getResults()).extracting(CardBatchResult::getStatus).containsExactly(
+                CardBatchResult.OK, CardBatchResult.OK, CardBatchResult.OK, CardBatchResult.NOT_FOUND,
+                CardBatchResult.INVALID);
+        assertThat(response.getResults().get(1).getState()).isEqualTo(CardState.GREEN);
+        assertThat(response.getResults().get(1).getPosition()).isEqualTo(5);
+        assertEquals(42L, response.getChangeSeq());
+        assertEquals(CardState.GREEN, redCard.getState());
+        assertEquals(LocalDateTime.now(clock), redCard.getLastStateChange());
+
+        verify(cardRepository).findForUpdate(eq(1L), argThat(ids -> List.copyOf(ids).equals(List.of(1L, 2L, 99L))));
+        verify(boardRepository, times(1)).incrementChangeSeq(1L);
+        // Setting a card to the state it is already in is not a change
+        verify(cardRepository).stampChangeSeq(argThat(ids -> List.copyOf(ids).equals(List.of(2L))), eq(42L));
+        verify(auditLogWriter, times(1)).enqueue(any());
         verify(cardRepository, never()).save(any());
-        verify(cardAuditRepository, never()).save(any());
+    }
+
+    @Test
+    void applyBatch_ShouldNotBumpBoard_WhenNothingChanged() {
+        when(boardRepository.findAccessibleChangeSeq(1L, 7L)).thenReturn(41L);
+        when(cardRepository.findForUpdate(eq(1L), any())).thenReturn(List.of());
+
+        CardBatchResponse response = cardService.applyBatch(1L, 7L,
+                List.of(batchOperation(CardBatchOperation.TOGGLE, 99L)));
+
+        assertEquals(41L, response.getChangeSeq());
+        assertEquals(CardBatchResult.NOT_FOUND, response.getResults().get(0).getStatus());
+        verify(boardRepository, never()).incrementChangeSeq(any());
+    }
+
+    @Test
+    void applyBatch_ShouldDenyAccess_WithoutLoadingCards() {
+        when(boardRepository.findAccessibleChangeSeq(1L, 7L)).thenReturn(null);
+
+        assertThrows(IllegalStateException.class, () -> cardService.applyBatch(1L, 7L,
+                List.of(batchOperation(CardBatchOperation.TOGGLE, 1L))));
+        verifyNoInteractions(cardRepository);
+    }
+
+    private Card rankedCard(Long id, int position) {
+        Card card = new Card();
+        card.setId(id);
+        card.setTitle("Card " + id);
+        card.setState(CardState.RED);
+        card.setBoard(testBoard);
+        card.setPosition(position);
+        card.setResetTime(LocalTime.of(20, 0));
+        return card;
+    }
+
+    @Test
+    void createCard_ShouldAppendAfterLastCard() {
+        Card card = rankedCard(null, 0);
+        when(cardRepository.findLastPosition(1L)).thenReturn(2048);
+        when(cardRepository.save(card)).thenAnswer(invocation -> {
+            card.setId(5L);
+            return card;
+        });
+
+        cardService.createCard(card);
+
+        assertEquals(2048 + CardService.RANK_GAP, card.getPosition());
+        verify(cardRepository).stampChangeSeq(argThat(ids -> List.copyOf(ids).equals(List.of(5L))), eq(42L));
+    }
+
+    @Test
+    void moveCard_ShouldTakeMidpointRank_WritingOnlyTheMovedCard() {
+        Card anchor = rankedCard(2L, 2048);
+        testCard.setPosition(1024);
+        when(boardRepository.findAccessibleChangeSeq(1L, 7L)).thenReturn(41L);
+        when(cardRepository.findForUpdate(eq(1L), any())).thenReturn(List.of(testCard, anchor));
+        when(cardRepository.countByBoardIdAndPositionAndIdNot(1L, 2048, 1L)).thenReturn(1L);
+        when(cardRepository.findPositionAfter(1L, 2048, 1L)).thenReturn(4096);
+
+        Card moved = cardService.moveCard(1L, 1L, 2L, 7L);
+
+        assertEquals(3072, moved.getPosition());
+        assertEquals(2048, anchor.getPosition());
+        verify(cardRepository).findForUpdate(eq(1L), argThat(ids -> List.copyOf(ids).equals(List.of(1L, 2L))));
+        verify(cardRepository, never()).findByBoardIdOrderByPositionAscIdAsc(any());
+        verify(cardRepository).stampChangeSeq(argThat(ids -> List.copyOf(ids).equals(List.of(1L))), eq(42L));
+        verify(boardEventHub).publish(argThat(event -> BoardEvent.CARD_UPDATED.equals(event.getType())));
+        assertEquals(0, rankRebalanceQueue.size());
+    }
+
+    @Test
+    void moveCard_ShouldRespaceBoard_WhenAnchorRankIsShared() {
+        // Cards created before ranking all sit at position 0
+        Card anchor = rankedCard(2L, 0);
+        Card last = rankedCard(3L, 0);
+        testCard.setPosition(0);
+        when(boardRepository.findAccessibleChangeSeq(1L, 7L)).thenReturn(41L);
+        when(cardRepository.findForUpdate(eq(1L), any())).thenReturn(List.of(testCard, anchor));
+        when(cardRepository.countByBoardIdAndPositionAndIdNot(1L, 0, 1L)).thenReturn(2L);
+        when(cardRepository.findByBoardIdOrderByPositionAscIdAsc(1L)).thenReturn(List.of(testCard, anchor, last));
+        when(cardRepository.findPositionAfter(1L, 2 * CardService.RANK_GAP, 1L)).thenReturn(3 * CardService.RANK_GAP);
+
+        Card moved = cardService.moveCard(1L, 1L, 2L, 7L);
+
+        assertEquals(2 * CardService.RANK_GAP, anchor.getPosition());
+        assertEquals(3 * CardService.RANK_GAP, last.getPosition());
+        assertEquals(2 * CardService.RANK_GAP + CardService.RANK_GAP / 2, moved.getPosition());
+        verify(boardRepository, times(1)).incrementChangeSeq(1L);
+        verify(cardRepository).stampChangeSeq(argThat(ids -> List.copyOf(ids).equals(List.of(1L, 2L, 3L))), eq(42L));
+    }
+
+    @Test
+    void moveCard_ShouldQueueRebalance_WhenGapRunsLow() {
+        Card anchor = rankedCard(2L, 100);
+        when(boardRepository.findAccessibleChangeSeq(1L, 7L)).thenReturn(41L);
+        when(cardRepository.findForUpdate(eq(1L), any())).thenReturn(List.of(testCard, anchor));
+        when(cardRepository.countByBoardIdAndPositionAndIdNot(1L, 100, 1L)).thenReturn(1L);
+        when(cardRepository.findPositionAfter(1L, 100, 1L)).thenReturn(105);
+
+        assertEquals(102, cardService.moveCard(1L, 1L, 2L, 7L).getPosition());
+        assertEquals(1, rankRebalanceQueue.size());
+
+        // The background pass re-spaces the board without reordering it
+        Card next = rankedCard(3L, 105);
+        when(cardRepository.findByBoardIdOrderByPositionAscIdAsc(1L)).thenReturn(List.of(anchor, testCard, next));
+        assertEquals(3, cardService.rebalanceRanks());
+        assertEquals(List.of(1024, 2048, 3072), List.of(anchor.getPosition(), testCard.getPosition(), next.getPosition()));
+        assertEquals(0, rankRebalanceQueue.size());
+    }
+
+    @Test
+    void moveCard_ShouldMoveToTop_WithoutAnchor() {
+        when(boardRepository.findAccessibleChangeSeq(1L, 7L)).thenReturn(41L);
+        when(cardRepository.findForUpdate(eq(1L), any())).thenReturn(List.of(testCard));
+        when(cardRepository.findFirstPosition(1L, 1L)).thenReturn(-500);
+
+        assertEquals(-500 - CardService.RANK_GAP, cardService.moveCard(1L, 1L, null, 7L).getPosition());
+    }
+
+    @Test
+    void moveCard_ShouldRejectCardsNotOnTheBoard() {
+        when(boardRepository.findAccessibleChangeSeq(1L, 7L)).thenReturn(41L);
+        when(cardRepository.findForUpdate(eq(1L), any())).thenReturn(List.of(testCard));
+
+        assertThrows(IllegalArgumentException.class, () -> cardService.moveCard(1L, 1L, 99L, 7L));
+        verify(boardRepository, never()).incrementChangeSeq(any());
+    }
+
+    @Test
+    void moveCard_ShouldDenyAccess_WithoutLoadingCards() {
+        when(boardRepository.findAccessibleChangeSeq(1L, 7L)).thenReturn(null);
+
+        assertThrows(IllegalStateException.class, () -> cardService.moveCard(1L, 1L, null, 7L));
+        verifyNoInteractions(cardRepository);
+    }
+
+    @Test
+    void updateCard_ShouldAuditStateChange_AgainstStoredState() {
+        Card changes = new Card();
+        changes.setTitle("Renamed");
+        changes.setState(CardState.RED);
+        changes.setResetTime(LocalTime.of(21, 0));
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(testCard));
+        when(cardRepository.save(testCard)).thenReturn(testCard);
+        when(auditLogWriter.isSynchronous(1L)).thenReturn(true);
+
+        Card updated = cardService.updateCard(1L, 1L, changes, 0L);
+
+        assertEquals("Renamed", updated.getTitle());
+        assertEquals(CardState.RED, updated.getState());
+        assertEquals(0, updated.getPosition()); // not part of the edit, so left alone
+        ArgumentCaptor<CardAudit> audit = ArgumentCaptor.forClass(CardAudit.class);
+        verify(auditLogWriter).writeNow(audit.capture());
+        assertEquals(CardState.GREEN, audit.getValue().getPreviousState());
+        assertEquals(CardState.RED, audit.getValue().getNewState());
+    }
+
+    @Test
+    void updateCard_ShouldRejectStaleVersion_WithoutWriting() {
+        ReflectionTestUtils.setField(testCard, "version", 3L);
+        Card changes = new Card();
+        changes.setTitle("Renamed");
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(testCard));
+
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> cardService.updateCard(1L, 1L, changes, 2L));
+
+        assertEquals("Test Card", testCard.getTitle());
+        verify(cardRepository, never()).save(any());
+        verify(boardRepository, never()).incrementChangeSeq(any());
+    }
+
+    @Test
+    void updateCard_ShouldDenyAccess_ForCardOnAnotherBoard() {
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(testCard));
+
+        assertThrows(IllegalStateException.class, () -> cardService.updateCard(2L, 1L, new Card(), null));
+        verify(cardRepository, never()).save(any());
+    }
+
+    @Test
+    void getCardList_ShouldLoadOncePerChangeSeq_UntilCardsChange() {
+        when(cardRepository.findByBoardIdOrderByPosition(1L)).thenReturn(List.of(testCard));
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(testCard));
+        when(cardRepository.save(testCard)).thenReturn(testCard);
+
+        CardListCache.CardList list = cardService.getCardList(1L, 42L);
+        cardService.getCardList(1L, 42L);
+
+        assertEquals(42L, list.changeSeq());
+        assertThat(new String(list.json(), StandardCharsets.UTF_8)).contains("\"title\":\"Test Card\"");
+        verify(cardRepository, times(1)).findByBoardIdOrderByPosition(1L);
+
+        Card changes = new Card();
+        changes.setTitle("Renamed");
+        cardService.updateCard(1L, 1L, changes, null);
+        cardService.getCardList(1L, 42L);
+
+        verify(cardRepository, times(2)).findByBoardIdOrderByPosition(1L);
+    }
+
+    @Test
+    void getCardChanges_ShouldNotQueryCards_WhenBoardIsIdle() {
+        // Given
+        when(boardRepository.findAccessibleChangeSeq(1L, 7L)).thenReturn(42L);
+
+        // When
+        CardChangesResponse changes = cardService.getCardChanges(1L, 7L, 42L);
+
+        // Then
+        assertEquals(42L, changes.getChangeSeq());
+        assertThat(changes.getCards()).isEmpty();
+        assertFalse(changes.isFull());
+        verifyNoInteractions(cardRepository);
+    }
+
+    @Test
+    void getCardChanges_ShouldReturnCardsChangedSinceSequence() {
+        // Given
+        when(boardRepository.findAccessibleChangeSeq(1L, 7L)).thenReturn(42L);
+        when(cardRepository.findByBoardIdAndChangeSeqGreaterThanOrderByPosition(1L, 40L)).thenReturn(List.of(testCard));
+
+        // When
+        CardChangesResponse changes = cardService.getCardChanges(1L, 7L, 40L);
+
+        // Then
+        assertThat(changes.getCards()).extracting(CardListResponse::getId).containsExactly(testCard.getId());
+        assertFalse(changes.isFull());
+    }
+
+    @Test
+    void getCardChanges_ShouldReturnWholeBoard_WhenClientIsAheadOfBoard() {
+        // Given
+        when(boardRepository.findAccessibleChangeSeq(1L, 7L)).thenReturn(42L);
+        when(cardRepository.findByBoardIdOrderByPosition(1L)).thenReturn(List.of(testCard));
+
+        // When
+        CardChangesResponse changes = cardService.getCardChanges(1L, 7L, 99L);
+
+        // Then
+        assertTrue(changes.isFull());
+        assertThat(changes.getCards()).hasSize(1);
+    }
+
+    @Test
+    void getCardChanges_ShouldDenyAccess_WhenBoardIsNotAccessible() {
+        when(boardRepository.findAccessibleChangeSeq(1L, 7L)).thenReturn(null);
+
+        assertThrows(IllegalStateException.class, () -> cardService.getCardChanges(1L, 7L, 0L));
+    }
+
+    @Test
+    void getCardAuditPage_ShouldContinueIntoArchive_WhenHotTableRunsOut() {
+        // Given one hot entry and two archived ones
+        LocalDateTime sevenAm = LocalDateTime.of(LocalDate.now(clock), LocalTime.of(7, 0));
+        CardAuditEntry hot = new CardAuditEntry(30L, CardState.RED, CardState.GREEN, sevenAm);
+        CardAuditEntry archived1 = new CardAuditEntry(20L, CardState.GREEN, CardState.RED, sevenAm.minusMonths(30));
+        CardAuditEntry archived2 = new CardAuditEntry(10L, CardState.RED, CardState.GREEN, sevenAm.minusMonths(31));
+        when(cardAuditRepository.findLatestEntries(eq(1L), any())).thenReturn(List.of(hot));
+        when(auditArchive.mayHoldEntries(testCard.getCreatedAt())).thenReturn(true);
+        when(auditArchive.findEntriesBefore(1L, testCard.getCreatedAt(), hot.getTimestamp(), hot.getId(), 2))
+                .thenReturn(List.of(archived1, archived2));
+
+        // When
+        CardAuditPage page = cardService.getCardAuditPage(testCard, null, 2);
+
+        // Then
+        assertThat(page.getEntries()).containsExactly(hot, archived1);
+        assertEquals(CardAuditPage.cursorAfter(archived1), page.getNextCursor());
+    }
+
+    @Test
+    void getCardAuditPage_ShouldNotReadArchive_ForCardNewerThanIt() {
+        // Given a card whose whole history is still hot
+        CardAuditEntry hot = new CardAuditEntry(30L, CardState.RED, CardState.GREEN,
+                LocalDateTime.of(LocalDate.now(clock), LocalTime.of(7, 0)));
+        when(cardAuditRepository.findLatestEntries(eq(1L), any())).thenReturn(List.of(hot));
+        when(auditArchive.mayHoldEntries(testCard.getCreatedAt())).thenReturn(false);
+
+        // When
+        CardAuditPage page = cardService.getCardAuditPage(testCard, null, 2);
+
+        // Then
+        assertThat(page.getEntries()).containsExactly(hot);
+        assertNull(page.getNextCursor());
+        verify(auditArchive, never()).findEntriesBefore(any(), any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void getEffectiveState_ShouldBeRed_WhenResetPassedSinceLastStateChange() {
+        // Given a card that went GREEN at 7 PM, before today's 8 PM reset
+        testCard.setLastStateChange(LocalDateTime.of(LocalDate.now(clock), LocalTime.of(19, 0)));
+
+        // When
+        CardState effectiveState = cardService.getEffectiveState(testCard);
+
+        // Then
+        assertEquals(CardState.RED, effectiveState);
         assertEquals(CardState.GREEN, testCard.getState());
+        verifyNoInteractions(cardRepository, cardAuditRepository);
+    }
+
+    @Test
+    void getCard_ShouldReportEffectiveStateWithoutWriting() {
+        // Given
+        testCard.setLastStateChange(LocalDateTime.of(LocalDate.now(clock), LocalTime.of(19, 0)));
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(testCard));
+
+        // When
+        Card card = cardService.getCard(1L);
+
+        // Then
+        assertEquals(CardState.RED, card.getState());
+        verify(cardRepository, never()).save(any());
+        verifyNoInteractions(cardAuditRepository);
+    }
+
+    @Test
+    void getEffectiveState_ShouldNotResetRedCard() {
+        // Given
+        testCard.setState(CardState.RED);
+        testCard.setLastStateChange(LocalDateTime.of(LocalDate.now(clock), LocalTime.of(19, 0)));
+
+        // When
+        CardState effectiveState = cardService.getEffectiveState(testCard);
+
+        // Then
+        assertEquals(CardState.RED, effectiveState);
+    }
+
+    @Test
+    void getEffectiveState_ShouldNotResetCardWithNullResetTime() {
+        // Given
+        testCard.setResetTime(null);
+        testCard.setLastStateChange(LocalDateTime.of(LocalDate.now(clock), LocalTime.of(19, 0)));
+
+        // When
+        CardState effectiveState = cardService.getEffectiveState(testCard);
+
+        // Then
+        assertEquals(CardState.GREEN, effectiveState);
     }
 }
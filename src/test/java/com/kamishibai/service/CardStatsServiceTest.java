@@ -0,0 +1,137 @@
+package com.kamishibai.service;
+
+import com.kamishibai.model.Account;
+import com.kamishibai.model.Board;
+import com.kamishibai.model.Card;
+import com.kamishibai.model.CardAudit;
+import com.kamishibai.model.CardDailyStats;
+import com.kamishibai.model.CardState;
+import com.kamishibai.repository.CardAuditRepository;
+import com.kamishibai.repository.CardDailyStatsRepository;
+import com.kamishibai.repository.CardRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class CardStatsServiceTest {
+
+    private static final LocalDate FEB_16 = LocalDate.of(2025, 2, 16);
+    private static final LocalDate FEB_17 = LocalDate.of(2025, 2, 17);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private CardAuditRepository cardAuditRepository;
+
+    @Autowired
+    private CardDailyStatsRepository cardDailyStatsRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private CardStatsService cardStatsService;
+    private Board board;
+
+    @BeforeEach
+    void setUp() {
+        // 10 PM on the 18th, so the 16th and 17th are complete and the 18th is not
+        Clock clock = Clock.fixed(LocalDateTime.of(2025, 2, 18, 22, 0).toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        cardStatsService = new CardStatsService(cardRepository, cardAuditRepository, cardDailyStatsRepository,
+                jdbcTemplate, clock);
+
+        Account owner = new Account();
+        owner.setEmail("owner@example.com");
+        owner.setName("Owner");
+        owner.setPasswordHash("hashedPassword");
+        entityManager.persist(owner);
+
+        board = new Board();
+        board.setName("Test Board");
+        board.setOwner(owner);
+        entityManager.persist(board);
+    }
+
+    private Card persistCard(String title, LocalDateTime createdAt) {
+        Card card = new Card();
+        card.setTitle(title);
+        card.setPosition(0);
+        card.setBoard(board);
+        card.setResetTime(LocalTime.of(8, 0)); // 8 AM
+        entityManager.persist(card);
+        entityManager.flush();
+        jdbcTemplate.update("UPDATE cards SET created_at = ? WHERE id = ?", Timestamp.valueOf(createdAt), card.getId());
+        return card;
+    }
+
+    private void persistAudit(Card card, CardState previousState, CardState newState, LocalDateTime timestamp) {
+        CardAudit audit = new CardAudit();
+        audit.setCard(card);
+        audit.setPreviousState(previousState);
+        audit.setNewState(newState);
+        audit.setTimestamp(timestamp);
+        entityManager.persist(audit);
+    }
+
+    @Test
+    void compactDailyStats_ShouldRollUpEachCompleteDayOnce() {
+        Card checked = persistCard("Checked", FEB_16.atTime(12, 0));
+        Card neglected = persistCard("Neglected", FEB_16.atTime(12, 0));
+        // Turned GREEN at 7 AM on the 17th and reset half a minute after the 8 AM reset time
+        persistAudit(checked, CardState.RED, CardState.GREEN, FEB_17.atTime(7, 0));
+        persistAudit(checked, CardState.GREEN, CardState.RED, FEB_17.atTime(8, 0, 30));
+        entityManager.flush();
+
+        int days = cardStatsService.compactDailyStats();
+
+        assertEquals(2, days);
+        List<CardDailyStats> checkedStats = cardDailyStatsRepository
+                .findByCardIdAndStatDateBetweenOrderByStatDate(checked.getId(), FEB_16, FEB_17.plusDays(1));
+        assertThat(checkedStats).extracting(CardDailyStats::getStatDate).containsExactly(FEB_16, FEB_17);
+        CardDailyStats checkedFeb17 = checkedStats.get(1);
+        assertEquals(3630, checkedFeb17.getGreenSeconds());
+        assertEquals(2, checkedFeb17.getToggleCount());
+        assertEquals(false, checkedFeb17.isRedAtReset());
+        assertEquals(CardState.RED, checkedFeb17.getEndState());
+
+        List<CardDailyStats> neglectedStats = cardDailyStatsRepository
+                .findByCardIdAndStatDateBetweenOrderByStatDate(neglected.getId(), FEB_16, FEB_17);
+        // Created after the reset time on the 16th, so only the 17th counts as missed
+        assertThat(neglectedStats).extracting(CardDailyStats::isRedAtReset).containsExactly(false, true);
+        assertThat(neglectedStats).extracting(CardDailyStats::getGreenSeconds).containsExactly(0, 0);
+
+        // The high-water mark is now the 17th, so a second run has nothing to do
+        assertEquals(0, cardStatsService.compactDailyStats());
+    }
+
+    @Test
+    void summarize_ShouldCarryGreenTimeAcrossMidnight() {
+        CardDailyStats stats = CardStatsService.summarize(FEB_17, CardState.GREEN, FEB_17.atStartOfDay(),
+                LocalTime.of(8, 0), List.of(new CardStatsService.Transition(CardState.RED, FEB_17.atTime(1, 0))));
+
+        assertEquals(3600, stats.getGreenSeconds());
+        assertEquals(1, stats.getToggleCount());
+        assertEquals(true, stats.isRedAtReset());
+        assertEquals(CardState.RED, stats.getEndState());
+    }
+}